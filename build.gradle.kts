@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "4.0.0"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.sogeor"
@@ -29,6 +30,14 @@ configurations {
     }
 }
 
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
@@ -43,9 +52,12 @@ dependencies {
     testImplementation("io.projectreactor:reactor-test")
     testImplementation("org.springframework.kafka:spring-kafka-test")
     testImplementation("org.springframework.security:spring-security-test")
+    testImplementation("org.testcontainers:testcontainers-junit-jupiter")
+    testImplementation("org.testcontainers:testcontainers-postgresql")
 
     implementation("org.jetbrains:annotations:${property("o.jetbrains.annotations")}")
     implementation("io.micrometer:micrometer-registry-prometheus")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.springdoc:springdoc-openapi-starter-webflux-api:${
         property("o.springdoc.springdoc-openapi-starter-webflux-api")
     }")
@@ -64,6 +76,10 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-webflux-test")
     runtimeOnly("org.postgresql:r2dbc-postgresql")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    "loadTestImplementation"("org.springframework.kafka:spring-kafka-test")
+    "loadTestImplementation"("org.testcontainers:testcontainers-postgresql")
+    "loadTestImplementation"("org.hdrhistogram:HdrHistogram:${property("o.hdrhistogram.HdrHistogram")}")
 }
 
 dependencyManagement {
@@ -72,10 +88,32 @@ dependencyManagement {
     }
 }
 
+jmh {
+    jmhVersion = "1.37"
+    includeTests = false
+    fork = 1
+    warmupIterations = 3
+    warmup = "2s"
+    iterations = 5
+    timeOnIteration = "2s"
+    profilers.add("gc")
+    resultFormat = "JSON"
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the service against local Postgres and Kafka under generated load."
+    classpath = loadTest.runtimeClasspath
+    mainClass = "com.sogeor.service.inventory.load.LoadTest"
+    providers.gradlePropertiesPrefixedBy("loadTest.").get().forEach { (name, value) -> systemProperty(name, value) }
+}
+
 tasks.wrapper {
     gradleVersion = "9.2.1"
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
+    providers.gradleProperty("benchmark").orNull?.let { systemProperty("benchmark", it) }
 }
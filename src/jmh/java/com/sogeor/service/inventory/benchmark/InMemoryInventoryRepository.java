@@ -0,0 +1,133 @@
+package com.sogeor.service.inventory.benchmark;
+
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.StockMutation;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import org.jetbrains.annotations.NotNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stand-in for {@link InventoryRepository} keeping rows in a map, so benchmarks measure the service rather than the
+ * database. Single-row statements follow the semantics of their SQL; a row is replaced under the lock of its map bin
+ * much like a row lock serializes updates of one product. Other statements fail fast.
+ */
+final class InMemoryInventoryRepository extends UnsupportedInventoryRepository {
+
+    private final ConcurrentMap<String, Inventory> rows = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces all rows with the given products, each with the given stock and nothing reserved.
+     */
+    void reset(String[] productIds, int quantity) {
+        rows.clear();
+        Instant now = Instant.now();
+        for (int i = 0; i < productIds.length; i++) {
+            rows.put(productIds[i], Inventory.builder()
+                                             .id(i + 1)
+                                             .productId(productIds[i])
+                                             .quantity(quantity)
+                                             .reserved(0)
+                                             .createdAt(now)
+                                             .updatedAt(now)
+                                             .build());
+        }
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> findByProductId(String productId) {
+        return Mono.justOrEmpty(rows.get(productId));
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> addStock(String productId, int quantity) {
+        return Mono.fromSupplier(() -> add(productId, quantity));
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> reserveStock(String productId, int quantity) {
+        return single(productId, quantity, (row, q) -> row.getQuantity() - row.getReserved() >= q
+                                                       ? changed(row, row.getQuantity(), row.getReserved() + q)
+                                                       : null);
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> releaseStock(String productId, int quantity) {
+        return single(productId, quantity, (row, q) -> row.getReserved() >= q
+                                                       ? changed(row, row.getQuantity(), row.getReserved() - q)
+                                                       : null);
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> deductStock(String productId, int quantity) {
+        return single(productId, quantity, (row, q) -> row.getQuantity() >= q
+                                                       ? changed(row, row.getQuantity() - q,
+                                                                 row.getReserved() >= q
+                                                                 ? row.getReserved() - q
+                                                                 : row.getReserved())
+                                                       : null);
+    }
+
+    private Inventory add(String productId, int quantity) {
+        return rows.compute(productId, (id, row) -> row == null
+                                                    ? Inventory.builder()
+                                                               .id(rows.size() + 1)
+                                                               .productId(id)
+                                                               .quantity(quantity)
+                                                               .reserved(0)
+                                                               .createdAt(Instant.now())
+                                                               .updatedAt(Instant.now())
+                                                               .build()
+                                                    : changed(row, row.getQuantity() + quantity, row.getReserved()));
+    }
+
+    /**
+     * Applies a single-product statement: emits nothing for a missing product, the changed row if the update
+     * returned one and the unchanged row otherwise.
+     */
+    private Mono<@NotNull StockMutation> single(String productId, int quantity, Update update) {
+        return Mono.fromSupplier(() -> {
+            boolean[] applied = {false};
+            Inventory result = rows.computeIfPresent(productId, (id, row) -> {
+                Inventory updated = update.apply(row, quantity);
+                applied[0] = updated != null;
+                return applied[0] ? updated : row;
+            });
+            return result == null ? null : mutation(result, applied[0]);
+        });
+    }
+
+    private static Inventory changed(Inventory row, int quantity, int reserved) {
+        return Inventory.builder()
+                        .id(row.getId())
+                        .productId(row.getProductId())
+                        .quantity(quantity)
+                        .reserved(reserved)
+                        .createdAt(row.getCreatedAt())
+                        .updatedAt(Instant.now())
+                        .build();
+    }
+
+    private static StockMutation mutation(Inventory row, boolean applied) {
+        return StockMutation.builder()
+                            .id(row.getId())
+                            .productId(row.getProductId())
+                            .quantity(row.getQuantity())
+                            .reserved(row.getReserved())
+                            .createdAt(row.getCreatedAt())
+                            .updatedAt(row.getUpdatedAt())
+                            .applied(applied)
+                            .build();
+    }
+
+    @FunctionalInterface
+    private interface Update {
+
+        Inventory apply(Inventory row, int quantity);
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.sogeor.service.inventory.benchmark;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.controller.InventoryController;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryDto;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import com.sogeor.service.inventory.service.AdmissionControl;
+import com.sogeor.service.inventory.service.FlashSaleService;
+import com.sogeor.service.inventory.service.HotKeys;
+import com.sogeor.service.inventory.service.InventoryCache;
+import com.sogeor.service.inventory.service.InventoryChangeFeed;
+import com.sogeor.service.inventory.service.InventoryLoader;
+import com.sogeor.service.inventory.service.InventoryService;
+import com.sogeor.service.inventory.service.LowStockAlertEngine;
+import com.sogeor.service.inventory.service.NearestAllocationStrategy;
+import com.sogeor.service.inventory.service.OperationMetrics;
+import com.sogeor.service.inventory.service.OwnershipService;
+import com.sogeor.service.inventory.service.ReplicaReads;
+import com.sogeor.service.inventory.service.StockLocations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the hot paths of {@link InventoryService} and {@link InventoryController} with the
+ * production wiring and default settings, against {@link InMemoryInventoryRepository} instead of a database. Every
+ * operation hits either one product shared by all threads or a product picked uniformly at random.
+ * <p>
+ * Run with {@code ./gradlew jmh}, or {@code ./gradlew jmh -PjmhIncludes=InventoryServiceBenchmark.OneThread} for a
+ * subset; the {@code gc} profiler reports {@code gc.alloc.rate.norm} in bytes per operation. Results are written to
+ * {@code build/results/jmh/results.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public abstract class InventoryServiceBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+
+    private static final int STOCK = Integer.MAX_VALUE / 2;
+
+    @Param({"single", "uniform"})
+    public String keys;
+
+    private final String[] productIds = new String[PRODUCTS];
+
+    private final InventoryDto.StockUpdateRequest request = InventoryDto.StockUpdateRequest.builder()
+                                                                                           .quantity(1)
+                                                                                           .build();
+
+    private InMemoryInventoryRepository rows;
+
+    private InventoryLoader inventoryLoader;
+
+    private InventoryService inventoryService;
+
+    private InventoryController inventoryController;
+
+    private boolean single;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds[i] = "product-" + i;
+        }
+        single = "single".equals(keys);
+
+        InventoryProperties properties = new InventoryProperties();
+        if (properties.getOwnership().isEnabled()) {
+            throw new IllegalStateException("Benchmarks assume ownership is disabled by default");
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        rows = new InMemoryInventoryRepository();
+        InventoryRepository inventoryRepository = rows;
+        InventoryCache inventoryCache = new InventoryCache(properties, meterRegistry);
+        // No thresholds are ever loaded, so evaluations never reach the threshold repository.
+        LowStockAlertEngine lowStockAlertEngine = new LowStockAlertEngine(null, properties);
+        FlashSaleService flashSaleService = new FlashSaleService(inventoryRepository, inventoryCache,
+                                                                 lowStockAlertEngine, properties);
+        // With ownership disabled the checkpoint repository, transactional operator and object mapper are never used.
+        OwnershipService ownershipService = new OwnershipService(inventoryRepository, null, null, null, properties,
+                                                                 new DefaultKafkaConsumerFactory<>(Map.of()),
+                                                                 new DefaultKafkaProducerFactory<>(Map.of()));
+        ReplicaReads replicaReads = new ReplicaReads(properties);
+        inventoryLoader = new InventoryLoader(inventoryRepository, inventoryCache, replicaReads, properties);
+        InventoryChangeFeed changeFeed = new InventoryChangeFeed(inventoryLoader, properties, meterRegistry);
+        inventoryService = new InventoryService(inventoryRepository, flashSaleService, inventoryCache,
+                                                inventoryLoader, lowStockAlertEngine, ownershipService,
+                                                new AdmissionControl(properties, meterRegistry),
+                                                new OperationMetrics(meterRegistry, new HotKeys(properties)),
+                                                changeFeed,
+                                                new StockLocations(inventoryRepository,
+                                                                   List.of(new NearestAllocationStrategy()),
+                                                                   properties),
+                                                replicaReads, properties);
+        // No benchmark places holds or imports stock.
+        inventoryController = new InventoryController(inventoryService, flashSaleService, lowStockAlertEngine,
+                                                      null, null, changeFeed);
+    }
+
+    /**
+     * Restores the stock every iteration, so reservations and deductions never run out.
+     */
+    @Setup(Level.Iteration)
+    public void refill() {
+        rows.reset(productIds, STOCK);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inventoryLoader.close();
+    }
+
+    @Benchmark
+    public Inventory getInventory() {
+        return inventoryService.getInventory(productId()).block();
+    }
+
+    @Benchmark
+    public Inventory reserveStock() {
+        return inventoryService.reserveStock(productId(), 1).block();
+    }
+
+    @Benchmark
+    public Inventory deductStock() {
+        return inventoryService.deductStock(productId(), 1).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<InventoryDto.InventoryResponse> controllerGetInventory() {
+        return inventoryController.getInventory(productId()).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<InventoryDto.InventoryResponse> controllerReserveStock() {
+        return inventoryController.reserveStock(productId(), request).block();
+    }
+
+    private String productId() {
+        return single ? productIds[0] : productIds[ThreadLocalRandom.current().nextInt(PRODUCTS)];
+    }
+
+    @Threads(1)
+    public static class OneThread extends InventoryServiceBenchmark {}
+
+    @Threads(4)
+    public static class FourThreads extends InventoryServiceBenchmark {}
+
+    @Threads(16)
+    public static class SixteenThreads extends InventoryServiceBenchmark {}
+
+}
@@ -0,0 +1,358 @@
+package com.sogeor.service.inventory.benchmark;
+
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.HoldMutation;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.OrderEventKey;
+import com.sogeor.service.inventory.domain.StockLease;
+import com.sogeor.service.inventory.domain.StockMutation;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Base of {@link InventoryRepository} stand-ins in which every method fails fast, so a benchmark that strays off the
+ * paths its stand-in models fails instead of measuring something else. Stand-ins override what they model.
+ */
+abstract class UnsupportedInventoryRepository implements InventoryRepository {
+
+    @Override
+    public Mono<@NotNull Inventory> findByProductId(String productId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findByProductIdIn(Collection<String> productIds) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findLowStock(int threshold, int afterAvailable, String afterProductId, int limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> addStock(String productId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> reserveStock(String productId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> releaseStock(String productId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull StockMutation> deductStock(String productId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull BulkStockLine> reserveStock(String[] productIds, Integer[] quantities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull BulkStockLine> releaseStock(String[] productIds, Integer[] quantities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull BulkStockLine> deductStock(String[] productIds, Integer[] quantities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> adjustStock(String[] productIds, Integer[] quantityDeltas,
+                                                Integer[] reservedDeltas) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> importStock(String importId, long fromRow, long toRow, int rejected,
+                                              String[] productIds, Integer[] quantities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> applyOwnedChanges(String[] productIds, Integer[] quantityDeltas,
+                                                      Integer[] reservedDeltas) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull String> createMissing(String[] productIds) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> addStock(String productId, String locationId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull LocationStock> findLocations(String[] productIds, String defaultLocation) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull BulkStockLine> moveStock(String[] productIds, String[] locationIds, Integer[] quantityDeltas,
+                                                  Integer[] reservedDeltas, String defaultLocation, boolean atomic) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull String> findFlashSaleProductIds() {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> setFlashSale(String productId, boolean enabled) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull StockLease> leaseStock(String productId, String ownerId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> returnStock(String productId, String ownerId, int quantity, int held) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> recordLease(String productId, String ownerId, int held) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull String> touchLeases(String ownerId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> reclaimLeases(String ownerId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> reclaimExpiredLeases(Instant before) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull HoldMutation> placeHold(String productId, String ownerId, int quantity, long ttlMillis) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> releaseHold(String productId, String ownerId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> confirmHold(String productId, String ownerId) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> releaseExpiredHolds(int limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Instant> findNextHoldExpiry() {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull OrderEventKey> claimOrderEvents(String[] orderIds, String[] eventTypes) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> rejectOrderEvents(String[] orderIds, String[] eventTypes) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> deleteProcessedOrderEvents(Instant before, int limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> appendStock(String productId, int quantity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findViewByProductIdIn(Collection<String> productIds) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> compactStock(int limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Integer> compactStock(String[] productIds) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> findAsOf(String productId, Instant at) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Long> deleteLedgerBefore(Instant before, int limit) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Mono<@NotNull S> save(S entity) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Flux<@NotNull S> saveAll(Iterable<S> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Flux<@NotNull S> saveAll(Publisher<S> entityStream) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> findById(Integer id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Inventory> findById(Publisher<Integer> id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Boolean> existsById(Integer id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Boolean> existsById(Publisher<Integer> id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findAll() {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findAll(Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findAllById(Iterable<Integer> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public Flux<@NotNull Inventory> findAllById(Publisher<Integer> idStream) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Long> count() {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteById(Integer id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteById(Publisher<Integer> id) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> delete(Inventory entity) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteAllById(Iterable<? extends Integer> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteAll(Iterable<? extends Inventory> entities) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteAll(Publisher<? extends Inventory> entityStream) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mono<@NotNull Void> deleteAll() {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Mono<@NotNull S> findOne(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Flux<@NotNull S> findAll(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Flux<@NotNull S> findAll(Example<S> example, Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Mono<@NotNull Long> count(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory> Mono<@NotNull Boolean> exists(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends Inventory, R, P extends Publisher<R>> P findBy(
+            Example<S> example, Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        throw unsupported();
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException(getClass().getSimpleName() + " does not model this statement");
+    }
+
+}
@@ -0,0 +1,255 @@
+package com.sogeor.service.inventory.load;
+
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryDto;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.messaging.EventCodecs;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts operations at a fixed rate in an open model: the schedule does not slow down when the service does, and
+ * every operation is timed from its scheduled start. Reservations, payments and cancellations that succeed are kept
+ * in a ledger, from which the stock every product should end up with is derived.
+ * <p>
+ * A payment deducts an earlier successful reservation and a cancellation returns the stock of an earlier payment, as
+ * the order service would. Both are published to {@code order-events} and timed until the broker acknowledges them;
+ * the time until they are applied shows up in the {@code inventory.events.lag} metric of the service.
+ */
+final class LoadGenerator {
+
+    private static final String ORDER_EVENTS = "order-events";
+
+    private final LoadTestSettings settings;
+
+    private final WebClient webClient;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    private final EventCodecs eventCodecs;
+
+    private final String[] productIds;
+
+    private final LoadTestSettings.Operation[] weighted;
+
+    private final Map<LoadTestSettings.Operation, OperationStats> stats =
+            new EnumMap<>(LoadTestSettings.Operation.class);
+
+    private final Semaphore inFlight;
+
+    private final AtomicLongArray reserved;
+
+    private final AtomicLongArray paid;
+
+    private final AtomicLongArray cancelled;
+
+    private final Queue<Order> reservedOrders = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Order> paidOrders = new ConcurrentLinkedQueue<>();
+
+    LoadGenerator(LoadTestSettings settings, WebClient webClient, KafkaTemplate<String, byte[]> kafkaTemplate,
+                  EventCodecs eventCodecs, String[] productIds) {
+        this.settings = settings;
+        this.webClient = webClient;
+        this.kafkaTemplate = kafkaTemplate;
+        this.eventCodecs = eventCodecs;
+        this.productIds = productIds;
+        this.inFlight = new Semaphore(settings.maxInFlight());
+        this.reserved = new AtomicLongArray(productIds.length);
+        this.paid = new AtomicLongArray(productIds.length);
+        this.cancelled = new AtomicLongArray(productIds.length);
+        List<LoadTestSettings.Operation> operations = new ArrayList<>();
+        settings.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weighted = operations.toArray(LoadTestSettings.Operation[]::new);
+        for (LoadTestSettings.Operation operation : LoadTestSettings.Operation.values()) {
+            stats.put(operation, new OperationStats(operation));
+        }
+    }
+
+    /**
+     * Runs the warmup and the measured period, then waits for the outstanding operations.
+     */
+    void run() throws InterruptedException {
+        long interval = 1_000_000_000L / settings.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        for (long i = 0; ; i++) {
+            long scheduledAt = start + i * interval;
+            if (scheduledAt >= end) {
+                break;
+            }
+            for (long wait = scheduledAt - System.nanoTime(); wait > 0; wait = scheduledAt - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            LoadTestSettings.Operation operation = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+            Completion completion = new Completion(operation, scheduledAt, scheduledAt >= measureFrom);
+            try {
+                start(operation, completion);
+            } catch (RuntimeException e) {
+                completion.finish(OperationStats.Outcome.ERROR);
+            }
+        }
+        inFlight.acquire(settings.maxInFlight());
+        inFlight.release(settings.maxInFlight());
+    }
+
+    void report(PrintStream out) {
+        OperationStats.printHeader(out);
+        for (OperationStats operation : stats.values()) {
+            operation.print(out, settings.duration());
+        }
+    }
+
+    long errors() {
+        return stats.values().stream().mapToLong(OperationStats::errors).sum();
+    }
+
+    /**
+     * Compares the stock of every product with the ledger and describes each difference. A product with more stock
+     * reserved than it holds, or with negative stock, was oversold.
+     */
+    List<String> verify(Map<String, Inventory> rows) {
+        List<String> problems = new ArrayList<>();
+        for (int i = 0; i < productIds.length; i++) {
+            Inventory row = rows.get(productIds[i]);
+            long quantity = settings.initialStock() - paid.get(i) + cancelled.get(i);
+            long reservedStock = reserved.get(i) - paid.get(i);
+            if (row == null) {
+                problems.add(productIds[i] + ": missing");
+            } else if (row.getQuantity() < 0 || row.getReserved() < 0 || row.getReserved() > row.getQuantity()) {
+                problems.add(String.format("%s: oversold, quantity %d, reserved %d", productIds[i],
+                                           row.getQuantity(), row.getReserved()));
+            } else if (row.getQuantity() != quantity || row.getReserved() != reservedStock) {
+                problems.add(String.format("%s: quantity %d, reserved %d, expected %d and %d", productIds[i],
+                                           row.getQuantity(), row.getReserved(), quantity, reservedStock));
+            }
+        }
+        return problems;
+    }
+
+    private void start(LoadTestSettings.Operation operation, Completion completion) {
+        switch (operation) {
+            case READ -> read(completion);
+            case RESERVE -> reserve(completion);
+            case PAID -> publish("ORDER_PAID", reservedOrders.poll(), paid, paidOrders, completion);
+            case CANCELLED -> publish("ORDER_CANCELLED", paidOrders.poll(), cancelled, null, completion);
+        }
+    }
+
+    private void read(Completion completion) {
+        String productId = productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+        exchange(webClient.get().uri("/{productId}", productId)).subscribe(
+                status -> completion.finish(outcome(status)), e -> completion.finish(OperationStats.Outcome.ERROR));
+    }
+
+    private void reserve(Completion completion) {
+        int product = ThreadLocalRandom.current().nextInt(productIds.length);
+        int quantity = ThreadLocalRandom.current().nextInt(settings.maxQuantity()) + 1;
+        InventoryDto.StockUpdateRequest request = InventoryDto.StockUpdateRequest.builder().quantity(quantity).build();
+        exchange(webClient.put().uri("/{productId}/reserve", productIds[product]).bodyValue(request)).subscribe(
+                status -> {
+                    OperationStats.Outcome outcome = outcome(status);
+                    if (outcome == OperationStats.Outcome.OK) {
+                        reserved.addAndGet(product, quantity);
+                        reservedOrders.add(new Order(UUID.randomUUID().toString(), product, quantity));
+                    }
+                    completion.finish(outcome);
+                }, e -> completion.finish(OperationStats.Outcome.ERROR));
+    }
+
+    private void publish(String eventType, Order order, AtomicLongArray applied, Queue<Order> next,
+                         Completion completion) {
+        if (order == null) {
+            completion.finish(OperationStats.Outcome.SKIPPED);
+            return;
+        }
+        InventoryEvents.OrderEvent event = InventoryEvents.OrderEvent.builder()
+                                                                     .eventType(eventType)
+                                                                     .orderId(order.orderId())
+                                                                     .items(List.of(new InventoryEvents.OrderItem(
+                                                                             productIds[order.product()],
+                                                                             order.quantity())))
+                                                                     .timestamp(Instant.now())
+                                                                     .build();
+        ProducerRecord<String, byte[]> record;
+        try {
+            record = eventCodecs.record(ORDER_EVENTS, order.orderId(), event);
+        } catch (IOException e) {
+            completion.finish(OperationStats.Outcome.ERROR);
+            return;
+        }
+        kafkaTemplate.send(record).whenComplete((result, e) -> {
+            if (e != null) {
+                completion.finish(OperationStats.Outcome.ERROR);
+                return;
+            }
+            applied.addAndGet(order.product(), order.quantity());
+            if (next != null) {
+                next.add(order);
+            }
+            completion.finish(OperationStats.Outcome.OK);
+        });
+    }
+
+    private static Mono<Integer> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()));
+    }
+
+    private static OperationStats.Outcome outcome(int status) {
+        return switch (status) {
+            case 200 -> OperationStats.Outcome.OK;
+            case 409 -> OperationStats.Outcome.INSUFFICIENT;
+            case 429 -> OperationStats.Outcome.REJECTED;
+            default -> OperationStats.Outcome.ERROR;
+        };
+    }
+
+    private record Order(String orderId, int product, int quantity) {}
+
+    private final class Completion {
+
+        private final LoadTestSettings.Operation operation;
+
+        private final long scheduledAt;
+
+        private final boolean measured;
+
+        private Completion(LoadTestSettings.Operation operation, long scheduledAt, boolean measured) {
+            this.operation = operation;
+            this.scheduledAt = scheduledAt;
+            this.measured = measured;
+        }
+
+        private void finish(OperationStats.Outcome outcome) {
+            if (measured) {
+                stats.get(operation).record(outcome, scheduledAt);
+            }
+            inFlight.release();
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.sogeor.service.inventory.load;
+
+import com.sogeor.service.inventory.InventoryServiceApplication;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryDto;
+import com.sogeor.service.inventory.messaging.EventCodecs;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Boots the whole service against a throwaway Postgres and an embedded Kafka broker, drives it with the load
+ * described by {@link LoadTestSettings} and checks afterwards that the stock of every product matches what the load
+ * did to it. Exits with {@code 1} if it does not.
+ * <p>
+ * Postgres runs in a container on tmpfs with durability turned off, because the statements of the service rely on
+ * Postgres features an in-process database does not have. Keycloak is replaced by {@link LoadTestSecurity}.
+ */
+public final class LoadTest {
+
+    private static final int PARTITIONS = 6;
+
+    private LoadTest() {}
+
+    static void main(final @NotNull String... arguments) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine")
+                .withTmpFs(Map.of("/var/lib/postgresql", "rw"))
+                .withCommand("postgres", "-c", "fsync=off", "-c", "synchronous_commit=off", "-c",
+                             "full_page_writes=off", "-c", "max_connections=200");
+        EmbeddedKafkaBroker kafka = new EmbeddedKafkaKraftBroker(1, PARTITIONS, "product-updates", "order-events",
+                                                                 "inventory-updates");
+        boolean consistent;
+        try {
+            postgres.start();
+            kafka.afterPropertiesSet();
+            try (ConfigurableApplicationContext context = start(postgres, kafka)) {
+                consistent = run(settings, context);
+            }
+        } finally {
+            kafka.destroy();
+            postgres.stop();
+        }
+        System.exit(consistent ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(PostgreSQLContainer postgres, EmbeddedKafkaBroker kafka) {
+        String r2dbcUrl = "r2dbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort() + "/" +
+                          postgres.getDatabaseName();
+        return new SpringApplicationBuilder(InventoryServiceApplication.class, LoadTestSecurity.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.cloud.config.enabled=false",
+                "--CONFIG_SERVER_URL=http://localhost:8888",
+                "--spring.autoconfigure.exclude=" +
+                "org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration," +
+                "org.springframework.boot.hibernate.autoconfigure.HibernateJpaAutoConfiguration," +
+                "org.springframework.boot.data.jpa.autoconfigure.DataJpaRepositoriesAutoConfiguration",
+                "--R2DBC_URL=" + r2dbcUrl,
+                "--R2DBC_USERNAME=" + postgres.getUsername(),
+                "--R2DBC_PASSWORD=" + postgres.getPassword(),
+                "--spring.r2dbc.pool.max-size=50",
+                "--KAFKA_BOOTSTRAP_SERVERS=" + kafka.getBrokersAsString(),
+                "--spring.kafka.consumer.auto-offset-reset=earliest",
+                "--KC_ISSUER_URI=http://localhost/realms/load-test",
+                "--KC_CLIENT_ID=" + LoadTestSecurity.TOKEN,
+                "--KC_CLIENT_SECRET=" + LoadTestSecurity.TOKEN);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean run(LoadTestSettings settings, ConfigurableApplicationContext context)
+            throws InterruptedException {
+        Environment environment = context.getEnvironment();
+        String baseUrl = "http://localhost:" + environment.getRequiredProperty("local.server.port") +
+                         environment.getProperty("spring.webflux.base-path", "");
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                                                           .maxConnections(settings.maxInFlight())
+                                                           .pendingAcquireMaxCount(-1)
+                                                           .build();
+        WebClient webClient = WebClient.builder()
+                                       .baseUrl(baseUrl)
+                                       .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                                       .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + LoadTestSecurity.TOKEN)
+                                       .build();
+        try {
+            String[] productIds = IntStream.range(0, settings.products())
+                                           .mapToObj(i -> "load-test-" + i)
+                                           .toArray(String[]::new);
+            InventoryDto.StockUpdateRequest stock = InventoryDto.StockUpdateRequest.builder()
+                                                                                   .quantity(settings.initialStock())
+                                                                                   .build();
+            Flux.fromArray(productIds)
+                .flatMap(productId -> webClient.post()
+                                               .uri("/{productId}/add", productId)
+                                               .bodyValue(stock)
+                                               .retrieve()
+                                               .toBodilessEntity(), 16)
+                .blockLast();
+
+            LoadGenerator generator = new LoadGenerator(settings, webClient, context.getBean(KafkaTemplate.class),
+                                                        context.getBean(EventCodecs.class), productIds);
+            System.out.printf("Load: %d ops/s over %d products, %s warmup, %s measured, mix %s%n", settings.rate(),
+                              settings.products(), settings.warmup(), settings.duration(), settings.mix());
+            generator.run();
+            generator.report(System.out);
+
+            List<String> problems = awaitConsistent(generator, context.getBean(InventoryRepository.class),
+                                                    settings.drainTimeout());
+            if (problems.isEmpty()) {
+                System.out.printf("Stock consistent for all %d products, nothing oversold%n", productIds.length);
+                return true;
+            }
+            System.out.printf("Stock inconsistent for %d products%s:%n", problems.size(),
+                              generator.errors() > 0 ? " (operations failed, see errors above)" : "");
+            problems.stream().limit(20).forEach(problem -> System.out.println("  " + problem));
+            return false;
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    /**
+     * Reads the stock from the database until it matches the ledger, giving the order events time to be applied.
+     */
+    private static List<String> awaitConsistent(LoadGenerator generator, InventoryRepository inventoryRepository,
+                                                Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            Map<String, Inventory> rows = inventoryRepository.findAll().collectMap(Inventory::getProductId).block();
+            List<String> problems = generator.verify(rows);
+            if (problems.isEmpty() || System.nanoTime() >= deadline) {
+                return problems;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.sogeor.service.inventory.load;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Replaces Keycloak: every bearer token is accepted as a JWT whose subject is the token itself, and the client
+ * registration is never discovered.
+ */
+@Configuration(proxyBeanMethods = false)
+class LoadTestSecurity {
+
+    static final String TOKEN = "load-test";
+
+    @Bean
+    ReactiveJwtDecoder jwtDecoder() {
+        return token -> Mono.fromSupplier(() -> Jwt.withTokenValue(token)
+                                                   .header("alg", "none")
+                                                   .subject(token)
+                                                   .issuedAt(Instant.now())
+                                                   .expiresAt(Instant.now().plus(Duration.ofHours(1)))
+                                                   .build());
+    }
+
+    @Bean
+    ReactiveClientRegistrationRepository clientRegistrationRepository() {
+        return new InMemoryReactiveClientRegistrationRepository(
+                ClientRegistration.withRegistrationId("keycloak")
+                                  .clientId(TOKEN)
+                                  .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                                  .tokenUri("http://localhost/token")
+                                  .build());
+    }
+
+}
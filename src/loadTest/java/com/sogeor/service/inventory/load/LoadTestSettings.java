@@ -0,0 +1,79 @@
+package com.sogeor.service.inventory.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadTest.*} system properties; {@code ./gradlew loadTest -PloadTest.rate=500}
+ * passes them through.
+ *
+ * @param rate         operations started per second, whatever the latency of earlier ones
+ * @param warmup       time the load runs before it is measured
+ * @param duration     time the load is measured
+ * @param products     number of products the load is spread over
+ * @param initialStock stock of every product before the load starts
+ * @param maxQuantity  largest quantity reserved at once, each reservation picks one from 1 up to this
+ * @param maxInFlight  operations outstanding at once before the generator waits, which then shows up as latency
+ * @param drainTimeout time to wait for order events to be applied before stock is checked
+ * @param mix          relative weights of the operations, as {@code read:70,reserve:20,paid:7,cancelled:3}
+ */
+record LoadTestSettings(int rate, Duration warmup, Duration duration, int products, int initialStock,
+                        int maxQuantity, int maxInFlight, Duration drainTimeout, Map<Operation, Integer> mix) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(Integer.parseInt(property("rate", "200")),
+                                    Duration.parse(property("warmup", "PT10S")),
+                                    Duration.parse(property("duration", "PT60S")),
+                                    Integer.parseInt(property("products", "100")),
+                                    Integer.parseInt(property("initialStock", "500")),
+                                    Integer.parseInt(property("maxQuantity", "3")),
+                                    Integer.parseInt(property("maxInFlight", "1024")),
+                                    Duration.parse(property("drainTimeout", "PT60S")),
+                                    parseMix(property("mix", "read:70,reserve:20,paid:7,cancelled:3")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadTest." + name, defaultValue);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Mix has no operations: " + mix);
+        }
+        return weights;
+    }
+
+    enum Operation {
+
+        /**
+         * {@code GET /{productId}}.
+         */
+        READ,
+
+        /**
+         * {@code PUT /{productId}/reserve}.
+         */
+        RESERVE,
+
+        /**
+         * {@code ORDER_PAID} for an earlier reservation, which deducts the reserved stock.
+         */
+        PAID,
+
+        /**
+         * {@code ORDER_CANCELLED} for an earlier paid order, which returns its stock.
+         */
+        CANCELLED
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.sogeor.service.inventory.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of one operation. Latency is measured from the time the operation was scheduled to start
+ * rather than from when it was sent, so time spent queued behind slow operations is not omitted.
+ */
+final class OperationStats {
+
+    private final LoadTestSettings.Operation operation;
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+    OperationStats(LoadTestSettings.Operation operation) {
+        this.operation = operation;
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    void record(Outcome outcome, long scheduledAt) {
+        outcomes.get(outcome).increment();
+        if (outcome != Outcome.SKIPPED) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt);
+            latencies.recordValue(Math.min(Math.max(micros, 0), latencies.getHighestTrackableValue()));
+        }
+    }
+
+    static void printHeader(PrintStream out) {
+        out.printf("%-10s %9s %9s %8s %8s %8s %8s %9s %9s %9s %9s %9s%n", "operation", "count", "ops/s", "ok",
+                   "409", "429", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    void print(PrintStream out, Duration measured) {
+        long completed = latencies.getTotalCount();
+        long errors = outcomes.get(Outcome.ERROR).sum();
+        out.printf("%-10s %9d %9.1f %8d %8d %8d %8s %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                   operation.name().toLowerCase(), completed, completed * 1000.0 / measured.toMillis(),
+                   outcomes.get(Outcome.OK).sum(), outcomes.get(Outcome.INSUFFICIENT).sum(),
+                   outcomes.get(Outcome.REJECTED).sum(),
+                   completed == 0 ? "0" : String.format("%.2f%%", errors * 100.0 / completed),
+                   millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                   millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                   millis(latencies.getMaxValue()));
+        long skipped = outcomes.get(Outcome.SKIPPED).sum();
+        if (skipped > 0) {
+            out.printf("%-10s %9d skipped, no earlier order to apply it to%n", "", skipped);
+        }
+    }
+
+    long errors() {
+        return outcomes.get(Outcome.ERROR).sum();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    enum Outcome {
+
+        OK,
+
+        /**
+         * Rejected with {@code 409 Conflict} for insufficient stock, which is expected once stock runs low.
+         */
+        INSUFFICIENT,
+
+        /**
+         * Shed by admission control with {@code 429 Too Many Requests}.
+         */
+        REJECTED,
+
+        ERROR,
+
+        /**
+         * Not started, because there was no earlier order to pay or cancel.
+         */
+        SKIPPED
+
+    }
+
+}
@@ -5,12 +5,16 @@ import io.swagger.v3.oas.annotations.servers.Server;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @since 1.0.0-RC1
  */
 @OpenAPIDefinition(servers = @Server(url = "https://api.sogeor.com/v1/inventory"))
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class InventoryServiceApplication {
 
     /**
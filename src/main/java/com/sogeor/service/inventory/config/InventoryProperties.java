@@ -0,0 +1,498 @@
+package com.sogeor.service.inventory.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "inventory")
+public class InventoryProperties {
+
+    private Events events = new Events();
+
+    private OrderEvents orderEvents = new OrderEvents();
+
+    private FlashSale flashSale = new FlashSale();
+
+    private Cache cache = new Cache();
+
+    private Lookup lookup = new Lookup();
+
+    private Outbox outbox = new Outbox();
+
+    private Coalescing coalescing = new Coalescing();
+
+    private LowStock lowStock = new LowStock();
+
+    private Holds holds = new Holds();
+
+    private Ledger ledger = new Ledger();
+
+    private Ownership ownership = new Ownership();
+
+    private Imports imports = new Imports();
+
+    private Catalog catalog = new Catalog();
+
+    private Admission admission = new Admission();
+
+    private HotKeys hotKeys = new HotKeys();
+
+    private Feed feed = new Feed();
+
+    private Locations locations = new Locations();
+
+    private Replicas replicas = new Replicas();
+
+    @Data
+    public static class Events {
+
+        /**
+         * Content type of published events, {@code application/json} or {@code application/x-inventory-event}.
+         * Consumed events are decoded according to their {@code contentType} header, so replicas can switch one by one.
+         */
+        private String contentType = "application/json";
+
+    }
+
+    @Data
+    public static class OrderEvents {
+
+        /**
+         * Maximum number of order events claimed, or products adjusted, by one statement. A poll is applied in one
+         * transaction whatever its size.
+         */
+        private int statementSize = 200;
+
+        /**
+         * Maximum time to wait for a batch to be written before it is redelivered.
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * Number of recently processed order events remembered in memory, so redeliveries are dropped without a query.
+         */
+        private long dedupCacheSize = 100_000;
+
+        /**
+         * Time processed order events are remembered in the database. Redeliveries older than this are applied again,
+         * so it must exceed the retention of the {@code order-events} topic.
+         */
+        private Duration dedupRetention = Duration.ofDays(8);
+
+        private Duration dedupCleanupInterval = Duration.ofHours(1);
+
+        private int dedupCleanupBatchSize = 10_000;
+
+    }
+
+    @Data
+    public static class FlashSale {
+
+        /**
+         * Identifier under which this replica leases stock of flash-sale products.
+         */
+        private String ownerId;
+
+        /**
+         * Number of units leased from the database at once.
+         */
+        private int leaseSize = 100;
+
+        /**
+         * Number of in-memory shards per product, defaults to the number of processors.
+         */
+        private int shards;
+
+        /**
+         * Interval at which held stock is recorded in the database and surplus stock is returned to it.
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * Time after which leases not touched by their owner are reclaimed and their units returned to the available
+         * stock. Owners stop serving from their shards after half of it, so it must be well above the flush interval.
+         */
+        private Duration leaseTimeout = Duration.ofSeconds(30);
+
+        private int maxConcurrency = 8;
+
+        private Duration timeout = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        private long maximumSize = 100_000;
+
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        /**
+         * Consumer group used to receive changes made by other replicas, must be unique per replica. Derived from the
+         * host name by default, so a restarted replica rejoins its group instead of leaving an abandoned one behind.
+         */
+        private String groupId;
+
+    }
+
+    @Data
+    public static class Lookup {
+
+        /**
+         * Time to collect lookups of different products into one query, zero disables batching.
+         */
+        private Duration batchWindow = Duration.ZERO;
+
+        private int maxBatchSize = 100;
+
+        private int maxConcurrency = 4;
+
+        /**
+         * Maximum number of products in one bulk lookup.
+         */
+        private int maxProducts = 1000;
+
+        /**
+         * Number of products read by one query of a bulk lookup; larger lookups are streamed chunk by chunk.
+         */
+        private int chunkSize = 500;
+
+    }
+
+    @Data
+    public static class Outbox {
+
+        /**
+         * Maximum number of messages published and deleted in one transaction.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Delay between polls once the outbox has been drained.
+         */
+        private Duration pollInterval = Duration.ofMillis(200);
+
+        private Duration timeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Coalescing {
+
+        private boolean enabled;
+
+        /**
+         * Maximum time an inventory update event waits for a newer snapshot of the same product.
+         */
+        private Duration window = Duration.ofMillis(100);
+
+        /**
+         * Number of products with a pending event that triggers a flush before the window elapses.
+         */
+        private int maxPendingKeys = 10_000;
+
+    }
+
+    @Data
+    public static class LowStock {
+
+        /**
+         * Interval at which thresholds changed through other replicas are picked up.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        private Duration timeout = Duration.ofSeconds(10);
+
+        private int pageSize = 100;
+
+        private int maxPageSize = 1000;
+
+        /**
+         * Number of rows fetched per query while streaming the whole result.
+         */
+        private int streamPageSize = 500;
+
+    }
+
+    @Data
+    public static class Holds {
+
+        private Duration defaultTtl = Duration.ofMinutes(15);
+
+        private Duration maxTtl = Duration.ofDays(1);
+
+        /**
+         * Resolution of the expiry wheel; expired holds are released at most this late.
+         */
+        private Duration tick = Duration.ofSeconds(1);
+
+        /**
+         * Number of wheel slots. Deadlines further away than {@code tick * wheelSize} share slots with nearer ones.
+         */
+        private int wheelSize = 4096;
+
+        /**
+         * Interval at which the earliest expiry in the database is picked up.
+         */
+        private Duration probeInterval = Duration.ofSeconds(10);
+
+        private int batchSize = 1000;
+
+        private Duration timeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Ledger {
+
+        /**
+         * Records additions as append-only movements folded into the snapshot in the background, and keeps every
+         * stock state as history for point-in-time queries.
+         */
+        private boolean enabled;
+
+        private Duration compactionInterval = Duration.ofMillis(200);
+
+        private int compactionBatchSize = 5000;
+
+        /**
+         * Time folded movements and history are kept. Points in time older than this cannot be reconstructed.
+         */
+        private Duration retention = Duration.ofDays(30);
+
+        private Duration cleanupInterval = Duration.ofHours(1);
+
+        private int cleanupBatchSize = 10_000;
+
+        private Duration timeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Ownership {
+
+        /**
+         * Routes single-product stock commands through Kafka to the replica owning the product's partition, which
+         * applies them in memory and writes them to the database behind.
+         */
+        private boolean enabled;
+
+        private String topic = "inventory-commands";
+
+        private int partitions = 12;
+
+        /**
+         * Topic shared by all replicas for replies to commands.
+         */
+        private String replyTopic = "inventory-command-replies";
+
+        /**
+         * Consumer group of the replicas owning partitions of the command topic.
+         */
+        private String groupId;
+
+        /**
+         * Consumer group used to receive replies, must be unique per replica. Derived from the host name by default,
+         * like the cache group.
+         */
+        private String replyGroupId;
+
+        /**
+         * Interval at which in-memory changes are written to the database along with the consumed offset.
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        private Duration requestTimeout = Duration.ofSeconds(5);
+
+        private Duration timeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Imports {
+
+        /**
+         * Number of rows applied by one statement, which is also the granularity of the resume checkpoint.
+         */
+        private int batchSize = 5000;
+
+    }
+
+
+    @Data
+    public static class Catalog {
+
+        /**
+         * Number of product IDs known to have an inventory row remembered in memory, so their updates need no query.
+         */
+        private long knownProductsSize = 100_000;
+
+        /**
+         * Maximum time to wait for a batch of product updates to be written before it is redelivered.
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+    }
+
+
+    @Data
+    public static class Admission {
+
+        private boolean enabled = true;
+
+        /**
+         * Number of stock changes executed concurrently before the limit has adapted to the observed latency.
+         */
+        private int initialLimit = 20;
+
+        private int minLimit = 2;
+
+        private int maxLimit = 200;
+
+        /**
+         * Share of the concurrency limit a single product may take, at least one change.
+         */
+        private double productShare = 0.25;
+
+        /**
+         * Maximum number of changes waiting for a single product.
+         */
+        private int productQueueSize = 16;
+
+        /**
+         * Maximum number of changes waiting for all products together.
+         */
+        private int queueSize = 256;
+
+        /**
+         * Maximum time a change waits for admission before it is rejected.
+         */
+        private Duration maxWait = Duration.ofMillis(500);
+
+        /**
+         * Ratio of recent to long-term latency at which the limit stops growing and starts shrinking.
+         */
+        private double tolerance = 1.5;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+    }
+
+    @Data
+    public static class HotKeys {
+
+        private boolean enabled = false;
+
+        /**
+         * Number of products tracked at once; products accessed less often than one in this many may be missed.
+         */
+        private int capacity = 256;
+
+        /**
+         * Number of products reported by the {@code hotkeys} actuator endpoint.
+         */
+        private int top = 20;
+
+        /**
+         * Share of accesses counted.
+         */
+        private double sampleRate = 0.1;
+
+        /**
+         * Interval at which counts are halved, so the ranking follows current traffic.
+         */
+        private Duration decayInterval = Duration.ofMinutes(1);
+
+    }
+
+    @Data
+    public static class Feed {
+
+        /**
+         * Interval of comments sent on idle change streams, so proxies and clients keep the connection open.
+         */
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        private int maxProducts = 100;
+
+    }
+
+
+    @Data
+    public static class Locations {
+
+        /**
+         * Keeps stock per location and reserves it from the locations chosen by the allocation strategy. Cannot be
+         * combined with ledger or ownership mode.
+         */
+        private boolean enabled;
+
+        /**
+         * Location holding all stock that is not assigned to another location, such as stock added before locations
+         * were enabled, by imports or by cancelled orders.
+         */
+        private String defaultLocation = "default";
+
+        /**
+         * Allocation strategy choosing the locations stock is reserved from: {@code nearest}, {@code most-stock} or
+         * {@code split}.
+         */
+        private String strategy = "nearest";
+
+        /**
+         * Locations from nearest to farthest. Locations not listed come after them.
+         */
+        private List<String> preferred = List.of();
+
+        /**
+         * Attempts at a change whose locations were changed concurrently between planning and applying it.
+         */
+        private int maxAttempts = 3;
+
+    }
+
+
+    @Data
+    public static class Replicas {
+
+        /**
+         * R2DBC URLs of read replicas, without the {@code pool} driver. Reads that tolerate replication lag are spread
+         * over them; without any, everything goes to the primary.
+         */
+        private List<String> urls = List.of();
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Connections each replica pool opens on startup.
+         */
+        private int initialSize = 5;
+
+        /**
+         * Maximum connections of each replica pool.
+         */
+        private int maxSize = 20;
+
+        private Duration maxIdleTime = Duration.ofMinutes(30);
+
+        /**
+         * Time after a change of a product during which it is still read from the primary. Should exceed the usual
+         * replication lag.
+         */
+        private Duration readYourWrites = Duration.ofSeconds(5);
+
+        /**
+         * Number of recently changed products remembered. Beyond it, the oldest may be read from a replica early.
+         */
+        private long maxRecentWrites = 100_000;
+
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.sogeor.service.inventory.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+@Configuration
+public class KafkaConfig {
+
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchListenerContainerFactory";
+
+    @Bean(BATCH_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<@NotNull String, @NotNull String> batchListenerContainerFactory(
+            ConsumerFactory<@NotNull String, @NotNull String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<@NotNull String, @NotNull String> factory
+                = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnBooleanProperty("inventory.ownership.enabled")
+    public KafkaAdmin.NewTopics ownershipTopics(InventoryProperties properties) {
+        InventoryProperties.Ownership ownership = properties.getOwnership();
+        return new KafkaAdmin.NewTopics(
+                TopicBuilder.name(ownership.getTopic()).partitions(ownership.getPartitions()).build(),
+                TopicBuilder.name(ownership.getReplyTopic()).partitions(ownership.getPartitions()).build());
+    }
+
+}
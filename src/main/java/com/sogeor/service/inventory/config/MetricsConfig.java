@@ -0,0 +1,36 @@
+package com.sogeor.service.inventory.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Times how long obtaining a connection takes as {@code inventory.r2dbc.acquire}, which is mostly waiting for the
+     * pool once it is exhausted. The pool itself stays reachable through {@link Wrapped}, so its gauges are still
+     * published. Replica routing times each of its pools itself.
+     */
+    @Bean
+    public static BeanPostProcessor connectionFactoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public @NotNull Object postProcessAfterInitialization(@NotNull Object bean, @NotNull String beanName) {
+                if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof TimedConnectionFactory) &&
+                    !(bean instanceof ReplicaRoutingConnectionFactory)) {
+                    return new TimedConnectionFactory(connectionFactory, beanName, meterRegistry.getObject());
+                }
+                return bean;
+            }
+
+        };
+    }
+
+}
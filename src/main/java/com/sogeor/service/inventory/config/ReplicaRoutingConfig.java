@@ -0,0 +1,95 @@
+package com.sogeor.service.inventory.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class ReplicaRoutingConfig {
+
+    /**
+     * Puts the primary connection factory behind a router once replicas are configured. Each replica gets its own pool,
+     * sized by {@code inventory.replicas.*}, with its own {@code inventory.r2dbc.acquire} timer and
+     * {@code r2dbc.pool.*} gauges tagged with the replica name.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRouting(ObjectProvider<InventoryProperties> properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public @NotNull Object postProcessAfterInitialization(@NotNull Object bean, @NotNull String beanName) {
+                if (!(bean instanceof ConnectionFactory connectionFactory) ||
+                    bean instanceof ReplicaRoutingConnectionFactory) {
+                    return bean;
+                }
+                InventoryProperties.Replicas settings = properties.getObject().getReplicas();
+                if (settings.getUrls().isEmpty()) {
+                    return bean;
+                }
+                MeterRegistry registry = meterRegistry.getObject();
+                List<ConnectionFactory> replicas = new ArrayList<>();
+                for (int i = 0; i < settings.getUrls().size(); i++) {
+                    replicas.add(replicaPool(ReplicaRoutingConnectionFactory.replicaName(i), settings.getUrls().get(i),
+                                             settings, registry));
+                }
+                ConnectionFactory primary = connectionFactory instanceof TimedConnectionFactory
+                                            ? connectionFactory
+                                            : new TimedConnectionFactory(connectionFactory, beanName, registry);
+                return new ReplicaRoutingConnectionFactory(primary, replicas);
+            }
+
+        };
+    }
+
+    private static ConnectionFactory replicaPool(String name, String url, InventoryProperties.Replicas settings,
+                                                 MeterRegistry meterRegistry) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (settings.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, settings.getUsername());
+        }
+        if (settings.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, settings.getPassword());
+        }
+        ConnectionPool pool = new ConnectionPool(
+                ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                                           .name(name)
+                                           .initialSize(settings.getInitialSize())
+                                           .maxSize(settings.getMaxSize())
+                                           .maxIdleTime(settings.getMaxIdleTime())
+                                           .build());
+        pool.getMetrics().ifPresent(metrics -> {
+            poolGauge("r2dbc.pool.acquired", "Connections in use", name, metrics, PoolMetrics::acquiredSize,
+                      meterRegistry);
+            poolGauge("r2dbc.pool.allocated", "Connections open", name, metrics, PoolMetrics::allocatedSize,
+                      meterRegistry);
+            poolGauge("r2dbc.pool.idle", "Connections open and not in use", name, metrics, PoolMetrics::idleSize,
+                      meterRegistry);
+            poolGauge("r2dbc.pool.pending", "Requests waiting for a connection", name, metrics,
+                      PoolMetrics::pendingAcquireSize, meterRegistry);
+            poolGauge("r2dbc.pool.max.allocated", "Maximum connections of the pool", name, metrics,
+                      PoolMetrics::getMaxAllocatedSize, meterRegistry);
+        });
+        return new TimedConnectionFactory(pool, name, meterRegistry);
+    }
+
+    private static void poolGauge(String gauge, String description, String name, PoolMetrics metrics,
+                                  ToDoubleFunction<PoolMetrics> value, MeterRegistry meterRegistry) {
+        Gauge.builder(gauge, metrics, value).description(description).tag("name", name).register(meterRegistry);
+    }
+
+}
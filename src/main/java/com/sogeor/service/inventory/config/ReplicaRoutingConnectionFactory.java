@@ -0,0 +1,79 @@
+package com.sogeor.service.inventory.config;
+
+import com.sogeor.service.inventory.service.ReplicaReads;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections, in turn, to queries marked by {@link ReplicaReads} and primary connections to
+ * everything else. A transaction binds its connection when it begins, so queries inside one stay on the primary
+ * whether marked or not.
+ */
+final class ReplicaRoutingConnectionFactory extends AbstractRoutingConnectionFactory
+        implements Wrapped<ConnectionFactory>, Disposable {
+
+    private static final String PRIMARY = "primary";
+
+    private final ConnectionFactory primary;
+
+    private final List<ConnectionFactory> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaRoutingConnectionFactory(ConnectionFactory primary, List<ConnectionFactory> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+        Map<String, ConnectionFactory> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(replicaName(i), replicas.get(i));
+        }
+        setTargetConnectionFactories(targets);
+        setDefaultTargetConnectionFactory(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    static String replicaName(int index) {
+        return "replica-" + index;
+    }
+
+    @Override
+    protected @NotNull Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> Mono.just(ReplicaReads.isReplicaRead(context)
+                                                         ? replicaName(Math.floorMod(next.getAndIncrement(),
+                                                                                     replicas.size()))
+                                                         : PRIMARY));
+    }
+
+    @Override
+    public @NotNull ConnectionFactory unwrap() {
+        return primary;
+    }
+
+    @Override
+    public void dispose() {
+        replicas.forEach(ReplicaRoutingConnectionFactory::dispose);
+        dispose(primary);
+    }
+
+    private static void dispose(ConnectionFactory connectionFactory) {
+        Object target = connectionFactory;
+        while (!(target instanceof Disposable) && target instanceof Wrapped<?> wrapped) {
+            target = wrapped.unwrap();
+        }
+        if (target instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.sogeor.service.inventory.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times how long obtaining a connection from one pool takes as {@code inventory.r2dbc.acquire}, tagged with the pool.
+ */
+final class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory> {
+
+    private final ConnectionFactory delegate;
+
+    private final Timer acquired;
+
+    private final Timer failed;
+
+    TimedConnectionFactory(ConnectionFactory delegate, String pool, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.acquired = acquireTimer(pool, "success", meterRegistry);
+        this.failed = acquireTimer(pool, "failure", meterRegistry);
+    }
+
+    @Override
+    public @NotNull Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.from(delegate.create())
+                       .doOnSuccess(connection -> acquired.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                       .doOnError(e -> failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @Override
+    public @NotNull ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public @NotNull ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    private static Timer acquireTimer(String pool, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("inventory.r2dbc.acquire")
+                    .description("Time to obtain a database connection, including waiting for the pool")
+                    .tag("pool", pool)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+}
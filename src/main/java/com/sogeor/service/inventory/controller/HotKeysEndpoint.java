@@ -0,0 +1,29 @@
+package com.sogeor.service.inventory.controller;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.service.HotKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports the most accessed products on the management port while {@code inventory.hot-keys.enabled} is set.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeysEndpoint {
+
+    private final HotKeys hotKeys;
+
+    private final InventoryProperties properties;
+
+    @ReadOperation
+    public List<HotKeys.HotKey> hotKeys() {
+        return hotKeys.top(properties.getHotKeys().getTop());
+    }
+
+}
@@ -1,26 +1,62 @@
 package com.sogeor.service.inventory.controller;
 
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.HoldMutation;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.LowStockPage;
+import com.sogeor.service.inventory.domain.LowStockThreshold;
+import com.sogeor.service.inventory.domain.StockAvailability;
+import com.sogeor.service.inventory.domain.StockChange;
+import com.sogeor.service.inventory.domain.StockImport;
 import com.sogeor.service.inventory.dto.InventoryDto;
+import com.sogeor.service.inventory.service.AdmissionRejectedException;
+import com.sogeor.service.inventory.service.FlashSaleService;
+import com.sogeor.service.inventory.service.HoldService;
+import com.sogeor.service.inventory.service.InventoryChangeFeed;
 import com.sogeor.service.inventory.service.InventoryService;
+import com.sogeor.service.inventory.service.LowStockAlertEngine;
+import com.sogeor.service.inventory.service.StockImportService;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+
 @RestController
 @RequiredArgsConstructor
 public class InventoryController {
 
     private final InventoryService inventoryService;
 
+    private final FlashSaleService flashSaleService;
+
+    private final LowStockAlertEngine lowStockAlertEngine;
+
+    private final HoldService holdService;
+
+    private final StockImportService stockImportService;
+
+    private final InventoryChangeFeed inventoryChangeFeed;
+
     @GetMapping("/{productId}")
     public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull InventoryResponse>> getInventory(
             @PathVariable String productId) {
@@ -33,10 +69,34 @@ public class InventoryController {
                                                                                            .build()));
     }
 
+    @PostMapping(value = "/availability", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<InventoryDto.@NotNull AvailabilityResponse> getAvailability(
+            @RequestBody InventoryDto.AvailabilityRequest request) {
+        return inventoryService.getAvailability(request.getProductIds())
+                               .collectMap(StockAvailability::getProductId, StockAvailability::getAvailable,
+                                           LinkedHashMap::new)
+                               .map(available -> InventoryDto.AvailabilityResponse.builder()
+                                                                                  .available(available)
+                                                                                  .build());
+    }
+
+    @PostMapping(value = "/availability", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<InventoryDto.@NotNull AvailabilityLineResponse> streamAvailability(
+            @RequestBody InventoryDto.AvailabilityRequest request) {
+        return inventoryService.getAvailability(request.getProductIds())
+                               .map(InventoryController::toAvailabilityLineResponse);
+    }
+
+    @GetMapping("/{productId}/as-of")
+    public Mono<InventoryDto.@NotNull InventoryResponse> getInventoryAsOf(@PathVariable String productId,
+                                                                          @RequestParam Instant at) {
+        return inventoryService.getInventoryAsOf(productId, at).map(InventoryController::toResponse);
+    }
+
     @PostMapping("/{productId}/add")
     public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull InventoryResponse>> addStock(
             @PathVariable String productId, @RequestBody InventoryDto.StockUpdateRequest request) {
-        return inventoryService.addStock(productId, request.getQuantity())
+        return inventoryService.addStock(productId, request.getLocationId(), request.getQuantity())
                                .map(inv -> ResponseEntity.ok(InventoryDto.InventoryResponse.builder()
                                                                                            .productId(
                                                                                                    inv.getProductId())
@@ -45,6 +105,11 @@ public class InventoryController {
                                                                                            .build()));
     }
 
+    @GetMapping("/{productId}/locations")
+    public Flux<InventoryDto.@NotNull LocationStockResponse> getLocations(@PathVariable String productId) {
+        return inventoryService.getLocations(productId).map(InventoryController::toLocationResponse);
+    }
+
     @PutMapping("/{productId}/reserve")
     public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull InventoryResponse>> reserveStock(
             @PathVariable String productId, @RequestBody InventoryDto.StockUpdateRequest request) {
@@ -69,15 +134,231 @@ public class InventoryController {
                                                                                            .build()));
     }
 
-    @GetMapping("/low-stock")
-    public Flux<InventoryDto.@NotNull InventoryResponse> getLowStockProducts(
+    @PutMapping("/{productId}/holds/{ownerId}")
+    public Mono<InventoryDto.@NotNull HoldResponse> placeHold(@PathVariable String productId,
+                                                              @PathVariable String ownerId,
+                                                              @RequestBody InventoryDto.HoldRequest request) {
+        return holdService.placeHold(productId, ownerId, request.getQuantity(), request.getTtl())
+                          .map(InventoryController::toHoldResponse);
+    }
+
+    @DeleteMapping("/{productId}/holds/{ownerId}")
+    public Mono<InventoryDto.@NotNull InventoryResponse> releaseHold(@PathVariable String productId,
+                                                                     @PathVariable String ownerId) {
+        return holdService.releaseHold(productId, ownerId).map(InventoryController::toResponse);
+    }
+
+    @PostMapping("/{productId}/holds/{ownerId}/confirm")
+    public Mono<InventoryDto.@NotNull InventoryResponse> confirmHold(@PathVariable String productId,
+                                                                     @PathVariable String ownerId) {
+        return holdService.confirmHold(productId, ownerId).map(InventoryController::toResponse);
+    }
+
+    @PutMapping("/bulk/reserve")
+    public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull BulkStockResponse>> reserveStock(
+            @RequestBody InventoryDto.BulkStockRequest request) {
+        return inventoryService.reserveStock(request.getItems()).map(InventoryController::toBulkResponse);
+    }
+
+    @PutMapping("/bulk/release")
+    public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull BulkStockResponse>> releaseStock(
+            @RequestBody InventoryDto.BulkStockRequest request) {
+        return inventoryService.releaseStock(request.getItems()).map(InventoryController::toBulkResponse);
+    }
+
+    @PutMapping("/bulk/deduct")
+    public Mono<@NotNull ResponseEntity<InventoryDto.@NotNull BulkStockResponse>> deductStock(
+            @RequestBody InventoryDto.BulkStockRequest request) {
+        return inventoryService.deductStock(request.getItems()).map(InventoryController::toBulkResponse);
+    }
+
+    @PostMapping(value = "/imports/{importId}", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<InventoryDto.@NotNull StockImportResponse> importNdjson(@PathVariable String importId,
+                                                                        @RequestBody Flux<String> lines) {
+        return stockImportService.importNdjson(importId, lines).map(InventoryController::toImportResponse);
+    }
+
+    @PostMapping(value = "/imports/{importId}", consumes = "text/csv")
+    public Mono<InventoryDto.@NotNull StockImportResponse> importCsv(@PathVariable String importId,
+                                                                     @RequestBody Flux<String> lines) {
+        return stockImportService.importCsv(importId, lines).map(InventoryController::toImportResponse);
+    }
+
+    @GetMapping("/imports/{importId}")
+    public Mono<InventoryDto.@NotNull StockImportResponse> getImport(@PathVariable String importId) {
+        return stockImportService.getImport(importId).map(InventoryController::toImportResponse);
+    }
+
+    @PutMapping("/{productId}/flash-sale")
+    public Mono<@NotNull ResponseEntity<@NotNull Void>> enableFlashSale(@PathVariable String productId) {
+        return flashSaleService.setFlashSale(productId, true).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    @DeleteMapping("/{productId}/flash-sale")
+    public Mono<@NotNull ResponseEntity<@NotNull Void>> disableFlashSale(@PathVariable String productId) {
+        return flashSaleService.setFlashSale(productId, false).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/{productId}/low-stock-threshold")
+    public Mono<InventoryDto.@NotNull LowStockThresholdResponse> getLowStockThreshold(@PathVariable String productId) {
+        return lowStockAlertEngine.getThreshold(productId)
+                                  .map(InventoryController::toThresholdResponse)
+                                  .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                                                                        "Threshold not found")));
+    }
+
+    @PutMapping("/{productId}/low-stock-threshold")
+    public Mono<InventoryDto.@NotNull LowStockThresholdResponse> setLowStockThreshold(
+            @PathVariable String productId, @RequestBody InventoryDto.LowStockThresholdRequest request) {
+        return lowStockAlertEngine.setThreshold(productId, request.getThreshold(), request.getRearmThreshold())
+                                  .map(InventoryController::toThresholdResponse);
+    }
+
+    @DeleteMapping("/{productId}/low-stock-threshold")
+    public Mono<@NotNull ResponseEntity<@NotNull Void>> removeLowStockThreshold(@PathVariable String productId) {
+        return lowStockAlertEngine.removeThreshold(productId).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    @GetMapping(value = "/low-stock", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<InventoryDto.@NotNull LowStockPageResponse> getLowStockProducts(
+            @RequestParam(defaultValue = "10") int threshold, @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return inventoryService.getLowStockProducts(threshold, cursor, limit)
+                               .map(InventoryController::toPageResponse);
+    }
+
+    @GetMapping(value = "/low-stock", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<InventoryDto.@NotNull InventoryResponse> streamLowStockProducts(
             @RequestParam(defaultValue = "10") int threshold) {
-        return inventoryService.getLowStockProducts(threshold)
-                               .map(inv -> InventoryDto.InventoryResponse.builder()
-                                                                         .productId(inv.getProductId())
-                                                                         .quantity(inv.getQuantity())
-                                                                         .reserved(inv.getReserved())
-                                                                         .build());
+        return inventoryService.streamLowStockProducts(threshold).map(InventoryController::toResponse);
+    }
+
+    /**
+     * Streams the stock of the products as server-sent events: first as it is now, then on every change. The event ID
+     * is the version of the change; a reconnecting client sends the last one as {@code Last-Event-ID} and receives only
+     * products changed since.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<@NotNull ServerSentEvent<InventoryDto.StockChangeResponse>> watchChanges(
+            @RequestParam("productId") List<String> productIds, @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Flux<ServerSentEvent<InventoryDto.StockChangeResponse>> changes =
+                inventoryChangeFeed.watch(productIds, lastEventId != null ? lastEventId : since)
+                                   .map(change -> ServerSentEvent.builder(toChangeResponse(change))
+                                                                 .id(Long.toString(change.getVersion()))
+                                                                 .event("stock")
+                                                                 .build());
+        Flux<ServerSentEvent<InventoryDto.StockChangeResponse>> heartbeats =
+                Flux.interval(inventoryChangeFeed.heartbeat())
+                    .map(tick -> ServerSentEvent.<InventoryDto.StockChangeResponse>builder()
+                                                .comment("heartbeat")
+                                                .build());
+        return Flux.merge(changes, heartbeats);
+    }
+
+    /**
+     * Answers shed stock changes with {@code Retry-After}, which the default error handling does not copy.
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<@NotNull Object> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(e.getStatusCode()).headers(e.getHeaders()).body(e.getBody());
+    }
+
+    private static InventoryDto.InventoryResponse toResponse(Inventory inventory) {
+        return InventoryDto.InventoryResponse.builder()
+                                             .productId(inventory.getProductId())
+                                             .quantity(inventory.getQuantity())
+                                             .reserved(inventory.getReserved())
+                                             .build();
+    }
+
+    private static InventoryDto.StockChangeResponse toChangeResponse(StockChange change) {
+        return InventoryDto.StockChangeResponse.builder()
+                                               .productId(change.getProductId())
+                                               .quantity(change.getQuantity())
+                                               .reserved(change.getReserved())
+                                               .available(change.getQuantity() - change.getReserved())
+                                               .version(change.getVersion())
+                                               .build();
+    }
+
+    private static InventoryDto.LocationStockResponse toLocationResponse(LocationStock location) {
+        return InventoryDto.LocationStockResponse.builder()
+                                                 .locationId(location.getLocationId())
+                                                 .quantity(location.getQuantity())
+                                                 .reserved(location.getReserved())
+                                                 .available(location.available())
+                                                 .build();
+    }
+
+    private static InventoryDto.AvailabilityLineResponse toAvailabilityLineResponse(StockAvailability availability) {
+        return InventoryDto.AvailabilityLineResponse.builder()
+                                                    .productId(availability.getProductId())
+                                                    .available(availability.getAvailable())
+                                                    .build();
+    }
+
+    private static InventoryDto.HoldResponse toHoldResponse(HoldMutation mutation) {
+        return InventoryDto.HoldResponse.builder()
+                                        .productId(mutation.getProductId())
+                                        .ownerId(mutation.getOwnerId())
+                                        .held(mutation.getHeld())
+                                        .expiresAt(mutation.getExpiresAt())
+                                        .quantity(mutation.getQuantity())
+                                        .reserved(mutation.getReserved())
+                                        .build();
+    }
+
+    private static InventoryDto.LowStockPageResponse toPageResponse(LowStockPage page) {
+        return InventoryDto.LowStockPageResponse.builder()
+                                                .items(page.getItems()
+                                                           .stream()
+                                                           .map(InventoryController::toResponse)
+                                                           .toList())
+                                                .nextCursor(page.getNext() == null ? null : page.getNext().encode())
+                                                .build();
+    }
+
+    private static ResponseEntity<InventoryDto.@NotNull BulkStockResponse> toBulkResponse(List<BulkStockLine> lines) {
+        boolean applied = lines.stream().allMatch(BulkStockLine::isApplied);
+        return ResponseEntity.status(applied ? HttpStatus.OK : HttpStatus.CONFLICT)
+                             .body(InventoryDto.BulkStockResponse.builder()
+                                                                 .applied(applied)
+                                                                 .lines(lines.stream()
+                                                                             .map(InventoryController::toLineResponse)
+                                                                             .toList())
+                                                                 .build());
+    }
+
+    private static InventoryDto.BulkStockLineResponse toLineResponse(BulkStockLine line) {
+        return InventoryDto.BulkStockLineResponse.builder()
+                                                 .productId(line.getProductId())
+                                                 .requested(line.getRequested())
+                                                 .quantity(line.getQuantity())
+                                                 .reserved(line.getReserved())
+                                                 .status(line.getStatus())
+                                                 .build();
+    }
+
+    private static InventoryDto.StockImportResponse toImportResponse(StockImport stockImport) {
+        return InventoryDto.StockImportResponse.builder()
+                                               .importId(stockImport.getImportId())
+                                               .status(stockImport.getStatus())
+                                               .processedRows(stockImport.getProcessedRows())
+                                               .rejectedRows(stockImport.getRejectedRows())
+                                               .startedAt(stockImport.getStartedAt())
+                                               .updatedAt(stockImport.getUpdatedAt())
+                                               .completedAt(stockImport.getCompletedAt())
+                                               .build();
+    }
+
+    private static InventoryDto.LowStockThresholdResponse toThresholdResponse(LowStockThreshold threshold) {
+        return InventoryDto.LowStockThresholdResponse.builder()
+                                                     .productId(threshold.getProductId())
+                                                     .threshold(threshold.getThreshold())
+                                                     .rearmThreshold(threshold.getRearmThreshold())
+                                                     .alerted(threshold.getAlerted())
+                                                     .build();
     }
 
 }
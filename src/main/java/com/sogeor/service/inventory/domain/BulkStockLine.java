@@ -0,0 +1,42 @@
+package com.sogeor.service.inventory.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStockLine {
+
+    public static final String APPLIED = "APPLIED";
+
+    public static final String NOT_APPLIED = "NOT_APPLIED";
+
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    public static final String INSUFFICIENT = "INSUFFICIENT";
+
+    private String productId;
+
+    private Integer requested;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private String status;
+
+    @JsonIgnore
+    public boolean isApplied() {
+        return APPLIED.equals(status);
+    }
+
+    public Inventory toInventory() {
+        return Inventory.builder().productId(productId).quantity(quantity).reserved(reserved).build();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Outcome of placing a hold: the inventory row after the statement, the hold as stored and whether the hold was
+ * placed. When it was not, the hold fields are {@code null}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldMutation {
+
+    private Integer id;
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private String ownerId;
+
+    private Integer held;
+
+    private Instant expiresAt;
+
+    private Boolean applied;
+
+    public boolean isApplied() {
+        return Boolean.TRUE.equals(applied);
+    }
+
+    public Inventory toInventory() {
+        return Inventory.builder()
+                        .id(id)
+                        .productId(productId)
+                        .quantity(quantity)
+                        .reserved(reserved)
+                        .createdAt(createdAt)
+                        .updatedAt(updatedAt)
+                        .build();
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock of a product held at one location.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationStock {
+
+    private String productId;
+
+    private String locationId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    public int available() {
+        return Math.max(quantity - reserved, 0);
+    }
+
+}
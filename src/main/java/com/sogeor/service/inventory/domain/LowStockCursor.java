@@ -0,0 +1,44 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the low-stock listing, which is ordered by available stock and product identifier.
+ */
+@Data
+@AllArgsConstructor
+public class LowStockCursor {
+
+    public static final LowStockCursor START = new LowStockCursor(Integer.MIN_VALUE, "");
+
+    private int available;
+
+    private String productId;
+
+    public static LowStockCursor after(Inventory inventory) {
+        return new LowStockCursor(inventory.getQuantity() - inventory.getReserved(), inventory.getProductId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}.
+     */
+    public static LowStockCursor decode(String token) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new LowStockCursor(Integer.parseInt(value.substring(0, separator)), value.substring(separator + 1));
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString((available + ":" + productId).getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockPage {
+
+    private List<Inventory> items;
+
+    /**
+     * Position to continue from, or {@code null} on the last page.
+     */
+    private LowStockCursor next;
+
+}
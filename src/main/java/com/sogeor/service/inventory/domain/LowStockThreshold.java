@@ -0,0 +1,30 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("inventory_threshold")
+public class LowStockThreshold {
+
+    @Id
+    private String productId;
+
+    private Integer threshold;
+
+    private Integer rearmThreshold;
+
+    private Boolean alerted;
+
+    private Instant updatedAt;
+
+}
@@ -0,0 +1,21 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Identity of an order event for deduplication: an order changes stock at most once per event type.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventKey {
+
+    private String orderId;
+
+    private String eventType;
+
+}
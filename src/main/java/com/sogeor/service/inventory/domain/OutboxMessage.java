@@ -0,0 +1,34 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("inventory_outbox")
+public class OutboxMessage {
+
+    @Id
+    private Long id;
+
+    private String eventType;
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private Integer threshold;
+
+    private Instant createdAt;
+
+}
@@ -0,0 +1,32 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Offset of the command topic partition up to which commands are reflected in the database, and the epoch of its
+ * current owner.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ownership_checkpoint")
+public class OwnershipCheckpoint {
+
+    @Id
+    private Integer partitionId;
+
+    private Long nextOffset;
+
+    private Long epoch;
+
+    private Instant updatedAt;
+
+}
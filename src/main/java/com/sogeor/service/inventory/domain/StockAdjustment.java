@@ -0,0 +1,32 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustment {
+
+    private String productId;
+
+    private int quantityDelta;
+
+    /**
+     * Units released from reserved stock, as far as they are reserved.
+     */
+    private int reservedDelta;
+
+    public void deduct(int quantity) {
+        quantityDelta -= quantity;
+        reservedDelta += quantity;
+    }
+
+    public void add(int quantity) {
+        quantityDelta += quantity;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Available stock of a product in a bulk lookup, {@code null} if the product does not exist.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAvailability {
+
+    private String productId;
+
+    private Integer available;
+
+}
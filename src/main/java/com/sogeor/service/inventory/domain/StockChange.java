@@ -0,0 +1,34 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Stock of a product after a change, pushed to watchers of the product. The version is the time of the change in
+ * microseconds since the epoch, which grows with every change of one product and lets a watcher of many products
+ * resume from a single version.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChange {
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private long version;
+
+    public static long version(Instant changedAt) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, changedAt);
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Progress of a bulk stock import. Rows up to {@code processedRows} have been applied, so an interrupted import
+ * resumes after them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("stock_import")
+public class StockImport {
+
+    public static final String RUNNING = "RUNNING";
+
+    public static final String INTERRUPTED = "INTERRUPTED";
+
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String importId;
+
+    private String status;
+
+    private Long processedRows;
+
+    private Long rejectedRows;
+
+    private Instant startedAt;
+
+    private Instant updatedAt;
+
+    private Instant completedAt;
+
+}
@@ -0,0 +1,22 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLease {
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private Integer granted;
+
+}
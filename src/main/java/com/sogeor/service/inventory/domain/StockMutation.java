@@ -0,0 +1,45 @@
+package com.sogeor.service.inventory.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMutation {
+
+    private Integer id;
+
+    private String productId;
+
+    private Integer quantity;
+
+    private Integer reserved;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Boolean applied;
+
+    public boolean isApplied() {
+        return Boolean.TRUE.equals(applied);
+    }
+
+    public Inventory toInventory() {
+        return Inventory.builder()
+                        .id(id)
+                        .productId(productId)
+                        .quantity(quantity)
+                        .reserved(reserved)
+                        .createdAt(createdAt)
+                        .updatedAt(updatedAt)
+                        .build();
+    }
+
+}
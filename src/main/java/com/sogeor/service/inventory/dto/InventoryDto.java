@@ -5,6 +5,11 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 public class InventoryDto {
 
     @Data
@@ -21,6 +26,87 @@ public class InventoryDto {
 
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LowStockPageResponse {
+
+        private List<InventoryResponse> items;
+
+        private String nextCursor;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AvailabilityRequest {
+
+        private List<String> productIds;
+
+    }
+
+    /**
+     * Available stock by product ID, {@code null} for products that do not exist.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AvailabilityResponse {
+
+        private Map<String, Integer> available;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AvailabilityLineResponse {
+
+        private String productId;
+
+        private Integer available;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockChangeResponse {
+
+        private String productId;
+
+        private Integer quantity;
+
+        private Integer reserved;
+
+        private Integer available;
+
+        private Long version;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LocationStockResponse {
+
+        private String locationId;
+
+        private Integer quantity;
+
+        private Integer reserved;
+
+        private Integer available;
+
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -29,6 +115,134 @@ public class InventoryDto {
 
         private Integer quantity;
 
+        /**
+         * Location stock is added at, the default location if absent. Ignored by other changes.
+         */
+        private String locationId;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkStockRequest {
+
+        private List<InventoryEvents.OrderItem> items;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkStockResponse {
+
+        private boolean applied;
+
+        private List<BulkStockLineResponse> lines;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BulkStockLineResponse {
+
+        private String productId;
+
+        private Integer requested;
+
+        private Integer quantity;
+
+        private Integer reserved;
+
+        private String status;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LowStockThresholdRequest {
+
+        private Integer threshold;
+
+        private Integer rearmThreshold;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LowStockThresholdResponse {
+
+        private String productId;
+
+        private Integer threshold;
+
+        private Integer rearmThreshold;
+
+        private Boolean alerted;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HoldRequest {
+
+        private Integer quantity;
+
+        private Duration ttl;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HoldResponse {
+
+        private String productId;
+
+        private String ownerId;
+
+        private Integer held;
+
+        private Instant expiresAt;
+
+        private Integer quantity;
+
+        private Integer reserved;
+
+    }
+
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockImportResponse {
+
+        private String importId;
+
+        private String status;
+
+        private Long processedRows;
+
+        private Long rejectedRows;
+
+        private Instant startedAt;
+
+        private Instant updatedAt;
+
+        private Instant completedAt;
+
     }
 
 }
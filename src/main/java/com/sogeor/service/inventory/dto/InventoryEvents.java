@@ -95,4 +95,29 @@ public class InventoryEvents {
 
     }
 
+    /**
+     * Stock change forwarded to the replica owning the product, which replies with a {@code BulkStockLine}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockCommand {
+
+        public static final String ADD = "ADD";
+
+        public static final String RESERVE = "RESERVE";
+
+        public static final String RELEASE = "RELEASE";
+
+        public static final String DEDUCT = "DEDUCT";
+
+        private String type;
+
+        private String productId;
+
+        private Integer quantity;
+
+    }
+
 }
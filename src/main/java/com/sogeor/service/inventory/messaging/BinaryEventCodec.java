@@ -0,0 +1,321 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of inventory events.
+ * <p>
+ * A payload starts with the schema revision and the tag of the event type, followed by the fields in declaration
+ * order. Strings, byte arrays and lists are prefixed with their length plus one, numbers are zig-zag varints plus one,
+ * zero standing for {@code null} in both cases. Instants are written as seconds and nanoseconds, decimals as scale and
+ * unscaled bytes. Later revisions may only append fields, so readers ignore trailing bytes; incompatible changes get a
+ * new content type.
+ */
+@Component
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/x-inventory-event";
+
+    static final byte REVISION = 1;
+
+    private static final byte INVENTORY_UPDATED = 1;
+
+    private static final byte LOW_STOCK_ALERT = 2;
+
+    private static final byte PRODUCT_UPDATED = 3;
+
+    private static final byte ORDER_EVENT = 4;
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object event) throws IOException {
+        Writer out = new Writer();
+        out.writeByte(REVISION);
+        switch (event) {
+            case InventoryEvents.InventoryUpdatedEvent updated -> {
+                out.writeByte(INVENTORY_UPDATED);
+                out.writeString(updated.getEventType());
+                out.writeString(updated.getProductId());
+                out.writeInteger(updated.getQuantity());
+                out.writeInteger(updated.getReserved());
+                out.writeInstant(updated.getTimestamp());
+            }
+            case InventoryEvents.LowStockAlertEvent alert -> {
+                out.writeByte(LOW_STOCK_ALERT);
+                out.writeString(alert.getEventType());
+                out.writeString(alert.getProductId());
+                out.writeInteger(alert.getQuantity());
+                out.writeInteger(alert.getThreshold());
+                out.writeInstant(alert.getTimestamp());
+            }
+            case InventoryEvents.ProductUpdatedEvent product -> {
+                out.writeByte(PRODUCT_UPDATED);
+                out.writeString(product.getEventType());
+                out.writeString(product.getProductId());
+                out.writeString(product.getName());
+                out.writeDecimal(product.getPrice());
+                out.writeString(product.getCategory());
+                out.writeInstant(product.getTimestamp());
+            }
+            case InventoryEvents.OrderEvent order -> {
+                out.writeByte(ORDER_EVENT);
+                out.writeString(order.getEventType());
+                out.writeString(order.getOrderId());
+                List<InventoryEvents.OrderItem> items = order.getItems();
+                out.writeLength(items == null ? -1 : items.size());
+                if (items != null) {
+                    for (InventoryEvents.OrderItem item : items) {
+                        out.writeString(item.getProductId());
+                        out.writeInteger(item.getQuantity());
+                    }
+                }
+                out.writeInstant(order.getTimestamp());
+            }
+            default -> throw new IOException("Unsupported event type: " + event.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        try {
+            return read(new Reader(payload), type);
+        } catch (ArithmeticException | DateTimeException e) {
+            throw new IOException("Malformed event payload", e);
+        }
+    }
+
+    private static <T> T read(Reader in, Class<T> type) throws IOException {
+        int revision = in.readByte();
+        if (revision < 1) {
+            throw new IOException("Unsupported schema revision: " + revision);
+        }
+        int tag = in.readByte();
+        Object event = switch (tag) {
+            case INVENTORY_UPDATED -> InventoryEvents.InventoryUpdatedEvent.builder()
+                                                                           .eventType(in.readString())
+                                                                           .productId(in.readString())
+                                                                           .quantity(in.readInteger())
+                                                                           .reserved(in.readInteger())
+                                                                           .timestamp(in.readInstant())
+                                                                           .build();
+            case LOW_STOCK_ALERT -> InventoryEvents.LowStockAlertEvent.builder()
+                                                                      .eventType(in.readString())
+                                                                      .productId(in.readString())
+                                                                      .quantity(in.readInteger())
+                                                                      .threshold(in.readInteger())
+                                                                      .timestamp(in.readInstant())
+                                                                      .build();
+            case PRODUCT_UPDATED -> InventoryEvents.ProductUpdatedEvent.builder()
+                                                                       .eventType(in.readString())
+                                                                       .productId(in.readString())
+                                                                       .name(in.readString())
+                                                                       .price(in.readDecimal())
+                                                                       .category(in.readString())
+                                                                       .timestamp(in.readInstant())
+                                                                       .build();
+            case ORDER_EVENT -> readOrderEvent(in);
+            default -> throw new IOException("Unknown event tag: " + tag);
+        };
+        if (!type.isInstance(event)) {
+            throw new IOException("Expected " + type.getSimpleName() + " but got event tag " + tag);
+        }
+        return type.cast(event);
+    }
+
+    private static InventoryEvents.OrderEvent readOrderEvent(Reader in) throws IOException {
+        InventoryEvents.OrderEvent.OrderEventBuilder order = InventoryEvents.OrderEvent.builder()
+                                                                                       .eventType(in.readString())
+                                                                                       .orderId(in.readString());
+        int size = in.readLength();
+        if (size >= 0) {
+            List<InventoryEvents.OrderItem> items = new ArrayList<>(Math.min(size, in.remaining()));
+            for (int i = 0; i < size; i++) {
+                items.add(new InventoryEvents.OrderItem(in.readString(), in.readInteger()));
+            }
+            order.items(items);
+        }
+        return order.timestamp(in.readInstant()).build();
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer = new byte[64];
+
+        private int size;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeLength(int length) {
+            writeVarLong(length + 1L);
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeLength(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeLength(-1);
+            } else {
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void writeInteger(Integer value) {
+            writeVarLong(value == null ? 0 : zigZag(value) + 1);
+        }
+
+        void writeInstant(Instant value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(zigZag(value.getEpochSecond()) + 1);
+            writeVarLong(value.getNano());
+        }
+
+        void writeDecimal(BigDecimal value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(zigZag(value.scale()) + 1);
+            writeBytes(value.unscaledValue().toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+
+    }
+
+    /**
+     * Reads fields in place from the record value; only strings and decimals copy the bytes they are made of.
+     */
+    private static final class Reader {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.length - position;
+        }
+
+        int readByte() throws IOException {
+            if (position >= buffer.length) {
+                throw new EOFException("Truncated event payload");
+            }
+            return buffer[position++];
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in event payload");
+        }
+
+        int readLength() throws IOException {
+            long length = readVarLong() - 1;
+            if (length > remaining() || length < -1) {
+                throw new EOFException("Truncated event payload");
+            }
+            return (int) length;
+        }
+
+        String readString() throws IOException {
+            int length = readLength();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Integer readInteger() throws IOException {
+            long value = readVarLong();
+            return value == 0 ? null : Math.toIntExact(unZigZag(value - 1));
+        }
+
+        Instant readInstant() throws IOException {
+            long seconds = readVarLong();
+            if (seconds == 0) {
+                return null;
+            }
+            return Instant.ofEpochSecond(unZigZag(seconds - 1), readVarLong());
+        }
+
+        BigDecimal readDecimal() throws IOException {
+            long scale = readVarLong();
+            if (scale == 0) {
+                return null;
+            }
+            int length = readLength();
+            if (length < 1) {
+                throw new IOException("Malformed decimal in event payload");
+            }
+            BigInteger unscaled = new BigInteger(buffer, position, length);
+            position += length;
+            return new BigDecimal(unscaled, Math.toIntExact(unZigZag(scale - 1)));
+        }
+
+    }
+
+}
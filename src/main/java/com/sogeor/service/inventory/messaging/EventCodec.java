@@ -0,0 +1,20 @@
+package com.sogeor.service.inventory.messaging;
+
+import java.io.IOException;
+
+/**
+ * Encoding of {@link com.sogeor.service.inventory.dto.InventoryEvents} payloads, identified by the content type carried
+ * in the {@code contentType} record header.
+ */
+public interface EventCodec {
+
+    String contentType();
+
+    byte[] encode(Object event) throws IOException;
+
+    /**
+     * Decodes a payload straight from the record value.
+     */
+    <T> T decode(byte[] payload, Class<T> type) throws IOException;
+
+}
@@ -0,0 +1,68 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the codec of a record by its {@code contentType} header. Records without the header are treated as JSON,
+ * which is what producers wrote before the header was introduced.
+ */
+@Component
+public class EventCodecs {
+
+    private final Map<String, EventCodec> codecs;
+
+    private final EventCodec encoder;
+
+    private final byte[] encoderContentType;
+
+    public EventCodecs(List<EventCodec> codecs, InventoryProperties properties) {
+        this.codecs = codecs.stream().collect(Collectors.toMap(EventCodec::contentType, Function.identity()));
+        String contentType = properties.getEvents().getContentType();
+        this.encoder = this.codecs.get(contentType);
+        if (encoder == null) {
+            throw new IllegalArgumentException("Unsupported event content type: " + contentType);
+        }
+        this.encoderContentType = contentType.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public ProducerRecord<@NotNull String, byte[]> record(String topic, String key, Object event)
+            throws IOException {
+        ProducerRecord<@NotNull String, byte[]> record = new ProducerRecord<>(topic, key, encoder.encode(event));
+        record.headers().add(MessageHeaders.CONTENT_TYPE, encoderContentType);
+        return record;
+    }
+
+    /**
+     * Decodes the value of a record. Tombstones, records without a value, are rejected like malformed payloads.
+     */
+    public <T> T decode(ConsumerRecord<?, byte[]> record, Class<T> type) throws IOException {
+        if (record.value() == null) {
+            throw new IOException("Record without value at offset " + record.offset() + " of " + record.topic());
+        }
+        Header header = record.headers().lastHeader(MessageHeaders.CONTENT_TYPE);
+        String contentType = header == null
+                             ? MimeTypeUtils.APPLICATION_JSON_VALUE
+                             : new String(header.value(), StandardCharsets.UTF_8);
+        int parameters = contentType.indexOf(';');
+        EventCodec codec = codecs.get(parameters < 0 ? contentType : contentType.substring(0, parameters).trim());
+        if (codec == null) {
+            throw new IOException("Unsupported event content type: " + contentType);
+        }
+        return codec.decode(record.value(), type);
+    }
+
+}
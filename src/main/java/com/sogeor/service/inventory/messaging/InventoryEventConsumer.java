@@ -1,66 +1,194 @@
 package com.sogeor.service.inventory.messaging;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.config.KafkaConfig;
 import com.sogeor.service.inventory.dto.InventoryEvents;
-import com.sogeor.service.inventory.service.InventoryService;
-import lombok.RequiredArgsConstructor;
+import com.sogeor.service.inventory.service.InventoryCache;
+import com.sogeor.service.inventory.service.InventoryChangeFeed;
+import com.sogeor.service.inventory.service.LowStockAlertEngine;
+import com.sogeor.service.inventory.service.OrderEventService;
+import com.sogeor.service.inventory.service.OwnershipService;
+import com.sogeor.service.inventory.service.ProductCatalogService;
+import com.sogeor.service.inventory.service.ReplicaReads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class InventoryEventConsumer {
 
-    private final InventoryService inventoryService;
+    private static final String PRODUCT_UPDATES = "product-updates";
 
-    private final ObjectMapper objectMapper;
+    private static final String ORDER_EVENTS = "order-events";
 
-    @KafkaListener(topics = "product-updates", groupId = "${spring.kafka.consumer.group-id}")
-    public void handleProductUpdates(String message) {
-        try {
-            InventoryEvents.ProductUpdatedEvent event = objectMapper.readValue(message,
-                                                                               InventoryEvents.ProductUpdatedEvent.class);
-            log.info("Received Product Update for: {}", event.getProductId());
-            inventoryService.addStock(event.getProductId(), 0).subscribe();
-        } catch (JsonProcessingException e) {
-            log.error("Error processing product update", e);
+    private static final String INVENTORY_UPDATES = "inventory-updates";
+
+    private static final String INVENTORY_UPDATED = "INVENTORY_UPDATED";
+
+    private final ProductCatalogService productCatalogService;
+
+    private final OrderEventService orderEventService;
+
+    private final EventCodecs eventCodecs;
+
+    private final InventoryCache inventoryCache;
+
+    private final InventoryChangeFeed inventoryChangeFeed;
+
+    private final ReplicaReads replicaReads;
+
+    private final LowStockAlertEngine lowStockAlertEngine;
+
+    private final OwnershipService ownershipService;
+
+    private final InventoryProperties properties;
+
+    private final Timer productUpdatesLag;
+
+    private final Timer orderEventsLag;
+
+    private final Timer inventoryUpdatesLag;
+
+    private final Timer productUpdatesBatch;
+
+    private final Timer orderEventsBatch;
+
+    public InventoryEventConsumer(ProductCatalogService productCatalogService, OrderEventService orderEventService,
+                                  EventCodecs eventCodecs, InventoryCache inventoryCache,
+                                  InventoryChangeFeed inventoryChangeFeed, ReplicaReads replicaReads,
+                                  LowStockAlertEngine lowStockAlertEngine, OwnershipService ownershipService,
+                                  InventoryProperties properties, MeterRegistry meterRegistry) {
+        this.productCatalogService = productCatalogService;
+        this.orderEventService = orderEventService;
+        this.eventCodecs = eventCodecs;
+        this.inventoryCache = inventoryCache;
+        this.inventoryChangeFeed = inventoryChangeFeed;
+        this.replicaReads = replicaReads;
+        this.lowStockAlertEngine = lowStockAlertEngine;
+        this.ownershipService = ownershipService;
+        this.properties = properties;
+        this.productUpdatesLag = lagTimer(PRODUCT_UPDATES, meterRegistry);
+        this.orderEventsLag = lagTimer(ORDER_EVENTS, meterRegistry);
+        this.inventoryUpdatesLag = lagTimer(INVENTORY_UPDATES, meterRegistry);
+        this.productUpdatesBatch = batchTimer(PRODUCT_UPDATES, meterRegistry);
+        this.orderEventsBatch = batchTimer(ORDER_EVENTS, meterRegistry);
+    }
+
+    /**
+     * Creates inventory rows for new products of a whole poll and commits the offsets once they are written. Updates
+     * of products that already have a row change nothing.
+     */
+    @KafkaListener(topics = PRODUCT_UPDATES, groupId = "${spring.kafka.consumer.group-id}",
+                   containerFactory = KafkaConfig.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void handleProductUpdates(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        long start = System.nanoTime();
+        List<String> productIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            recordLag(productUpdatesLag, record.timestamp());
+            try {
+                productIds.add(eventCodecs.decode(record, InventoryEvents.ProductUpdatedEvent.class).getProductId());
+            } catch (IOException e) {
+                log.error("Error processing product update", e);
+            }
         }
+
+        productCatalogService.register(productIds).block(properties.getCatalog().getTimeout());
+        acknowledgment.acknowledge();
+        productUpdatesBatch.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
-    @KafkaListener(topics = "order-events", groupId = "${spring.kafka.consumer.group-id}")
-    public void handleOrderEvents(String message) {
-        try {
-            InventoryEvents.OrderEvent event = objectMapper.readValue(message, InventoryEvents.OrderEvent.class);
-
-            if ("ORDER_PAID".equals(event.getEventType())) {
-                log.info("Processing ORDER_PAID for order: {}", event.getOrderId());
-                event.getItems()
-                     .forEach(item -> inventoryService.deductStock(item.getProductId(),
-                                                                   item.getQuantity())
-                                                      .subscribe(result -> log.debug("Stock deducted for product {}",
-                                                                                     item.getProductId()),
-                                                                 error -> log.error(
-                                                                         "Failed to deduct stock for product {}: {}",
-                                                                         item.getProductId(), error.getMessage())));
-            } else if ("ORDER_CANCELLED".equals(event.getEventType())) {
-                log.info("Processing ORDER_CANCELLED for order: {}", event.getOrderId());
-                event.getItems()
-                     .forEach(
-                             item -> inventoryService.addStock(item.getProductId(), item.getQuantity())
-                                                     .subscribe(result -> log.debug("Stock returned for product {}",
-                                                                                    item.getProductId()),
-                                                                error -> log.error(
-                                                                        "Failed to return stock for product {}: {}",
-                                                                        item.getProductId(), error.getMessage())));
+    /**
+     * Applies a whole poll and commits the offsets only once every write has completed. The listener thread blocks
+     * meanwhile, so the broker is not polled again until the pool has caught up. Redelivered events are not applied
+     * twice, so replaying a partition is safe.
+     */
+    @KafkaListener(topics = ORDER_EVENTS, groupId = "${spring.kafka.consumer.group-id}",
+                   containerFactory = KafkaConfig.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void handleOrderEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        long start = System.nanoTime();
+        List<InventoryEvents.OrderEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            recordLag(orderEventsLag, record.timestamp());
+            try {
+                events.add(eventCodecs.decode(record, InventoryEvents.OrderEvent.class));
+            } catch (IOException e) {
+                log.error("Error processing order event", e);
             }
-        } catch (JsonProcessingException e) {
-            log.error("Error processing order event", e);
         }
+
+        orderEventService.apply(events).block(properties.getOrderEvents().getTimeout());
+        acknowledgment.acknowledge();
+        orderEventsBatch.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drops cached rows changed by any replica and passes changes of watched products to the change feed. Every
+     * replica reads the topic in its own consumer group; for products nobody watches the key is enough, so the
+     * payload is not parsed. The product is read from the primary for a while, so the row reloaded after the
+     * invalidation does not come from a replica that has not caught up. Threshold changes are recognised by their
+     * header and reload the thresholds of the product. An owner of the product rebases it on the current row.
+     */
+    @KafkaListener(topics = INVENTORY_UPDATES, groupId = "${inventory.cache.group-id}",
+                   properties = "auto.offset.reset=latest")
+    public void handleInventoryUpdates(ConsumerRecord<String, byte[]> record) {
+        recordLag(inventoryUpdatesLag, record.timestamp());
+        if (record.headers().lastHeader(InventoryEventProducer.THRESHOLD_CHANGED_HEADER) != null) {
+            lowStockAlertEngine.reload(record.key());
+            return;
+        }
+        replicaReads.written(record.key());
+        inventoryCache.invalidate(record.key());
+        ownershipService.refresh(record.key());
+        if (!inventoryChangeFeed.isWatched(record.key())) {
+            return;
+        }
+        InventoryEvents.InventoryUpdatedEvent event;
+        try {
+            event = eventCodecs.decode(record, InventoryEvents.InventoryUpdatedEvent.class);
+        } catch (IOException e) {
+            log.debug("Skipping inventory event that is not a stock update: {}", e.getMessage());
+            return;
+        }
+        if (INVENTORY_UPDATED.equals(event.getEventType())) {
+            inventoryChangeFeed.publish(event);
+        }
+    }
+
+    /**
+     * Records the time from when a record was produced until it is processed. Records without a timestamp and
+     * timestamps ahead of the local clock are skipped.
+     */
+    private static void recordLag(Timer lag, long timestamp) {
+        long millis = System.currentTimeMillis() - timestamp;
+        if (timestamp > 0 && millis >= 0) {
+            lag.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Timer lagTimer(String topic, MeterRegistry meterRegistry) {
+        return Timer.builder("inventory.events.lag")
+                    .description("Time from producing a consumed record until it is processed")
+                    .tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+    private static Timer batchTimer(String topic, MeterRegistry meterRegistry) {
+        return Timer.builder("inventory.events.batch")
+                    .description("Time to apply and acknowledge one poll of consumed records")
+                    .tag("topic", topic)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
     }
 
 }
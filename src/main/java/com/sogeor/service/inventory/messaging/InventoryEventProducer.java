@@ -1,46 +1,187 @@
 package com.sogeor.service.inventory.messaging;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
 import com.sogeor.service.inventory.dto.InventoryEvents;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes inventory events.
+ * <p>
+ * With coalescing enabled, {@code INVENTORY_UPDATED} events are held per product until the next flush and only the
+ * latest snapshot of each product is published. The future returned for a superseded event completes together with
+ * the one that replaced it. Flushes are serialized, so events of one product are still published in order.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class InventoryEventProducer {
 
+    /**
+     * Marks threshold changes, so replicas recognise them without decoding the payload.
+     */
+    public static final String THRESHOLD_CHANGED_HEADER = "thresholdChanged";
+
     private static final String TOPIC = "inventory-updates";
 
-    private final KafkaTemplate<@NotNull String, @NotNull String> kafkaTemplate;
+    private final KafkaTemplate<@NotNull String, byte[]> kafkaTemplate;
+
+    private final EventCodecs eventCodecs;
+
+    private final InventoryProperties.Coalescing coalescing;
+
+    private final Counter suppressed;
 
-    private final ObjectMapper objectMapper;
+    private final Timer sent;
 
-    public void sendInventoryUpdated(InventoryEvents.InventoryUpdatedEvent event) {
-        sendEvent(event.getProductId(), event);
+    private final Timer failed;
+
+    private final Object flushLock = new Object();
+
+    private Map<String, PendingEvent> pending = new LinkedHashMap<>();
+
+    public InventoryEventProducer(KafkaTemplate<@NotNull String, byte[]> kafkaTemplate, EventCodecs eventCodecs,
+                                  InventoryProperties properties, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.eventCodecs = eventCodecs;
+        this.coalescing = properties.getCoalescing();
+        this.suppressed = Counter.builder("inventory.events.coalesced")
+                                 .description("Inventory update events superseded before being published")
+                                 .register(meterRegistry);
+        this.sent = sendTimer("success", meterRegistry);
+        this.failed = sendTimer("failure", meterRegistry);
+        Gauge.builder("inventory.events.pending", this, InventoryEventProducer::pendingCount)
+             .description("Products with an inventory update event waiting to be published")
+             .register(meterRegistry);
     }
 
-    public void sendLowStockAlert(InventoryEvents.LowStockAlertEvent event) {
-        sendEvent(event.getProductId(), event);
+    public CompletableFuture<?> sendInventoryUpdated(InventoryEvents.InventoryUpdatedEvent event) {
+        if (!coalescing.isEnabled()) {
+            return sendEvent(event.getProductId(), event);
+        }
+
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        boolean full;
+        synchronized (this) {
+            PendingEvent previous = pending.get(event.getProductId());
+            if (previous == null) {
+                pending.put(event.getProductId(), new PendingEvent(event, completion));
+            } else {
+                previous.event = event;
+                previous.completions.add(completion);
+                suppressed.increment();
+            }
+            full = pending.size() >= coalescing.getMaxPendingKeys();
+        }
+        if (full) {
+            flush();
+        }
+        return completion;
     }
 
-    private void sendEvent(String key, Object event) {
-        try {
-            String payload = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(TOPIC, key, payload).whenComplete((result, ex) -> {
-                if (ex != null) {
-                    log.error("Failed to send event to topic {}: {}", TOPIC, ex.getMessage());
-                } else {
-                    log.debug("Event sent to topic {} successfully", TOPIC);
+    public CompletableFuture<?> sendLowStockAlert(InventoryEvents.LowStockAlertEvent event) {
+        return sendEvent(event.getProductId(), event);
+    }
+
+    public CompletableFuture<?> sendThresholdChanged(InventoryEvents.LowStockAlertEvent event) {
+        return sendEvent(event.getProductId(), event, true);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.coalescing.window:100ms}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, PendingEvent> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
                 }
-            });
-        } catch (JsonProcessingException e) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            batch.forEach((productId, event) -> sendEvent(productId, event.event).whenComplete((result, ex) -> {
+                for (CompletableFuture<Object> completion : event.completions) {
+                    if (ex != null) {
+                        completion.completeExceptionally(ex);
+                    } else {
+                        completion.complete(result);
+                    }
+                }
+            }));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        kafkaTemplate.flush();
+    }
+
+    private synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private CompletableFuture<?> sendEvent(String key, Object event) {
+        return sendEvent(key, event, false);
+    }
+
+    private CompletableFuture<?> sendEvent(String key, Object event, boolean thresholdChanged) {
+        ProducerRecord<@NotNull String, byte[]> record;
+        try {
+            record = eventCodecs.record(TOPIC, key, event);
+        } catch (IOException e) {
             log.error("Error serializing event", e);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (thresholdChanged) {
+            record.headers().add(THRESHOLD_CHANGED_HEADER, new byte[0]);
         }
+        long start = System.nanoTime();
+        return kafkaTemplate.send(record).whenComplete((result, ex) -> {
+            (ex != null ? failed : sent).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (ex != null) {
+                log.error("Failed to send event to topic {}: {}", TOPIC, ex.getMessage());
+            } else {
+                log.debug("Event sent to topic {} successfully", TOPIC);
+            }
+        });
+    }
+
+    private static Timer sendTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("inventory.events.send")
+                    .description("Time until an event is acknowledged by the broker, including batching")
+                    .tag("topic", TOPIC)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+    }
+
+    private static final class PendingEvent {
+
+        private final List<CompletableFuture<Object>> completions = new ArrayList<>(1);
+
+        private InventoryEvents.InventoryUpdatedEvent event;
+
+        private PendingEvent(InventoryEvents.InventoryUpdatedEvent event, CompletableFuture<Object> completion) {
+            this.event = event;
+            this.completions.add(completion);
+        }
+
     }
 
 }
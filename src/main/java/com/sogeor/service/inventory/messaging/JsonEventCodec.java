@@ -0,0 +1,38 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+
+@Component
+@RequiredArgsConstructor
+public class JsonEventCodec implements EventCodec {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String contentType() {
+        return MimeTypeUtils.APPLICATION_JSON_VALUE;
+    }
+
+    @Override
+    public byte[] encode(Object event) throws IOException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    /**
+     * Also accepts payloads written by {@code JsonSerializer} from an already serialized string, which arrive as a
+     * JSON string literal wrapping the event.
+     */
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        if (payload.length > 0 && payload[0] == '"') {
+            return objectMapper.readValue(objectMapper.readValue(payload, String.class), type);
+        }
+        return objectMapper.readValue(payload, type);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.OutboxMessage;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the messages written to the outbox by stock mutations.
+ * <p>
+ * A batch is read, published and deleted inside one transaction holding an advisory lock, so only one replica relays
+ * at a time and per-product order is kept. A message is deleted only after Kafka has acknowledged it; a failed batch
+ * stays in the outbox and is retried on the next poll. Polling continues without delay while batches come back full.
+ * <p>
+ * The transaction and the lock stay open until every message of the batch is acknowledged, so their length is bounded
+ * by the delivery timeout of the producer, or by the relay timeout if that is shorter. A batch cut off by the relay
+ * timeout is rolled back and published again on the next poll.
+ * <p>
+ * The depth gauge is estimated from the range of waiting ids and the lag taken from the lowest id, so sampling them
+ * after every poll costs index lookups rather than scans of the outbox.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final long LOCK_KEY = 0x696e76656e746f72L;
+
+    private final OutboxRepository outboxRepository;
+
+    private final InventoryEventProducer eventProducer;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final InventoryProperties.Outbox properties;
+
+    private final boolean ledger;
+
+    private final AtomicLong depth = new AtomicLong();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private final Counter relayed;
+
+    public OutboxRelay(OutboxRepository outboxRepository, InventoryEventProducer eventProducer,
+                       TransactionalOperator transactionalOperator, InventoryProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.eventProducer = eventProducer;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties.getOutbox();
+        this.ledger = properties.getLedger().isEnabled();
+        this.relayed = Counter.builder("inventory.outbox.relayed")
+                              .description("Messages published from the outbox")
+                              .register(meterRegistry);
+        Gauge.builder("inventory.outbox.depth", depth, AtomicLong::get)
+             .description("Messages waiting in the outbox, estimated from the range of their ids")
+             .register(meterRegistry);
+        TimeGauge.builder("inventory.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                 .description("Age of the oldest message waiting in the outbox")
+                 .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.outbox.poll-interval:200ms}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = relayBatch().block(properties.getTimeout());
+            } while (published != null && published == properties.getBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Failed to relay outbox: {}", e.getMessage());
+        }
+        outboxRepository.estimateDepth()
+                        .doOnNext(depth::set)
+                        .then(outboxRepository.findLagMillis().doOnNext(lagMillis::set))
+                        .onErrorResume(e -> Mono.empty())
+                        .block(properties.getTimeout());
+    }
+
+    private Mono<@NotNull Integer> relayBatch() {
+        return outboxRepository.tryLock(LOCK_KEY)
+                               .filter(Boolean::booleanValue)
+                               .flatMap(locked -> outboxRepository.findOldest(properties.getBatchSize())
+                                                                  .collectList())
+                               .filter(messages -> !messages.isEmpty())
+                               .flatMap(messages -> publish(messages).then(remove(messages)))
+                               .doOnNext(relayed::increment)
+                               .as(transactionalOperator::transactional)
+                               .defaultIfEmpty(0);
+    }
+
+    /**
+     * Deletes relayed messages. In ledger mode the stock states they carry are kept as history.
+     */
+    private Mono<@NotNull Integer> remove(List<OutboxMessage> messages) {
+        Long[] ids = messages.stream().map(OutboxMessage::getId).toArray(Long[]::new);
+        return ledger ? outboxRepository.archiveByIds(ids) : outboxRepository.deleteByIds(ids);
+    }
+
+    private Mono<@NotNull Void> publish(List<OutboxMessage> messages) {
+        CompletableFuture<?>[] sends = messages.stream().map(this::send).toArray(CompletableFuture[]::new);
+        eventProducer.flush();
+        return Mono.fromFuture(CompletableFuture.allOf(sends));
+    }
+
+    private CompletableFuture<?> send(OutboxMessage message) {
+        if ("LOW_STOCK".equals(message.getEventType())) {
+            return eventProducer.sendLowStockAlert(toLowStockAlertEvent(message));
+        }
+        if ("THRESHOLD_CHANGED".equals(message.getEventType())) {
+            return eventProducer.sendThresholdChanged(toLowStockAlertEvent(message));
+        }
+        return eventProducer.sendInventoryUpdated(toInventoryUpdatedEvent(message));
+    }
+
+    private static InventoryEvents.InventoryUpdatedEvent toInventoryUpdatedEvent(OutboxMessage message) {
+        return InventoryEvents.InventoryUpdatedEvent.builder()
+                                                    .eventType(message.getEventType())
+                                                    .productId(message.getProductId())
+                                                    .quantity(message.getQuantity())
+                                                    .reserved(message.getReserved())
+                                                    .timestamp(message.getCreatedAt())
+                                                    .build();
+    }
+
+    private static InventoryEvents.LowStockAlertEvent toLowStockAlertEvent(OutboxMessage message) {
+        return InventoryEvents.LowStockAlertEvent.builder()
+                                                 .eventType(message.getEventType())
+                                                 .productId(message.getProductId())
+                                                 .quantity(message.getQuantity())
+                                                 .threshold(message.getThreshold())
+                                                 .timestamp(message.getCreatedAt())
+                                                 .build();
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.sogeor.service.inventory.repository;
+
+/**
+ * Building blocks of the stock statements. A bulk statement merges duplicate lines, locks the affected rows in
+ * {@code product_id} order so that concurrent carts cannot deadlock, checks every line and applies all of them or
+ * none. Every statement records the rows it changed in the outbox as part of the same statement.
+ */
+final class InventoryQueries {
+
+    /**
+     * Appends an {@code INVENTORY_UPDATED} outbox message for every row of the {@code updated} CTE. Units leased to
+     * flash-sale replicas and still held by them are not reported as reserved.
+     */
+    static final String OUTBOX = """
+                                 outbox AS (INSERT INTO inventory_outbox (event_type, product_id, quantity, reserved)
+                                            SELECT 'INVENTORY_UPDATED', product_id, quantity,
+                                                   reserved - COALESCE((SELECT SUM(held)
+                                                                        FROM stock_lease
+                                                                        WHERE stock_lease.product_id =
+                                                                              updated.product_id), 0)
+                                            FROM updated)
+                                 """;
+
+    static final String SINGLE_RESULT = """
+                                        SELECT updated.*, TRUE AS applied FROM updated
+                                        UNION ALL
+                                        SELECT inventory.*, FALSE AS applied FROM inventory
+                                        WHERE product_id = :productId AND NOT EXISTS (SELECT 1 FROM updated)
+                                        """;
+
+    static final String BULK_LOCK = """
+                                    WITH request AS (SELECT product_id, SUM(quantity)::INTEGER AS quantity
+                                                     FROM unnest(CAST(:productIds AS VARCHAR[]),
+                                                                 CAST(:quantities AS INTEGER[])) AS r (product_id, quantity)
+                                                     GROUP BY product_id),
+                                         locked AS (SELECT inventory.*
+                                                    FROM inventory
+                                                    WHERE product_id IN (SELECT product_id FROM request)
+                                                    ORDER BY product_id
+                                                    FOR UPDATE),
+                                    """;
+
+    static final String BULK_RESULT = """
+                                      SELECT checked.product_id,
+                                             checked.requested,
+                                             COALESCE(updated.quantity, checked.quantity) AS quantity,
+                                             COALESCE(updated.reserved, checked.reserved) AS reserved,
+                                             CASE WHEN updated.product_id IS NOT NULL THEN 'APPLIED'
+                                                  WHEN checked.status = 'OK' THEN 'NOT_APPLIED'
+                                                  ELSE checked.status END            AS status
+                                      FROM checked
+                                               LEFT JOIN updated ON updated.product_id = checked.product_id
+                                      ORDER BY checked.product_id
+                                      """;
+
+    /**
+     * Folds the movements of the {@code batch} CTE into their snapshots, locking the snapshots in {@code product_id}
+     * order, and records the new snapshots in the outbox.
+     */
+    static final String COMPACT = """
+                                  folded AS (SELECT product_id, SUM(quantity_delta)::INTEGER AS quantity
+                                             FROM batch
+                                             GROUP BY product_id),
+                                  locked AS (SELECT inventory.id, folded.quantity
+                                             FROM inventory
+                                                      JOIN folded ON folded.product_id = inventory.product_id
+                                             ORDER BY inventory.product_id
+                                             FOR UPDATE OF inventory),
+                                  updated AS (UPDATE inventory
+                                              SET quantity   = inventory.quantity + locked.quantity,
+                                                  updated_at = clock_timestamp()
+                                              FROM locked
+                                              WHERE inventory.id = locked.id
+                                              RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+                                  """ + OUTBOX + "SELECT COUNT(*)::INTEGER FROM batch";
+
+    /**
+     * Returns the units of the leases deleted by the {@code reclaimed} CTE to the available stock and returns how many
+     * leases were deleted. Reserved stock is published as before the statement, since the outbox subtracts the held
+     * units of every lease in the statement snapshot, which still includes the deleted ones.
+     */
+    static final String RECLAIM_LEASES = """
+                                         released AS (SELECT product_id, SUM(held)::INTEGER AS held
+                                                      FROM reclaimed
+                                                      WHERE held > 0
+                                                      GROUP BY product_id),
+                                         locked AS (SELECT inventory.id, released.held
+                                                    FROM inventory
+                                                             JOIN released ON released.product_id = inventory.product_id
+                                                    ORDER BY inventory.product_id
+                                                    FOR UPDATE OF inventory),
+                                         updated AS (UPDATE inventory
+                                                     SET reserved   = GREATEST(inventory.reserved - locked.held, 0),
+                                                         updated_at = clock_timestamp()
+                                                     FROM locked
+                                                     WHERE inventory.id = locked.id
+                                                     RETURNING inventory.product_id, inventory.quantity,
+                                                               inventory.reserved + locked.held AS reserved),
+                                         """ + OUTBOX + "SELECT COUNT(*)::INTEGER FROM reclaimed";
+
+    private InventoryQueries() {}
+
+}
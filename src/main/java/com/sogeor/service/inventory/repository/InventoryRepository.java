@@ -1,17 +1,778 @@
 package com.sogeor.service.inventory.repository;
 
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.HoldMutation;
 import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.OrderEventKey;
+import com.sogeor.service.inventory.domain.StockLease;
+import com.sogeor.service.inventory.domain.StockMutation;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.Collection;
+
 @Repository
 public interface InventoryRepository extends R2dbcRepository<@NotNull Inventory, @NotNull Integer> {
 
     Mono<@NotNull Inventory> findByProductId(String productId);
 
-    Flux<@NotNull Inventory> findByQuantityLessThan(int threshold);
+    Flux<@NotNull Inventory> findByProductIdIn(Collection<String> productIds);
+
+    /**
+     * Returns a page of products whose available stock is below the threshold, ordered by available stock and product
+     * identifier and starting right after the given position in that order.
+     */
+    @Query("""
+           SELECT *
+           FROM inventory
+           WHERE quantity - reserved < :threshold
+             AND (quantity - reserved, product_id) > (:afterAvailable, :afterProductId)
+           ORDER BY quantity - reserved, product_id
+           LIMIT :limit
+           """)
+    Flux<@NotNull Inventory> findLowStock(int threshold, int afterAvailable, String afterProductId, int limit);
+
+    @Query("""
+           WITH updated AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                            VALUES (:productId, :quantity, 0, now(), clock_timestamp())
+                            ON CONFLICT (product_id) DO UPDATE SET quantity   = inventory.quantity + EXCLUDED.quantity,
+                                                                   updated_at = clock_timestamp()
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Mono<@NotNull Inventory> addStock(String productId, int quantity);
+
+    /**
+     * Reserves stock in a single statement. Emits nothing if the product does not exist, otherwise emits the row
+     * after the update with {@code applied = true}, or the unchanged row with {@code applied = false} if there was
+     * not enough available stock.
+     */
+    @Query("""
+           WITH updated AS (UPDATE inventory
+                            SET reserved   = reserved + :quantity,
+                                updated_at = clock_timestamp()
+                            WHERE product_id = :productId
+                              AND quantity - reserved >= :quantity
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + InventoryQueries.SINGLE_RESULT)
+    Mono<@NotNull StockMutation> reserveStock(String productId, int quantity);
+
+    @Query("""
+           WITH updated AS (UPDATE inventory
+                            SET reserved   = reserved - :quantity,
+                                updated_at = clock_timestamp()
+                            WHERE product_id = :productId
+                              AND reserved >= :quantity
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + InventoryQueries.SINGLE_RESULT)
+    Mono<@NotNull StockMutation> releaseStock(String productId, int quantity);
+
+    @Query("""
+           WITH updated AS (UPDATE inventory
+                            SET quantity   = quantity - :quantity,
+                                reserved   = CASE WHEN reserved >= :quantity THEN reserved - :quantity
+                                                  ELSE reserved END,
+                                updated_at = clock_timestamp()
+                            WHERE product_id = :productId
+                              AND quantity >= :quantity
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + InventoryQueries.SINGLE_RESULT)
+    Mono<@NotNull StockMutation> deductStock(String productId, int quantity);
+
+    @Query(InventoryQueries.BULK_LOCK + """
+                                        checked AS (SELECT request.product_id, request.quantity AS requested,
+                                                           locked.quantity, locked.reserved,
+                                                           CASE WHEN locked.id IS NULL THEN 'NOT_FOUND'
+                                                                WHEN locked.quantity - locked.reserved < request.quantity
+                                                                    THEN 'INSUFFICIENT'
+                                                                ELSE 'OK' END AS status
+                                                    FROM request
+                                                             LEFT JOIN locked ON locked.product_id = request.product_id),
+                                        updated AS (UPDATE inventory
+                                                    SET reserved   = inventory.reserved + checked.requested,
+                                                        updated_at = clock_timestamp()
+                                                    FROM checked
+                                                    WHERE inventory.product_id = checked.product_id
+                                                      AND NOT EXISTS (SELECT 1 FROM checked WHERE status <> 'OK')
+                                                    RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+                                        """ + InventoryQueries.OUTBOX + InventoryQueries.BULK_RESULT)
+    Flux<@NotNull BulkStockLine> reserveStock(String[] productIds, Integer[] quantities);
+
+    @Query(InventoryQueries.BULK_LOCK + """
+                                        checked AS (SELECT request.product_id, request.quantity AS requested,
+                                                           locked.quantity, locked.reserved,
+                                                           CASE WHEN locked.id IS NULL THEN 'NOT_FOUND'
+                                                                WHEN locked.reserved < request.quantity
+                                                                    THEN 'INSUFFICIENT'
+                                                                ELSE 'OK' END AS status
+                                                    FROM request
+                                                             LEFT JOIN locked ON locked.product_id = request.product_id),
+                                        updated AS (UPDATE inventory
+                                                    SET reserved   = inventory.reserved - checked.requested,
+                                                        updated_at = clock_timestamp()
+                                                    FROM checked
+                                                    WHERE inventory.product_id = checked.product_id
+                                                      AND NOT EXISTS (SELECT 1 FROM checked WHERE status <> 'OK')
+                                                    RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+                                        """ + InventoryQueries.OUTBOX + InventoryQueries.BULK_RESULT)
+    Flux<@NotNull BulkStockLine> releaseStock(String[] productIds, Integer[] quantities);
+
+    @Query(InventoryQueries.BULK_LOCK + """
+                                        checked AS (SELECT request.product_id, request.quantity AS requested,
+                                                           locked.quantity, locked.reserved,
+                                                           CASE WHEN locked.id IS NULL THEN 'NOT_FOUND'
+                                                                WHEN locked.quantity < request.quantity
+                                                                    THEN 'INSUFFICIENT'
+                                                                ELSE 'OK' END AS status
+                                                    FROM request
+                                                             LEFT JOIN locked ON locked.product_id = request.product_id),
+                                        updated AS (UPDATE inventory
+                                                    SET quantity   = inventory.quantity - checked.requested,
+                                                        reserved   = CASE WHEN inventory.reserved >= checked.requested
+                                                                              THEN inventory.reserved - checked.requested
+                                                                          ELSE inventory.reserved END,
+                                                        updated_at = clock_timestamp()
+                                                    FROM checked
+                                                    WHERE inventory.product_id = checked.product_id
+                                                      AND NOT EXISTS (SELECT 1 FROM checked WHERE status <> 'OK')
+                                                    RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+                                        """ + InventoryQueries.OUTBOX + InventoryQueries.BULK_RESULT)
+    Flux<@NotNull BulkStockLine> deductStock(String[] productIds, Integer[] quantities);
+
+    /**
+     * Applies independent per-product adjustments in one statement and emits the rows that were changed. Products
+     * that do not exist or would go below zero are left untouched and are absent from the result. The reserved delta
+     * is released as far as it is reserved, so a merged deduction releases what its orders had reserved, as the
+     * location plan does.
+     */
+    @Query("""
+           WITH request AS (SELECT *
+                            FROM unnest(CAST(:productIds AS VARCHAR[]), CAST(:quantityDeltas AS INTEGER[]),
+                                        CAST(:reservedDeltas AS INTEGER[])) AS r (product_id, quantity_delta,
+                                                                                  reserved_delta)),
+                locked AS (SELECT id
+                           FROM inventory
+                           WHERE product_id IN (SELECT product_id FROM request)
+                           ORDER BY product_id
+                           FOR UPDATE),
+                updated AS (UPDATE inventory
+                            SET quantity   = inventory.quantity + request.quantity_delta,
+                                reserved   = GREATEST(inventory.reserved - request.reserved_delta, 0),
+                                updated_at = clock_timestamp()
+                            FROM request
+                            WHERE inventory.product_id = request.product_id
+                              AND inventory.id IN (SELECT id FROM locked)
+                              AND inventory.quantity + request.quantity_delta >= 0
+                            RETURNING inventory.*),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Flux<@NotNull Inventory> adjustStock(String[] productIds, Integer[] quantityDeltas, Integer[] reservedDeltas);
+
+    /**
+     * Adds one batch of an import, creating products that do not exist yet, and moves the checkpoint of the import from
+     * {@code fromRow} to {@code toRow}. Emits the number of products changed, or {@code -1} without changing anything
+     * if the checkpoint is no longer at {@code fromRow}.
+     */
+    @Query("""
+           WITH checkpoint AS (UPDATE stock_import
+                               SET processed_rows = :toRow,
+                                   rejected_rows  = rejected_rows + :rejected,
+                                   updated_at     = clock_timestamp()
+                               WHERE import_id = :importId
+                                 AND processed_rows = :fromRow
+                               RETURNING import_id),
+                request AS (SELECT product_id, SUM(quantity)::INTEGER AS quantity
+                            FROM unnest(CAST(:productIds AS VARCHAR[]), CAST(:quantities AS INTEGER[])) AS r (product_id,
+                                                                                                              quantity)
+                            WHERE EXISTS (SELECT 1 FROM checkpoint)
+                            GROUP BY product_id),
+                updated AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                            SELECT product_id, quantity, 0, now(), clock_timestamp()
+                            FROM request
+                            ORDER BY product_id
+                            ON CONFLICT (product_id) DO UPDATE SET quantity   = inventory.quantity + EXCLUDED.quantity,
+                                                                   updated_at = clock_timestamp()
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + """
+           SELECT CASE WHEN EXISTS (SELECT 1 FROM checkpoint) THEN (SELECT COUNT(*) FROM updated)::INTEGER ELSE -1 END
+           """)
+    Mono<@NotNull Integer> importStock(String importId, long fromRow, long toRow, int rejected, String[] productIds,
+                                       Integer[] quantities);
+
+    /**
+     * Writes changes accumulated by the owner of the products, creating products that do not exist yet. The owner has
+     * validated the deltas against its own view; a row they would overdraw, because it was changed behind the owner, is
+     * left untouched and not returned, so the caller can fail the whole write. Stock must not go negative, and raising
+     * reservations must not take them above stock.
+     */
+    @Query("""
+           WITH request AS (SELECT *
+                            FROM unnest(CAST(:productIds AS VARCHAR[]), CAST(:quantityDeltas AS INTEGER[]),
+                                        CAST(:reservedDeltas AS INTEGER[])) AS r (product_id, quantity_delta,
+                                                                                  reserved_delta)),
+                updated AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                            SELECT product_id, quantity_delta, reserved_delta, now(), clock_timestamp()
+                            FROM request
+                            ORDER BY product_id
+                            ON CONFLICT (product_id) DO UPDATE
+                                SET quantity   = inventory.quantity + EXCLUDED.quantity,
+                                    reserved   = inventory.reserved + EXCLUDED.reserved,
+                                    updated_at = clock_timestamp()
+                                WHERE inventory.quantity + EXCLUDED.quantity >= 0
+                                  AND inventory.reserved + EXCLUDED.reserved >= 0
+                                  AND (EXCLUDED.reserved <= 0 OR
+                                       inventory.reserved + EXCLUDED.reserved <= inventory.quantity + EXCLUDED.quantity)
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Flux<@NotNull Inventory> applyOwnedChanges(String[] productIds, Integer[] quantityDeltas, Integer[] reservedDeltas);
+
+    /**
+     * Creates empty rows for the given products that do not have one yet and returns the IDs of the created rows.
+     * Existing rows are left untouched, so only new products reach the outbox.
+     */
+    @Query("""
+           WITH updated AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                            SELECT DISTINCT product_id, 0, 0, now(), now()
+                            FROM unnest(CAST(:productIds AS VARCHAR[])) AS r (product_id)
+                            ORDER BY product_id
+                            ON CONFLICT (product_id) DO NOTHING
+                            RETURNING *),
+           """ + InventoryQueries.OUTBOX + "SELECT product_id FROM updated")
+    Flux<@NotNull String> createMissing(String[] productIds);
+
+    /**
+     * Adds stock at a location and to the total of the product in one statement.
+     */
+    @Query("""
+           WITH updated AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                            VALUES (:productId, :quantity, 0, now(), clock_timestamp())
+                            ON CONFLICT (product_id) DO UPDATE SET quantity   = inventory.quantity + EXCLUDED.quantity,
+                                                                   updated_at = clock_timestamp()
+                            RETURNING *),
+                located AS (INSERT INTO stock_location (product_id, location_id, quantity, reserved, updated_at)
+                            SELECT product_id, :locationId, :quantity, 0, clock_timestamp()
+                            FROM updated
+                            ON CONFLICT (product_id, location_id) DO UPDATE
+                                SET quantity   = stock_location.quantity + EXCLUDED.quantity,
+                                    updated_at = clock_timestamp()),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Mono<@NotNull Inventory> addStock(String productId, String locationId, int quantity);
+
+    /**
+     * Returns the stock of the products by location, ordered by product and location. Stock not assigned to any
+     * location is returned as held at the default location, so every existing product has at least that row.
+     */
+    @Query("""
+           SELECT product_id, location_id, quantity, reserved
+           FROM stock_location
+           WHERE product_id = ANY (CAST(:productIds AS VARCHAR[]))
+           UNION ALL
+           SELECT inventory.product_id,
+                  CAST(:defaultLocation AS VARCHAR)                                        AS location_id,
+                  (inventory.quantity - COALESCE(SUM(stock_location.quantity), 0))::INTEGER AS quantity,
+                  (inventory.reserved - COALESCE(SUM(stock_location.reserved), 0))::INTEGER AS reserved
+           FROM inventory
+                    LEFT JOIN stock_location ON stock_location.product_id = inventory.product_id
+           WHERE inventory.product_id = ANY (CAST(:productIds AS VARCHAR[]))
+           GROUP BY inventory.id
+           ORDER BY product_id, location_id
+           """)
+    Flux<@NotNull LocationStock> findLocations(String[] productIds, String defaultLocation);
+
+    /**
+     * Moves stock of the products between the available and reserved stock of their locations, and out of or into
+     * them, updating the totals of the products by the sum of the moves. A product is applied only if every location
+     * it touches keeps non-negative stock and no more reserved than it holds. The product as a whole must not end up
+     * with more reserved than it holds either, since holds and flash-sale leases reserve stock without a location. An
+     * atomic call applies all products or none. Emits one line per product without {@code requested}.
+     */
+    @Query("""
+           WITH request AS (SELECT product_id, location_id, SUM(quantity_delta)::INTEGER AS quantity_delta,
+                                   SUM(reserved_delta)::INTEGER AS reserved_delta
+                            FROM unnest(CAST(:productIds AS VARCHAR[]), CAST(:locationIds AS VARCHAR[]),
+                                        CAST(:quantityDeltas AS INTEGER[]), CAST(:reservedDeltas AS INTEGER[]))
+                                     AS r (product_id, location_id, quantity_delta, reserved_delta)
+                            GROUP BY product_id, location_id),
+                locked AS (SELECT inventory.*
+                           FROM inventory
+                           WHERE product_id IN (SELECT product_id FROM request)
+                           ORDER BY product_id
+                           FOR UPDATE),
+                located AS (SELECT stock_location.*
+                            FROM stock_location
+                            WHERE product_id IN (SELECT product_id FROM locked)
+                            ORDER BY product_id, location_id
+                            FOR UPDATE),
+                stock AS (SELECT product_id, location_id, quantity, reserved
+                          FROM located
+                          UNION ALL
+                          SELECT locked.product_id, CAST(:defaultLocation AS VARCHAR),
+                                 locked.quantity - COALESCE(SUM(located.quantity), 0),
+                                 locked.reserved - COALESCE(SUM(located.reserved), 0)
+                          FROM locked
+                                   LEFT JOIN located ON located.product_id = locked.product_id
+                          GROUP BY locked.product_id, locked.quantity, locked.reserved),
+                checked AS (SELECT request.product_id,
+                                   SUM(request.quantity_delta)::INTEGER AS quantity_delta,
+                                   SUM(request.reserved_delta)::INTEGER AS reserved_delta,
+                                   CASE WHEN NOT EXISTS (SELECT 1
+                                                         FROM locked
+                                                         WHERE locked.product_id = request.product_id)
+                                            THEN 'NOT_FOUND'
+                                        WHEN NOT (SUM(request.quantity_delta) >= 0 AND SUM(request.reserved_delta) <= 0)
+                                            AND (SELECT locked.reserved - locked.quantity
+                                                 FROM locked
+                                                 WHERE locked.product_id = request.product_id) +
+                                                SUM(request.reserved_delta) - SUM(request.quantity_delta) > 0
+                                            THEN 'INSUFFICIENT'
+                                        WHEN bool_and(COALESCE(stock.quantity + request.quantity_delta >= 0
+                                                                   AND stock.reserved + request.reserved_delta >= 0
+                                                                   AND (stock.reserved + request.reserved_delta
+                                                                            <= stock.quantity + request.quantity_delta
+                                                                       OR request.quantity_delta >= 0
+                                                                              AND request.reserved_delta <= 0),
+                                                               FALSE))
+                                            THEN 'OK'
+                                        ELSE 'INSUFFICIENT' END       AS status
+                            FROM request
+                                     LEFT JOIN stock ON stock.product_id = request.product_id
+                                AND stock.location_id = request.location_id
+                            GROUP BY request.product_id),
+                applicable AS (SELECT *
+                               FROM checked
+                               WHERE status = 'OK'
+                                 AND (NOT :atomic OR NOT EXISTS (SELECT 1 FROM checked WHERE status <> 'OK'))),
+                moved AS (UPDATE stock_location
+                          SET quantity   = stock_location.quantity + request.quantity_delta,
+                              reserved   = stock_location.reserved + request.reserved_delta,
+                              updated_at = clock_timestamp()
+                          FROM request
+                          WHERE stock_location.product_id = request.product_id
+                            AND stock_location.location_id = request.location_id
+                            AND request.location_id <> :defaultLocation
+                            AND request.product_id IN (SELECT product_id FROM applicable)),
+                updated AS (UPDATE inventory
+                            SET quantity   = inventory.quantity + applicable.quantity_delta,
+                                reserved   = inventory.reserved + applicable.reserved_delta,
+                                updated_at = clock_timestamp()
+                            FROM applicable
+                            WHERE inventory.product_id = applicable.product_id
+                            RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+           """ + InventoryQueries.OUTBOX + """
+           SELECT checked.product_id,
+                  COALESCE(updated.quantity, locked.quantity) AS quantity,
+                  COALESCE(updated.reserved, locked.reserved) AS reserved,
+                  CASE WHEN updated.product_id IS NOT NULL THEN 'APPLIED'
+                       WHEN checked.status = 'OK' THEN 'NOT_APPLIED'
+                       ELSE checked.status END                AS status
+           FROM checked
+                    LEFT JOIN updated ON updated.product_id = checked.product_id
+                    LEFT JOIN locked ON locked.product_id = checked.product_id
+           ORDER BY checked.product_id
+           """)
+    Flux<@NotNull BulkStockLine> moveStock(String[] productIds, String[] locationIds, Integer[] quantityDeltas,
+                                           Integer[] reservedDeltas, String defaultLocation, boolean atomic);
+
+    @Query("SELECT product_id FROM inventory WHERE flash_sale")
+    Flux<@NotNull String> findFlashSaleProductIds();
+
+    @Modifying
+    @Query("UPDATE inventory SET flash_sale = :enabled, updated_at = clock_timestamp() WHERE product_id = :productId")
+    Mono<@NotNull Integer> setFlashSale(String productId, boolean enabled);
+
+    /**
+     * Moves up to {@code quantity} units of available stock into {@code reserved} on behalf of {@code ownerId} and
+     * records them in its lease. Emits nothing if the product does not exist or has no available stock.
+     */
+    @Query("""
+           WITH current AS (SELECT id, LEAST(:quantity, quantity - reserved) AS granted
+                            FROM inventory
+                            WHERE product_id = :productId
+                            FOR UPDATE),
+                updated AS (UPDATE inventory
+                            SET reserved   = inventory.reserved + current.granted,
+                                updated_at = clock_timestamp()
+                            FROM current
+                            WHERE inventory.id = current.id
+                              AND current.granted > 0
+                            RETURNING inventory.product_id, inventory.quantity, inventory.reserved, current.granted),
+                lease AS (INSERT INTO stock_lease (product_id, owner_id, held, updated_at)
+                          SELECT product_id, :ownerId, granted, now()
+                          FROM updated
+                          ON CONFLICT (product_id, owner_id) DO UPDATE SET held       = stock_lease.held + EXCLUDED.held,
+                                                                           updated_at = clock_timestamp())
+           SELECT * FROM updated
+           """)
+    Mono<@NotNull StockLease> leaseStock(String productId, String ownerId, int quantity);
+
+    /**
+     * Returns {@code quantity} leased units to the available stock and records {@code held} as the units the owner
+     * still holds. The outbox message reports as reserved only the units handed out from the leases, not those still
+     * held by any replica.
+     */
+    @Query("""
+           WITH lease AS (UPDATE stock_lease
+                          SET held       = :held,
+                              updated_at = clock_timestamp()
+                          WHERE product_id = :productId
+                            AND owner_id = :ownerId
+                          RETURNING product_id),
+                others AS (SELECT COALESCE(SUM(held), 0)::INTEGER AS held
+                           FROM stock_lease
+                           WHERE product_id = :productId
+                             AND owner_id <> :ownerId),
+                returned AS (UPDATE inventory
+                             SET reserved   = GREATEST(reserved - :quantity, 0),
+                                 updated_at = clock_timestamp()
+                             WHERE product_id IN (SELECT product_id FROM lease)
+                             RETURNING *),
+                outbox AS (INSERT INTO inventory_outbox (event_type, product_id, quantity, reserved)
+                           SELECT 'INVENTORY_UPDATED', product_id, quantity, reserved - :held - others.held
+                           FROM returned, others)
+           SELECT * FROM returned
+           """)
+    Mono<@NotNull Inventory> returnStock(String productId, String ownerId, int quantity, int held);
+
+    /**
+     * Records {@code held} as the units the owner still holds and returns the product. The outbox message reports as
+     * reserved only the units handed out from the leases, so units sold from the shards since the last flush show up
+     * as reserved. Emits nothing if the lease no longer exists.
+     */
+    @Query("""
+           WITH lease AS (UPDATE stock_lease
+                          SET held       = :held,
+                              updated_at = clock_timestamp()
+                          WHERE product_id = :productId
+                            AND owner_id = :ownerId
+                          RETURNING product_id),
+                others AS (SELECT COALESCE(SUM(held), 0)::INTEGER AS held
+                           FROM stock_lease
+                           WHERE product_id = :productId
+                             AND owner_id <> :ownerId),
+                current AS (SELECT * FROM inventory WHERE product_id IN (SELECT product_id FROM lease)),
+                outbox AS (INSERT INTO inventory_outbox (event_type, product_id, quantity, reserved)
+                           SELECT 'INVENTORY_UPDATED', product_id, quantity, reserved - :held - others.held
+                           FROM current, others)
+           SELECT * FROM current
+           """)
+    Mono<@NotNull Inventory> recordLease(String productId, String ownerId, int held);
+
+    /**
+     * Marks every lease of the owner as alive and returns the products it still has leases for.
+     */
+    @Query("""
+           UPDATE stock_lease
+           SET updated_at = clock_timestamp()
+           WHERE owner_id = :ownerId
+           RETURNING product_id
+           """)
+    Flux<@NotNull String> touchLeases(String ownerId);
+
+    /**
+     * Returns the units held by every lease of the owner to the available stock and deletes the leases. Used on
+     * startup, when whatever an earlier run under the same owner held is gone with its memory.
+     */
+    @Query("""
+           WITH reclaimed AS (DELETE FROM stock_lease
+                              WHERE owner_id = :ownerId
+                              RETURNING product_id, held),
+           """ + InventoryQueries.RECLAIM_LEASES)
+    Mono<@NotNull Integer> reclaimLeases(String ownerId);
+
+    /**
+     * Returns the units held by leases not touched since {@code before} to the available stock and deletes the leases,
+     * so stock leased by a replica that died is not reserved forever. Leases locked by their owner are skipped.
+     */
+    @Query("""
+           WITH reclaimed AS (DELETE FROM stock_lease
+                              WHERE (product_id, owner_id) IN (SELECT product_id, owner_id
+                                                               FROM stock_lease
+                                                               WHERE updated_at < :before
+                                                               FOR UPDATE SKIP LOCKED)
+                              RETURNING product_id, held),
+           """ + InventoryQueries.RECLAIM_LEASES)
+    Mono<@NotNull Integer> reclaimExpiredLeases(Instant before);
+
+    /**
+     * Reserves stock under a hold of the owner that expires after the TTL. Placing a hold the owner already has adds to
+     * it and restarts its TTL. The hold row is locked before the inventory row, the same order the release statements
+     * use.
+     */
+    @Query("""
+           WITH existing AS (SELECT held
+                             FROM stock_hold
+                             WHERE product_id = :productId
+                               AND owner_id = :ownerId
+                             FOR UPDATE),
+                updated AS (UPDATE inventory
+                            SET reserved   = reserved + :quantity,
+                                updated_at = clock_timestamp()
+                            WHERE product_id = :productId
+                              AND quantity - reserved >= :quantity
+                              AND (SELECT COUNT(*) FROM existing) >= 0
+                            RETURNING *),
+                placed AS (INSERT INTO stock_hold (product_id, owner_id, held, expires_at)
+                           SELECT product_id, :ownerId, :quantity,
+                                  clock_timestamp() + :ttlMillis * INTERVAL '1 millisecond'
+                           FROM updated
+                           ON CONFLICT (product_id, owner_id) DO UPDATE SET held       = stock_hold.held + EXCLUDED.held,
+                                                                            expires_at = EXCLUDED.expires_at
+                           RETURNING owner_id, held, expires_at),
+           """ + InventoryQueries.OUTBOX + """
+           SELECT updated.*, placed.owner_id, placed.held, placed.expires_at, TRUE AS applied
+           FROM updated
+                    CROSS JOIN placed
+           UNION ALL
+           SELECT inventory.*, NULL, NULL, NULL, FALSE AS applied
+           FROM inventory
+           WHERE product_id = :productId
+             AND NOT EXISTS (SELECT 1 FROM updated)
+           """)
+    Mono<@NotNull HoldMutation> placeHold(String productId, String ownerId, int quantity, long ttlMillis);
+
+    /**
+     * Deletes the hold and returns its stock to the available pool. Emits nothing when the owner has no hold, so a
+     * hold released concurrently by its owner and by the expiry sweep is released once.
+     */
+    @Query("""
+           WITH released AS (DELETE FROM stock_hold
+                             WHERE product_id = :productId
+                               AND owner_id = :ownerId
+                             RETURNING product_id, held),
+                updated AS (UPDATE inventory
+                            SET reserved   = GREATEST(inventory.reserved - released.held, 0),
+                                updated_at = clock_timestamp()
+                            FROM released
+                            WHERE inventory.product_id = released.product_id
+                            RETURNING inventory.*),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Mono<@NotNull Inventory> releaseHold(String productId, String ownerId);
+
+    /**
+     * Deletes the hold and deducts its stock. Emits nothing when the owner has no hold.
+     */
+    @Query("""
+           WITH confirmed AS (DELETE FROM stock_hold
+                              WHERE product_id = :productId
+                                AND owner_id = :ownerId
+                              RETURNING product_id, held),
+                updated AS (UPDATE inventory
+                            SET quantity   = inventory.quantity - confirmed.held,
+                                reserved   = GREATEST(inventory.reserved - confirmed.held, 0),
+                                updated_at = clock_timestamp()
+                            FROM confirmed
+                            WHERE inventory.product_id = confirmed.product_id
+                            RETURNING inventory.*),
+           """ + InventoryQueries.OUTBOX + "SELECT * FROM updated")
+    Mono<@NotNull Inventory> confirmHold(String productId, String ownerId);
+
+    /**
+     * Releases up to {@code limit} expired holds, oldest first, and returns how many were released. Holds locked by a
+     * concurrent sweep are skipped, so replicas sweep disjoint batches.
+     */
+    @Query("""
+           WITH expired AS (DELETE FROM stock_hold
+                            WHERE (product_id, owner_id) IN (SELECT product_id, owner_id
+                                                             FROM stock_hold
+                                                             WHERE expires_at <= clock_timestamp()
+                                                             ORDER BY expires_at
+                                                             LIMIT :limit
+                                                             FOR UPDATE SKIP LOCKED)
+                            RETURNING product_id, held),
+                released AS (SELECT product_id, SUM(held)::INTEGER AS held FROM expired GROUP BY product_id),
+                locked AS (SELECT inventory.id, released.held
+                           FROM inventory
+                                    JOIN released ON released.product_id = inventory.product_id
+                           ORDER BY inventory.product_id
+                           FOR UPDATE OF inventory),
+                updated AS (UPDATE inventory
+                            SET reserved   = GREATEST(inventory.reserved - locked.held, 0),
+                                updated_at = clock_timestamp()
+                            FROM locked
+                            WHERE inventory.id = locked.id
+                            RETURNING inventory.product_id, inventory.quantity, inventory.reserved),
+           """ + InventoryQueries.OUTBOX + "SELECT COUNT(*)::INTEGER FROM expired")
+    Mono<@NotNull Integer> releaseExpiredHolds(int limit);
+
+    @Query("SELECT expires_at FROM stock_hold ORDER BY expires_at LIMIT 1")
+    Mono<@NotNull Instant> findNextHoldExpiry();
+
+    /**
+     * Records the order events as processed and returns those that were not recorded before. Keys are inserted in a
+     * fixed order, so concurrent claims of overlapping batches cannot deadlock; the later claim waits for the earlier
+     * transaction and then skips its keys.
+     */
+    @Query("""
+           INSERT INTO processed_order_event (order_id, event_type)
+           SELECT order_id, event_type
+           FROM unnest(CAST(:orderIds AS VARCHAR[]), CAST(:eventTypes AS VARCHAR[])) AS e (order_id, event_type)
+           ORDER BY order_id, event_type
+           ON CONFLICT DO NOTHING
+           RETURNING order_id, event_type
+           """)
+    Flux<@NotNull OrderEventKey> claimOrderEvents(String[] orderIds, String[] eventTypes);
+
+    /**
+     * Marks processed order events that could not be applied in full, so they can be found and reconciled.
+     */
+    @Modifying
+    @Query("""
+           UPDATE processed_order_event
+           SET rejected = TRUE
+           FROM unnest(CAST(:orderIds AS VARCHAR[]), CAST(:eventTypes AS VARCHAR[])) AS e (order_id, event_type)
+           WHERE processed_order_event.order_id = e.order_id
+             AND processed_order_event.event_type = e.event_type
+           """)
+    Mono<@NotNull Integer> rejectOrderEvents(String[] orderIds, String[] eventTypes);
+
+    @Modifying
+    @Query("""
+           DELETE FROM processed_order_event
+           WHERE (order_id, event_type) IN (SELECT order_id, event_type
+                                            FROM processed_order_event
+                                            WHERE processed_at < :before
+                                            LIMIT :limit)
+           """)
+    Mono<@NotNull Integer> deleteProcessedOrderEvents(Instant before, int limit);
+
+    /**
+     * Appends a pending movement instead of updating the snapshot, so concurrent additions to one product never wait
+     * for each other. Creates an empty snapshot for a new product and returns the snapshot plus all pending movements.
+     */
+    @Query("""
+           WITH snapshot AS (INSERT INTO inventory (product_id, quantity, reserved, created_at, updated_at)
+                             VALUES (:productId, 0, 0, clock_timestamp(), clock_timestamp())
+                             ON CONFLICT (product_id) DO NOTHING
+                             RETURNING *),
+                movement AS (INSERT INTO stock_movement (product_id, quantity_delta)
+                             VALUES (:productId, :quantity)
+                             RETURNING created_at)
+           SELECT current.id,
+                  current.product_id,
+                  (current.quantity + :quantity + COALESCE((SELECT SUM(quantity_delta)
+                                                            FROM stock_movement
+                                                            WHERE product_id = :productId
+                                                              AND compacted_at IS NULL), 0))::INTEGER AS quantity,
+                  current.reserved,
+                  current.created_at,
+                  movement.created_at AS updated_at
+           FROM (SELECT * FROM snapshot UNION ALL SELECT * FROM inventory WHERE product_id = :productId) AS current
+                    CROSS JOIN movement
+           """)
+    Mono<@NotNull Inventory> appendStock(String productId, int quantity);
+
+    /**
+     * Returns the snapshots with their pending movements applied.
+     */
+    @Query("""
+           SELECT inventory.id,
+                  inventory.product_id,
+                  (inventory.quantity + COALESCE(SUM(stock_movement.quantity_delta), 0))::INTEGER AS quantity,
+                  inventory.reserved,
+                  inventory.created_at,
+                  GREATEST(inventory.updated_at, MAX(stock_movement.created_at))                AS updated_at
+           FROM inventory
+                    LEFT JOIN stock_movement ON stock_movement.product_id = inventory.product_id
+               AND stock_movement.compacted_at IS NULL
+           WHERE inventory.product_id IN (:productIds)
+           GROUP BY inventory.id
+           """)
+    Flux<@NotNull Inventory> findViewByProductIdIn(Collection<String> productIds);
+
+    /**
+     * Folds up to {@code limit} of the oldest pending movements into their snapshots and returns how many were folded.
+     * Movements locked by a concurrent compaction are skipped.
+     */
+    @Query("""
+           WITH batch AS (UPDATE stock_movement
+                          SET compacted_at = clock_timestamp()
+                          WHERE id IN (SELECT id
+                                       FROM stock_movement
+                                       WHERE compacted_at IS NULL
+                                       ORDER BY id
+                                       LIMIT :limit
+                                       FOR UPDATE SKIP LOCKED)
+                          RETURNING product_id, quantity_delta),
+           """ + InventoryQueries.COMPACT)
+    Mono<@NotNull Integer> compactStock(int limit);
+
+    /**
+     * Folds every pending movement of the products into their snapshots and returns how many were folded.
+     */
+    @Query("""
+           WITH batch AS (UPDATE stock_movement
+                          SET compacted_at = clock_timestamp()
+                          WHERE id IN (SELECT id
+                                       FROM stock_movement
+                                       WHERE compacted_at IS NULL
+                                         AND product_id = ANY (CAST(:productIds AS VARCHAR[]))
+                                       ORDER BY id
+                                       FOR UPDATE)
+                          RETURNING product_id, quantity_delta),
+           """ + InventoryQueries.COMPACT)
+    Mono<@NotNull Integer> compactStock(String[] productIds);
+
+    /**
+     * Returns the stock of the product as it was at the given time: the latest recorded state at or before it plus
+     * the movements made by then that the state does not include yet.
+     */
+    @Query("""
+           WITH state AS (SELECT quantity, reserved, created_at
+                          FROM (SELECT quantity, reserved, created_at
+                                FROM stock_history
+                                WHERE product_id = :productId
+                                  AND created_at <= :at
+                                UNION ALL
+                                SELECT quantity, reserved, created_at
+                                FROM inventory_outbox
+                                WHERE product_id = :productId
+                                  AND event_type = 'INVENTORY_UPDATED'
+                                  AND created_at <= :at) AS states
+                          ORDER BY created_at DESC
+                          LIMIT 1),
+                unfolded AS (SELECT COUNT(*) AS movements, COALESCE(SUM(quantity_delta), 0)::INTEGER AS quantity
+                             FROM stock_movement
+                             WHERE product_id = :productId
+                               AND created_at <= :at
+                               AND (compacted_at IS NULL
+                                 OR compacted_at > COALESCE((SELECT created_at FROM state), '-infinity')))
+           SELECT :productId                                               AS product_id,
+                  (COALESCE(state.quantity, 0) + unfolded.quantity)::INTEGER AS quantity,
+                  COALESCE(state.reserved, 0)                              AS reserved,
+                  state.created_at                                         AS updated_at
+           FROM unfolded
+                    LEFT JOIN state ON TRUE
+           WHERE state.created_at IS NOT NULL
+              OR unfolded.movements > 0
+           """)
+    Mono<@NotNull Inventory> findAsOf(String productId, Instant at);
+
+    /**
+     * Deletes recorded states and folded movements older than the given time, keeping the latest state of every
+     * product so that later points in time can still be reconstructed.
+     */
+    @Query("""
+           WITH history AS (DELETE FROM stock_history
+                            WHERE id IN (SELECT id
+                                         FROM stock_history AS old
+                                         WHERE created_at < :before
+                                           AND EXISTS (SELECT 1
+                                                       FROM stock_history AS newer
+                                                       WHERE newer.product_id = old.product_id
+                                                         AND newer.created_at < :before
+                                                         AND newer.id > old.id)
+                                         LIMIT :limit)
+                            RETURNING id),
+                movements AS (DELETE FROM stock_movement
+                              WHERE id IN (SELECT id FROM stock_movement WHERE compacted_at < :before LIMIT :limit)
+                              RETURNING id)
+           SELECT (SELECT COUNT(*) FROM history) + (SELECT COUNT(*) FROM movements)
+           """)
+    Mono<@NotNull Long> deleteLedgerBefore(Instant before, int limit);
 
 }
@@ -0,0 +1,88 @@
+package com.sogeor.service.inventory.repository;
+
+import com.sogeor.service.inventory.domain.LowStockThreshold;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface LowStockThresholdRepository extends R2dbcRepository<@NotNull LowStockThreshold, @NotNull String> {
+
+    /**
+     * Sets the thresholds of a product and records a {@code THRESHOLD_CHANGED} outbox message, so every replica picks
+     * them up.
+     */
+    @Query("""
+           WITH saved AS (INSERT INTO inventory_threshold (product_id, threshold, rearm_threshold, alerted, updated_at)
+                          VALUES (:productId, :threshold, :rearmThreshold, FALSE, clock_timestamp())
+                          ON CONFLICT (product_id) DO UPDATE SET threshold       = EXCLUDED.threshold,
+                                                                 rearm_threshold = EXCLUDED.rearm_threshold,
+                                                                 updated_at      = clock_timestamp()
+                          RETURNING *),
+                outbox AS (INSERT INTO inventory_outbox (event_type, product_id, threshold)
+                           SELECT 'THRESHOLD_CHANGED', product_id, threshold FROM saved)
+           SELECT * FROM saved
+           """)
+    Mono<@NotNull LowStockThreshold> upsert(String productId, int threshold, int rearmThreshold);
+
+    /**
+     * Removes the thresholds of a product and records a {@code THRESHOLD_CHANGED} outbox message without a threshold.
+     */
+    @Modifying
+    @Query("""
+           WITH removed AS (DELETE FROM inventory_threshold WHERE product_id = :productId RETURNING product_id)
+           INSERT INTO inventory_outbox (event_type, product_id)
+           SELECT 'THRESHOLD_CHANGED', product_id FROM removed
+           """)
+    Mono<@NotNull Integer> remove(String productId);
+
+    /**
+     * Marks the threshold of a product as alerted and records a {@code LOW_STOCK} outbox message, provided the current
+     * available stock is below the threshold and no replica has alerted yet. Emits nothing otherwise. Units leased to
+     * flash-sale replicas and still held by them count as available.
+     */
+    @Query("""
+           WITH current AS (SELECT product_id,
+                                   quantity - reserved + COALESCE((SELECT SUM(held)
+                                                                   FROM stock_lease
+                                                                   WHERE stock_lease.product_id = :productId), 0)
+                                       AS available
+                            FROM inventory
+                            WHERE product_id = :productId),
+                alerted AS (UPDATE inventory_threshold
+                            SET alerted    = TRUE,
+                                updated_at = clock_timestamp()
+                            FROM current
+                            WHERE inventory_threshold.product_id = :productId
+                              AND current.product_id = inventory_threshold.product_id
+                              AND NOT inventory_threshold.alerted
+                              AND current.available < inventory_threshold.threshold
+                            RETURNING inventory_threshold.*, current.available),
+                outbox AS (INSERT INTO inventory_outbox (event_type, product_id, quantity, threshold)
+                           SELECT 'LOW_STOCK', product_id, available, threshold FROM alerted)
+           SELECT product_id, threshold, rearm_threshold, alerted, updated_at FROM alerted
+           """)
+    Mono<@NotNull LowStockThreshold> alert(String productId);
+
+    /**
+     * Re-arms the threshold of a product once its current available stock is back at the re-arm threshold.
+     */
+    @Query("""
+           UPDATE inventory_threshold
+           SET alerted    = FALSE,
+               updated_at = clock_timestamp()
+           FROM inventory
+           WHERE inventory_threshold.product_id = :productId
+             AND inventory.product_id = inventory_threshold.product_id
+             AND inventory_threshold.alerted
+             AND inventory.quantity - inventory.reserved +
+                 COALESCE((SELECT SUM(held) FROM stock_lease WHERE stock_lease.product_id = :productId), 0) >=
+                 inventory_threshold.rearm_threshold
+           RETURNING inventory_threshold.*
+           """)
+    Mono<@NotNull LowStockThreshold> rearm(String productId);
+
+}
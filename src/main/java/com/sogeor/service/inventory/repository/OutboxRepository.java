@@ -0,0 +1,56 @@
+package com.sogeor.service.inventory.repository;
+
+import com.sogeor.service.inventory.domain.OutboxMessage;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface OutboxRepository extends R2dbcRepository<@NotNull OutboxMessage, @NotNull Long> {
+
+    @Query("SELECT pg_try_advisory_xact_lock(:key)")
+    Mono<@NotNull Boolean> tryLock(long key);
+
+    @Query("SELECT * FROM inventory_outbox ORDER BY id LIMIT :limit")
+    Flux<@NotNull OutboxMessage> findOldest(int limit);
+
+    @Modifying
+    @Query("DELETE FROM inventory_outbox WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+    Mono<@NotNull Integer> deleteByIds(Long[] ids);
+
+    /**
+     * Deletes the messages, moving the recorded stock states into the ledger history.
+     */
+    @Query("""
+           WITH deleted AS (DELETE FROM inventory_outbox WHERE id = ANY (CAST(:ids AS BIGINT[])) RETURNING *),
+                archived AS (INSERT INTO stock_history (product_id, quantity, reserved, created_at)
+                             SELECT product_id, quantity, reserved, created_at
+                             FROM deleted
+                             WHERE event_type = 'INVENTORY_UPDATED')
+           SELECT COUNT(*)::INTEGER FROM deleted
+           """)
+    Mono<@NotNull Integer> archiveByIds(Long[] ids);
+
+    /**
+     * Estimates the number of waiting messages from the range of their ids, which takes two index lookups instead of a
+     * scan. Ids skipped by rolled-back transactions are counted as well.
+     */
+    @Query("SELECT COALESCE(max(id) - min(id) + 1, 0) FROM inventory_outbox")
+    Mono<@NotNull Long> estimateDepth();
+
+    /**
+     * Returns the age of the message with the lowest id, looked up through the primary key.
+     */
+    @Query("""
+           SELECT COALESCE((SELECT CAST(EXTRACT(EPOCH FROM clock_timestamp() - created_at) * 1000 AS BIGINT)
+                            FROM inventory_outbox
+                            ORDER BY id
+                            LIMIT 1), 0)
+           """)
+    Mono<@NotNull Long> findLagMillis();
+
+}
@@ -0,0 +1,39 @@
+package com.sogeor.service.inventory.repository;
+
+import com.sogeor.service.inventory.domain.OwnershipCheckpoint;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface OwnershipCheckpointRepository extends R2dbcRepository<@NotNull OwnershipCheckpoint, @NotNull Integer> {
+
+    /**
+     * Takes over a partition by bumping its epoch, which fences off writes of the previous owner.
+     */
+    @Query("""
+           INSERT INTO ownership_checkpoint (partition_id, next_offset, epoch, updated_at)
+           VALUES (:partitionId, 0, 1, clock_timestamp())
+           ON CONFLICT (partition_id) DO UPDATE SET epoch      = ownership_checkpoint.epoch + 1,
+                                                    updated_at = clock_timestamp()
+           RETURNING *
+           """)
+    Mono<@NotNull OwnershipCheckpoint> claim(int partitionId);
+
+    /**
+     * Moves the checkpoint of a partition forward, provided it is still owned with the given epoch.
+     */
+    @Modifying
+    @Query("""
+           UPDATE ownership_checkpoint
+           SET next_offset = :nextOffset,
+               updated_at  = clock_timestamp()
+           WHERE partition_id = :partitionId
+             AND epoch = :epoch
+           """)
+    Mono<@NotNull Integer> advance(int partitionId, long epoch, long nextOffset);
+
+}
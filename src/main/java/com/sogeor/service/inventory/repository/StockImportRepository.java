@@ -0,0 +1,46 @@
+package com.sogeor.service.inventory.repository;
+
+import com.sogeor.service.inventory.domain.StockImport;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface StockImportRepository extends R2dbcRepository<@NotNull StockImport, @NotNull String> {
+
+    /**
+     * Starts a new import or resumes an interrupted one. A completed import stays completed.
+     */
+    @Query("""
+           INSERT INTO stock_import (import_id, status, started_at, updated_at)
+           VALUES (:importId, 'RUNNING', clock_timestamp(), clock_timestamp())
+           ON CONFLICT (import_id) DO UPDATE
+               SET status     = CASE WHEN stock_import.status = 'COMPLETED' THEN 'COMPLETED' ELSE 'RUNNING' END,
+                   updated_at = clock_timestamp()
+           RETURNING *
+           """)
+    Mono<@NotNull StockImport> start(String importId);
+
+    @Query("""
+           UPDATE stock_import
+           SET status       = 'COMPLETED',
+               updated_at   = clock_timestamp(),
+               completed_at = clock_timestamp()
+           WHERE import_id = :importId
+           RETURNING *
+           """)
+    Mono<@NotNull StockImport> complete(String importId);
+
+    @Query("""
+           UPDATE stock_import
+           SET status     = 'INTERRUPTED',
+               updated_at = clock_timestamp()
+           WHERE import_id = :importId
+             AND status = 'RUNNING'
+           RETURNING *
+           """)
+    Mono<@NotNull StockImport> interrupt(String importId);
+
+}
@@ -0,0 +1,349 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounds the stock changes executed against the database at once, so that a single hot product cannot take the whole
+ * connection pool.
+ * <p>
+ * A change is admitted while fewer changes than the global limit are running and each of its products runs fewer than
+ * its share of that limit. Otherwise it waits in the queue of the product that blocks it; products with waiting
+ * changes are served round-robin as changes complete. Changes are rejected right away once their product's or the
+ * global queue is full, and after waiting for too long.
+ * <p>
+ * The global limit follows the latency of completed changes: it grows while recent latency stays within a tolerance of
+ * the long-term latency, shrinks in proportion when it does not, and is cut when a change fails for reasons other
+ * than the request itself.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final double SHORT_WINDOW = 10;
+
+    private static final double LONG_WINDOW = 500;
+
+    private final InventoryProperties.Admission properties;
+
+    private final LongSupplier nanoTime;
+
+    private final Map<String, Product> products = new HashMap<>();
+
+    /**
+     * Products that have waiting changes, in the order they are served.
+     */
+    private final ArrayDeque<Product> waiting = new ArrayDeque<>();
+
+    private final Counter queueFull;
+
+    private final Counter timedOut;
+
+    private double limit;
+
+    private int inFlight;
+
+    private int queued;
+
+    private double shortLatency;
+
+    private double longLatency;
+
+    @Autowired
+    public AdmissionControl(InventoryProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControl(InventoryProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.properties = properties.getAdmission();
+        this.nanoTime = nanoTime;
+        this.limit = this.properties.getInitialLimit();
+        Gauge.builder("inventory.admission.limit", this, AdmissionControl::limit)
+             .description("Stock changes allowed to run concurrently")
+             .register(meterRegistry);
+        Gauge.builder("inventory.admission.in-flight", this, AdmissionControl::inFlight)
+             .description("Stock changes running")
+             .register(meterRegistry);
+        Gauge.builder("inventory.admission.queued", this, AdmissionControl::queued)
+             .description("Stock changes waiting for admission")
+             .register(meterRegistry);
+        this.queueFull = Counter.builder("inventory.admission.rejected")
+                                .tag("reason", "queue-full")
+                                .description("Stock changes rejected without being executed")
+                                .register(meterRegistry);
+        this.timedOut = Counter.builder("inventory.admission.rejected")
+                               .tag("reason", "timeout")
+                               .description("Stock changes rejected without being executed")
+                               .register(meterRegistry);
+    }
+
+    public <T> Mono<@NotNull T> admit(String productId, Mono<@NotNull T> change) {
+        return admit(List.of(productId), change);
+    }
+
+    /**
+     * Subscribes to the change once it is admitted for all the given products.
+     */
+    public <T> Mono<@NotNull T> admit(Collection<String> productIds, Mono<@NotNull T> change) {
+        if (!properties.isEnabled()) {
+            return change;
+        }
+        return Mono.usingWhen(acquire(productIds), permit -> change, permit -> release(permit, true, false),
+                              (permit, error) -> release(permit, true, dropped(error)),
+                              permit -> release(permit, false, false));
+    }
+
+    synchronized double limit() {
+        return limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int queued() {
+        return queued;
+    }
+
+    private Mono<@NotNull Permit> acquire(Collection<String> productIds) {
+        return Mono.<Permit>create(sink -> {
+                       Permit permit = new Permit(new LinkedHashSet<>(productIds), sink);
+                       sink.onCancel(() -> cancel(permit));
+                       offer(permit);
+                   })
+                   .timeout(properties.getMaxWait(), Mono.defer(() -> {
+                       timedOut.increment();
+                       return Mono.error(rejected("Timed out waiting for admission"));
+                   }));
+    }
+
+    private void offer(Permit permit) {
+        boolean admitted;
+        synchronized (this) {
+            Product blocking = blocking(permit, true);
+            admitted = blocking == null;
+            if (admitted) {
+                start(permit);
+            } else if (blocking.queue.size() < properties.getProductQueueSize() &&
+                       queued < properties.getQueueSize()) {
+                if (blocking.queue.isEmpty()) {
+                    waiting.add(blocking);
+                }
+                blocking.queue.add(permit);
+                queued++;
+                return;
+            } else {
+                forget(permit);
+            }
+        }
+        if (admitted) {
+            permit.sink.success(permit);
+        } else {
+            queueFull.increment();
+            permit.sink.error(rejected("Too many concurrent stock changes"));
+        }
+    }
+
+    private void cancel(Permit permit) {
+        List<Permit> admitted;
+        synchronized (this) {
+            if (!permit.started) {
+                if (permit.queued()) {
+                    permit.blocking.queue.remove(permit);
+                    if (permit.blocking.queue.isEmpty()) {
+                        waiting.remove(permit.blocking);
+                    }
+                    queued--;
+                }
+                forget(permit);
+                return;
+            }
+            admitted = finish(permit, false, false);
+        }
+        admitted.forEach(next -> next.sink.success(next));
+    }
+
+    private Mono<@NotNull Void> release(Permit permit, boolean sample, boolean dropped) {
+        return Mono.fromRunnable(() -> {
+            List<Permit> admitted;
+            synchronized (this) {
+                admitted = finish(permit, sample, dropped);
+            }
+            admitted.forEach(next -> next.sink.success(next));
+        });
+    }
+
+    /**
+     * Tells failures caused by the database or an owner, which mean the limit is too high, from rejected requests.
+     */
+    private static boolean dropped(Throwable error) {
+        return !(error instanceof ResponseStatusException e && e.getStatusCode().is4xxClientError());
+    }
+
+    /**
+     * Returns the product that keeps the change from starting, or {@code null} when it may start. Arriving changes
+     * also queue behind changes already waiting for their products.
+     */
+    private Product blocking(Permit permit, boolean arriving) {
+        Product blocking = null;
+        permit.products.clear();
+        int productLimit = (int) Math.max(1, Math.ceil(limit * properties.getProductShare()));
+        for (String productId : permit.productIds) {
+            Product product = products.computeIfAbsent(productId, Product::new);
+            permit.products.add(product);
+            if (blocking == null &&
+                (product.inFlight >= productLimit || arriving && !product.queue.isEmpty())) {
+                blocking = product;
+            }
+        }
+        if (blocking == null && inFlight >= (int) limit) {
+            blocking = permit.products.getFirst();
+        }
+        permit.blocking = blocking;
+        return blocking;
+    }
+
+    private void start(Permit permit) {
+        permit.blocking = null;
+        permit.started = true;
+        permit.startedAt = nanoTime.getAsLong();
+        inFlight++;
+        permit.products.forEach(product -> product.inFlight++);
+    }
+
+    private List<Permit> finish(Permit permit, boolean sample, boolean dropped) {
+        if (!permit.started) {
+            return List.of();
+        }
+        long latency = nanoTime.getAsLong() - permit.startedAt;
+        permit.started = false;
+        inFlight--;
+        permit.products.forEach(product -> product.inFlight--);
+        forget(permit);
+        if (dropped) {
+            limit = Math.max(properties.getMinLimit(), limit * 0.9);
+        } else if (sample) {
+            adapt(latency);
+        }
+        return drain();
+    }
+
+    /**
+     * Moves the limit towards {@code limit * long / short + sqrt(limit)}, the gradient of the latency plus room for
+     * the limit to grow while latency is steady. The limit does not grow while less than half of it is used.
+     */
+    private void adapt(long latency) {
+        if (longLatency == 0) {
+            shortLatency = latency;
+            longLatency = latency;
+            return;
+        }
+        shortLatency += (latency - shortLatency) / SHORT_WINDOW;
+        longLatency += (latency - longLatency) / LONG_WINDOW;
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        double gradient = Math.clamp(properties.getTolerance() * longLatency / shortLatency, 0.5, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        if (inFlight * 2 < limit) {
+            target = Math.min(target, limit);
+        }
+        limit = Math.clamp(0.8 * limit + 0.2 * target, properties.getMinLimit(), properties.getMaxLimit());
+    }
+
+    /**
+     * Admits waiting changes round-robin across products until none of the waiting changes can start.
+     */
+    private List<Permit> drain() {
+        List<Permit> admitted = new ArrayList<>();
+        int skipped = 0;
+        while (inFlight < (int) limit && skipped < waiting.size()) {
+            Product product = waiting.poll();
+            Permit next = product.queue.peek();
+            if (blocking(next, false) == null) {
+                product.queue.poll();
+                queued--;
+                start(next);
+                admitted.add(next);
+                skipped = 0;
+            } else {
+                next.blocking = product;
+                skipped++;
+            }
+            if (!product.queue.isEmpty()) {
+                waiting.add(product);
+            } else if (product.inFlight == 0) {
+                products.remove(product.productId, product);
+            }
+        }
+        return admitted;
+    }
+
+    private void forget(Permit permit) {
+        for (Product product : permit.products) {
+            if (product.inFlight == 0 && product.queue.isEmpty()) {
+                products.remove(product.productId, product);
+            }
+        }
+    }
+
+    private AdmissionRejectedException rejected(String reason) {
+        return new AdmissionRejectedException(reason, properties.getRetryAfter());
+    }
+
+    private static final class Product {
+
+        private final String productId;
+
+        private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+
+        private int inFlight;
+
+        Product(String productId) {
+            this.productId = productId;
+        }
+
+    }
+
+    private static final class Permit {
+
+        private final Collection<String> productIds;
+
+        private final MonoSink<Permit> sink;
+
+        private final List<Product> products = new ArrayList<>();
+
+        private Product blocking;
+
+        private boolean started;
+
+        private long startedAt;
+
+        Permit(Collection<String> productIds, MonoSink<Permit> sink) {
+            this.productIds = productIds;
+            this.sink = sink;
+        }
+
+        boolean queued() {
+            return blocking != null && blocking.queue.contains(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.LocationStock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chooses the locations stock is reserved from. The strategy in use is selected by its name with
+ * {@code inventory.locations.strategy}; further strategies can be added as beans.
+ */
+public interface AllocationStrategy {
+
+    String name();
+
+    /**
+     * Splits the quantity over the locations, which are given in order of preference. Returns an empty list if the
+     * locations do not have enough available stock together.
+     */
+    List<Allocation> allocate(int quantity, List<LocationStock> locations);
+
+    /**
+     * Takes the quantity from the locations in the given order, each giving as much of its available stock as it has.
+     */
+    static List<Allocation> fill(int quantity, List<LocationStock> locations) {
+        List<Allocation> allocations = new ArrayList<>();
+        int remaining = quantity;
+        for (LocationStock location : locations) {
+            int taken = Math.min(remaining, location.available());
+            if (taken > 0) {
+                allocations.add(new Allocation(location.getLocationId(), taken));
+                remaining -= taken;
+            }
+        }
+        return remaining == 0 ? allocations : List.of();
+    }
+
+    record Allocation(String locationId, int quantity) {}
+
+}
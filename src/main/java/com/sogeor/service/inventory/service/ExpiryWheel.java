@@ -0,0 +1,59 @@
+package com.sogeor.service.inventory.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hashed timing wheel that tells the hold sweeper when a deadline has passed.
+ * <p>
+ * A slot keeps only the earliest absolute tick scheduled into it, so the wheel needs constant memory however many
+ * holds are live. A later deadline hashed into an occupied slot is dropped; it is not lost, because every sweep
+ * reschedules the earliest expiry left in the database.
+ */
+final class ExpiryWheel {
+
+    private static final long EMPTY = Long.MAX_VALUE;
+
+    private final long tickMillis;
+
+    private final AtomicLongArray slots;
+
+    private volatile long cursor;
+
+    ExpiryWheel(Duration tick, int size, long nowMillis) {
+        this.tickMillis = tick.toMillis();
+        this.slots = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots.set(i, EMPTY);
+        }
+        this.cursor = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    void schedule(long deadlineMillis) {
+        long tick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), cursor + 1);
+        slots.accumulateAndGet(slot(tick), tick, Math::min);
+    }
+
+    /**
+     * Moves the wheel to the given time and reports whether a scheduled deadline has passed since the previous call.
+     * Must not be called concurrently.
+     */
+    boolean advance(long nowMillis) {
+        long now = Math.floorDiv(nowMillis, tickMillis);
+        boolean due = false;
+        for (long tick = Math.max(cursor + 1, now - slots.length() + 1); tick <= now; tick++) {
+            int slot = slot(tick);
+            long scheduled = slots.get(slot);
+            if (scheduled <= now && slots.compareAndSet(slot, scheduled, EMPTY)) {
+                due = true;
+            }
+        }
+        cursor = Math.max(cursor, now);
+        return due;
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.length());
+    }
+
+}
@@ -0,0 +1,341 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.StockLease;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Serves reservations of flash-sale products from in-memory shards.
+ * <p>
+ * Stock never reaches the shards without first being moved into {@code reserved} in the database under a lease of
+ * this replica, so the database never shows as available anything a replica may hand out. A graceful shutdown returns
+ * whatever is left in the shards.
+ * <p>
+ * Every flush touches the leases of this replica. Leases left untouched for the lease timeout, such as those of a
+ * replica that crashed, are reclaimed by any replica and their units returned to the available stock; leases of an
+ * earlier run under the same owner are reclaimed on startup. A replica serves from its shards only while its last
+ * touch is less than half the timeout old and falls back to reserving in the database otherwise, so it never hands out
+ * units that may already have been reclaimed.
+ * <p>
+ * Each flush publishes the product with the units sold from the shards counted as reserved and evaluates its low-stock
+ * threshold, so watchers and alerts follow flash-sale products as well.
+ * <p>
+ * Deactivating a product closes its shards before draining them. Units that reach or leave closed shards afterwards,
+ * through a refill or a reservation already under way, are returned to the database and the reservation falls back to
+ * it.
+ */
+@Slf4j
+@Service
+public class FlashSaleService {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryCache inventoryCache;
+
+    private final LowStockAlertEngine lowStockAlertEngine;
+
+    private final InventoryProperties.FlashSale properties;
+
+    private final Set<String> flashSaleProducts = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, HotStock> hotStocks = new ConcurrentHashMap<>();
+
+    private volatile boolean closing;
+
+    private volatile boolean started;
+
+    private volatile long leasedUntil = System.nanoTime();
+
+    public FlashSaleService(InventoryRepository inventoryRepository, InventoryCache inventoryCache,
+                            LowStockAlertEngine lowStockAlertEngine, InventoryProperties properties) {
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryCache = inventoryCache;
+        this.lowStockAlertEngine = lowStockAlertEngine;
+        this.properties = properties.getFlashSale();
+    }
+
+    public boolean isFlashSale(String productId) {
+        return !closing && isLeaseValid() && flashSaleProducts.contains(productId);
+    }
+
+    /**
+     * Reserves from the shards of the product, or emits nothing if the product is no longer served from them, in which
+     * case the caller reserves in the database.
+     */
+    public Mono<@NotNull Inventory> reserveStock(String productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be positive"));
+        }
+        return Mono.defer(() -> {
+            HotStock stock = hotStocks.computeIfAbsent(productId, id -> isFlashSale(id)
+                                                                        ? new HotStock(new StockShards(shardCount()))
+                                                                        : null);
+            if (stock == null) {
+                return Mono.empty();
+            }
+            if (stock.shards.tryAcquire(quantity)) {
+                return acquired(productId, stock, quantity);
+            }
+            return refill(productId, stock, quantity).flatMap(granted -> {
+                if (stock.shards.tryAcquire(quantity)) {
+                    return acquired(productId, stock, quantity);
+                }
+                if (stock.closed) {
+                    return Mono.empty();
+                }
+                return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                                              "Insufficient stock for product: " + productId));
+            });
+        });
+    }
+
+    /**
+     * Adjusts a database snapshot of a flash-sale product so that units held in the local shards are not shown as
+     * reserved.
+     */
+    public Inventory localView(Inventory inventory) {
+        HotStock stock = hotStocks.get(inventory.getProductId());
+        if (stock == null || !isLeaseValid()) {
+            return inventory;
+        }
+        return Inventory.builder()
+                        .id(inventory.getId())
+                        .productId(inventory.getProductId())
+                        .quantity(inventory.getQuantity())
+                        .reserved(inventory.getReserved() - stock.shards.available())
+                        .createdAt(inventory.getCreatedAt())
+                        .updatedAt(inventory.getUpdatedAt())
+                        .build();
+    }
+
+    public Mono<@NotNull Void> setFlashSale(String productId, boolean enabled) {
+        return inventoryRepository.setFlashSale(productId, enabled).flatMap(updated -> {
+            if (updated == 0) {
+                return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                                              "Inventory not found for product: " + productId));
+            }
+            if (enabled) {
+                flashSaleProducts.add(productId);
+                return Mono.empty();
+            }
+            return deactivate(productId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flash-sale.flush-interval:1s}")
+    public void flush() {
+        if (closing) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean lapsed = !isLeaseValid();
+        Mono<@NotNull Integer> reclaimOwn = started
+                                            ? Mono.just(0)
+                                            : inventoryRepository.reclaimLeases(properties.getOwnerId())
+                                                                 .doOnNext(reclaimed -> started = true);
+        reclaimOwn.thenMany(inventoryRepository.touchLeases(properties.getOwnerId()))
+                  .collect(Collectors.toSet())
+                  .doOnNext(leased -> {
+                      if (lapsed) {
+                          dropReclaimed(leased);
+                      }
+                      leasedUntil = start + properties.getLeaseTimeout().toNanos() / 2;
+                  })
+                  .then(inventoryRepository.findFlashSaleProductIds().collect(Collectors.toSet()))
+                  .doOnNext(products -> {
+                      flashSaleProducts.addAll(products);
+                      flashSaleProducts.retainAll(products);
+                  })
+                  .thenMany(Flux.fromIterable(hotStocks.entrySet()))
+                  .flatMap(entry -> flashSaleProducts.contains(entry.getKey())
+                                    ? flush(entry.getKey(), entry.getValue())
+                                    : deactivate(entry.getKey()), properties.getMaxConcurrency())
+                  .then(inventoryRepository.reclaimExpiredLeases(Instant.now().minus(properties.getLeaseTimeout())))
+                  .doOnNext(reclaimed -> {
+                      if (reclaimed > 0) {
+                          log.warn("Reclaimed {} expired flash-sale leases", reclaimed);
+                      }
+                  })
+                  .onErrorResume(e -> {
+                      log.error("Failed to flush flash-sale stock: {}", e.getMessage());
+                      return Mono.empty();
+                  })
+                  .then()
+                  .block(properties.getTimeout());
+    }
+
+    @PreDestroy
+    public void handOff() {
+        closing = true;
+        Flux.fromIterable(Set.copyOf(hotStocks.keySet()))
+            .flatMap(this::deactivate, properties.getMaxConcurrency())
+            .then()
+            .block(properties.getTimeout());
+    }
+
+    private Mono<@NotNull Integer> refill(String productId, HotStock stock, int quantity) {
+        for (; ; ) {
+            Mono<@NotNull Integer> inFlight = stock.refill.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            Mono<@NotNull Integer> refill = inventoryRepository.leaseStock(productId, properties.getOwnerId(),
+                                                                           Math.max(properties.getLeaseSize(),
+                                                                                    quantity))
+                                                               .flatMap(lease -> {
+                                                                   stock.shards.add(lease.getGranted());
+                                                                   stock.update(lease);
+                                                                   inventoryCache.invalidate(productId);
+                                                                   return granted(productId, stock, lease);
+                                                               })
+                                                               .defaultIfEmpty(0)
+                                                               .doFinally(signal -> stock.refill.set(null))
+                                                               .cache();
+            if (stock.refill.compareAndSet(null, refill)) {
+                return refill;
+            }
+        }
+    }
+
+    /**
+     * Serves units taken from the shards, unless the product was deactivated meanwhile. Its shards are no longer
+     * flushed then, so the units are returned and the reservation falls back to the database.
+     */
+    private Mono<@NotNull Inventory> acquired(String productId, HotStock stock, int quantity) {
+        if (!stock.closed) {
+            return Mono.just(stock.view(productId));
+        }
+        return returnStock(productId, stock, quantity).then(Mono.empty());
+    }
+
+    /**
+     * Emits the units a refill added to the shards, or returns whatever the shards hold if the product was deactivated
+     * while the lease was being taken, as nothing drains them any more.
+     */
+    private Mono<@NotNull Integer> granted(String productId, HotStock stock, StockLease lease) {
+        if (!stock.closed) {
+            return Mono.just(lease.getGranted());
+        }
+        int drained = stock.shards.drain();
+        return drained > 0 ? returnStock(productId, stock, drained).thenReturn(0) : Mono.just(0);
+    }
+
+    private Mono<@NotNull Void> flush(String productId, HotStock stock) {
+        int held = stock.shards.available();
+        if (held > 2 * properties.getLeaseSize()) {
+            int surplus = stock.shards.takeUpTo(held - properties.getLeaseSize());
+            return returnStock(productId, stock, surplus);
+        }
+        if (held == stock.flushedHeld) {
+            return Mono.empty();
+        }
+        return inventoryRepository.recordLease(productId, properties.getOwnerId(), held)
+                                  .doOnNext(inventory -> {
+                                      stock.update(inventory.getQuantity(), inventory.getReserved());
+                                      stock.flushedHeld = held;
+                                      lowStockAlertEngine.evaluate(localView(inventory));
+                                  })
+                                  .then();
+    }
+
+    /**
+     * Empties the shards of products whose lease was reclaimed while this replica could not touch it, as their units
+     * are available in the database again. Shards being refilled are left alone, as the refill creates a new lease.
+     */
+    private void dropReclaimed(Set<String> leased) {
+        hotStocks.forEach((productId, stock) -> {
+            if (!leased.contains(productId) && stock.refill.get() == null) {
+                int dropped = stock.shards.drain();
+                stock.flushedHeld = -1;
+                if (dropped > 0) {
+                    log.warn("Dropped {} flash-sale units of product {} whose lease was reclaimed", dropped, productId);
+                }
+            }
+        });
+    }
+
+    private boolean isLeaseValid() {
+        return System.nanoTime() - leasedUntil < 0;
+    }
+
+    private Mono<@NotNull Void> deactivate(String productId) {
+        flashSaleProducts.remove(productId);
+        HotStock stock = hotStocks.remove(productId);
+        if (stock == null) {
+            return Mono.empty();
+        }
+        stock.closed = true;
+        return returnStock(productId, stock, stock.shards.drain());
+    }
+
+    private Mono<@NotNull Void> returnStock(String productId, HotStock stock, int quantity) {
+        int held = stock.closed ? 0 : stock.shards.available();
+        return inventoryRepository.returnStock(productId, properties.getOwnerId(), quantity, held)
+                                  .doOnNext(inventory -> {
+                                      stock.update(inventory.getQuantity(), inventory.getReserved());
+                                      stock.flushedHeld = held;
+                                      inventoryCache.put(inventory);
+                                      lowStockAlertEngine.evaluate(localView(inventory));
+                                  })
+                                  .then();
+    }
+
+    private int shardCount() {
+        return properties.getShards() > 0 ? properties.getShards() : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static final class HotStock {
+
+        private final StockShards shards;
+
+        private final AtomicReference<Mono<@NotNull Integer>> refill = new AtomicReference<>();
+
+        private volatile int quantity;
+
+        private volatile int reserved;
+
+        private volatile int flushedHeld = -1;
+
+        private volatile boolean closed;
+
+        private HotStock(StockShards shards) {
+            this.shards = shards;
+        }
+
+        private void update(StockLease lease) {
+            update(lease.getQuantity(), lease.getReserved());
+        }
+
+        private void update(int quantity, int reserved) {
+            this.quantity = quantity;
+            this.reserved = reserved;
+        }
+
+        private Inventory view(String productId) {
+            return Inventory.builder()
+                            .productId(productId)
+                            .quantity(quantity)
+                            .reserved(reserved - shards.available())
+                            .build();
+        }
+
+    }
+
+}
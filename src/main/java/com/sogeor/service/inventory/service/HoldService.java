@@ -0,0 +1,135 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.HoldMutation;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Time-limited reservations owned by an order or cart.
+ * <p>
+ * A hold is a {@code stock_hold} row next to the {@code reserved} it accounts for, and every transition deletes the row
+ * in the same statement that returns its stock, so a hold is released or confirmed exactly once whoever gets there
+ * first. Expired holds are released in batches through the {@code expires_at} index; an in-memory {@link ExpiryWheel}
+ * decides when a sweep is worth running, and a periodic probe of the earliest expiry in the database covers holds
+ * placed by other replicas or before a restart.
+ */
+@Slf4j
+@Service
+public class HoldService {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryService inventoryService;
+
+    private final InventoryProperties.Holds properties;
+
+    private final ExpiryWheel wheel;
+
+    private final Counter expired;
+
+    public HoldService(InventoryRepository inventoryRepository, InventoryService inventoryService,
+                       InventoryProperties properties, MeterRegistry meterRegistry) {
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryService = inventoryService;
+        this.properties = properties.getHolds();
+        this.wheel = new ExpiryWheel(this.properties.getTick(), this.properties.getWheelSize(),
+                                     System.currentTimeMillis());
+        this.expired = Counter.builder("inventory.holds.expired")
+                              .description("Holds released because their TTL elapsed")
+                              .register(meterRegistry);
+    }
+
+    public Mono<@NotNull HoldMutation> placeHold(String productId, String ownerId, Integer quantity, Duration ttl) {
+        if (quantity == null || quantity <= 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be positive"));
+        }
+        Duration effectiveTtl = ttl == null ? properties.getDefaultTtl() : ttl;
+        if (effectiveTtl.isNegative() || effectiveTtl.isZero() || effectiveTtl.compareTo(properties.getMaxTtl()) > 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                                          "TTL must be positive and at most " + properties.getMaxTtl()));
+        }
+        return inventoryRepository.placeHold(productId, ownerId, quantity, effectiveTtl.toMillis())
+                                  .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                                          HttpStatus.NOT_FOUND, "Inventory not found for product: " + productId)))
+                                  .flatMap(mutation -> mutation.isApplied()
+                                                       ? Mono.just(mutation)
+                                                       : Mono.error(new ResponseStatusException(
+                                                               HttpStatus.CONFLICT,
+                                                               "Insufficient stock for product: " + productId)))
+                                  .doOnSuccess(mutation -> {
+                                      wheel.schedule(mutation.getExpiresAt().toEpochMilli());
+                                      inventoryService.onUpdated(mutation.toInventory());
+                                  });
+    }
+
+    public Mono<@NotNull Inventory> releaseHold(String productId, String ownerId) {
+        return inventoryRepository.releaseHold(productId, ownerId)
+                                  .switchIfEmpty(Mono.error(() -> holdNotFound(productId, ownerId)))
+                                  .doOnSuccess(inventoryService::onUpdated);
+    }
+
+    public Mono<@NotNull Inventory> confirmHold(String productId, String ownerId) {
+        return inventoryRepository.confirmHold(productId, ownerId)
+                                  .switchIfEmpty(Mono.error(() -> holdNotFound(productId, ownerId)))
+                                  .doOnSuccess(inventoryService::onUpdated);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.holds.tick:1s}")
+    public void sweep() {
+        if (wheel.advance(System.currentTimeMillis())) {
+            releaseExpired();
+        }
+    }
+
+    /**
+     * Schedules the earliest expiry in the database, which may belong to a hold this replica does not know about.
+     */
+    @Scheduled(fixedDelayString = "${inventory.holds.probe-interval:10s}")
+    public void probe() {
+        scheduleNextExpiry();
+    }
+
+    private void releaseExpired() {
+        try {
+            Integer released;
+            do {
+                released = inventoryRepository.releaseExpiredHolds(properties.getBatchSize())
+                                              .block(properties.getTimeout());
+                if (released != null) {
+                    expired.increment(released);
+                }
+            } while (released != null && released == properties.getBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Failed to release expired holds: {}", e.getMessage());
+        }
+        scheduleNextExpiry();
+    }
+
+    private void scheduleNextExpiry() {
+        try {
+            inventoryRepository.findNextHoldExpiry()
+                               .doOnNext(expiresAt -> wheel.schedule(expiresAt.toEpochMilli()))
+                               .block(properties.getTimeout());
+        } catch (RuntimeException e) {
+            log.error("Failed to look up next hold expiry: {}", e.getMessage());
+        }
+    }
+
+    private static ResponseStatusException holdNotFound(String productId, String ownerId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                           "Hold not found for product: " + productId + ", owner: " + ownerId);
+    }
+
+}
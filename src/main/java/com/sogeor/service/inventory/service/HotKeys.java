@@ -0,0 +1,122 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Finds the products changed or read most often with a Space-Saving sketch of bounded size, so that hot products can
+ * be spotted without a metric per product.
+ * <p>
+ * The sketch keeps a fixed number of counters. A product without a counter takes over the smallest one and inherits
+ * its count as the error of its estimate, so every product seen more often than the total divided by the capacity is
+ * guaranteed to be tracked. A sampled fraction of accesses is counted, and counts are halved on every decay so that
+ * the ranking follows the current traffic.
+ */
+@Component
+public class HotKeys {
+
+    private final InventoryProperties.HotKeys properties;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public HotKeys(InventoryProperties properties) {
+        this.properties = properties.getHotKeys();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void record(String productId) {
+        if (!properties.isEnabled() || productId == null ||
+            ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                entry.count++;
+                return;
+            }
+            if (entries.size() < properties.getCapacity()) {
+                entries.put(productId, new Entry(productId, 1, 0));
+                return;
+            }
+            Entry smallest = null;
+            for (Entry candidate : entries.values()) {
+                if (smallest == null || candidate.count < smallest.count) {
+                    smallest = candidate;
+                }
+            }
+            entries.remove(smallest.productId);
+            entries.put(productId, new Entry(productId, smallest.count + 1, smallest.count));
+        }
+    }
+
+    /**
+     * Returns the hottest products, hottest first, with counts scaled back by the sample rate.
+     */
+    public List<HotKey> top(int limit) {
+        List<Entry> snapshot;
+        synchronized (this) {
+            snapshot = entries.values().stream().map(Entry::copy).toList();
+        }
+        double scale = 1 / properties.getSampleRate();
+        List<HotKey> top = new ArrayList<>();
+        snapshot.stream()
+                .sorted(Comparator.comparingLong((Entry entry) -> entry.count).reversed())
+                .limit(limit)
+                .forEach(entry -> top.add(new HotKey(entry.productId, Math.round(entry.count * scale),
+                                                     Math.round(entry.error * scale))));
+        return top;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot-keys.decay-interval:1m}")
+    public synchronized void decay() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            entry.count /= 2;
+            entry.error /= 2;
+            if (entry.count == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Estimated number of accesses to a product since it was last evicted, which overstates the true number by at
+     * most {@code error}.
+     */
+    public record HotKey(String productId, long count, long error) {}
+
+    private static final class Entry {
+
+        private final String productId;
+
+        private long count;
+
+        private long error;
+
+        Entry(String productId, long count, long error) {
+            this.productId = productId;
+            this.count = count;
+            this.error = error;
+        }
+
+        Entry copy() {
+            return new Entry(productId, count, error);
+        }
+
+    }
+
+}
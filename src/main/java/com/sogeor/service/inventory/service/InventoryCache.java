@@ -0,0 +1,121 @@
+package com.sogeor.service.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of inventory rows keyed by product.
+ * <p>
+ * Local mutations put the row they returned, never replacing a row that was modified later, so a slow read cannot
+ * overwrite the result of a faster write. Changes made by other replicas invalidate the entry. In ledger mode a row
+ * returned by a mutation lacks the pending movements of its product, so it invalidates the entry instead and only
+ * loaded rows are cached.
+ * <p>
+ * Every invalidation is numbered. A load takes the current number before it queries and its rows are dropped if their
+ * product was invalidated since, as they may predate the change. Invalidation numbers are remembered for a bounded
+ * number of products; once one is forgotten, loads that started before it are not cached at all.
+ */
+@Component
+public class InventoryCache {
+
+    private final Cache<String, Inventory> cache;
+
+    private final Cache<String, Long> invalidations;
+
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private volatile long forgottenUpTo;
+
+    private final boolean enabled;
+
+    private final boolean ledger;
+
+    public InventoryCache(InventoryProperties properties, MeterRegistry meterRegistry) {
+        InventoryProperties.Cache settings = properties.getCache();
+        this.enabled = settings.isEnabled();
+        this.ledger = properties.getLedger().isEnabled();
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(settings.getMaximumSize())
+                             .expireAfterWrite(settings.getTimeToLive())
+                             .recordStats()
+                             .build();
+        this.invalidations = Caffeine.newBuilder()
+                                     .maximumSize(settings.getMaximumSize())
+                                     .expireAfterWrite(settings.getTimeToLive())
+                                     .<String, Long>evictionListener((productId, number, cause) -> forget(number))
+                                     .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "inventory");
+    }
+
+    public @Nullable Inventory get(String productId) {
+        return enabled ? cache.getIfPresent(productId) : null;
+    }
+
+    public void put(Inventory inventory) {
+        if (ledger || inventory.getUpdatedAt() == null) {
+            invalidate(inventory.getProductId());
+            return;
+        }
+        if (enabled) {
+            cache.asMap().merge(inventory.getProductId(), inventory, InventoryCache::newer);
+        }
+    }
+
+    /**
+     * Returns the number to pass to {@link #putLoaded(Inventory, long)} for rows of a load starting now.
+     */
+    public long loadStarted() {
+        return invalidationCount.get();
+    }
+
+    public void putLoaded(Inventory inventory, long loadStarted) {
+        if (!enabled) {
+            return;
+        }
+        if (inventory.getUpdatedAt() == null) {
+            cache.invalidate(inventory.getProductId());
+            return;
+        }
+        cache.asMap().compute(inventory.getProductId(), (productId, cached) -> {
+            if (isInvalidatedSince(productId, loadStarted)) {
+                return cached;
+            }
+            return cached == null ? inventory : newer(cached, inventory);
+        });
+    }
+
+    public void invalidate(String productId) {
+        invalidations.put(productId, invalidationCount.incrementAndGet());
+        cache.invalidate(productId);
+    }
+
+    private boolean isInvalidatedSince(String productId, long loadStarted) {
+        if (loadStarted < forgottenUpTo) {
+            return true;
+        }
+        Long invalidation = invalidations.getIfPresent(productId);
+        return invalidation != null && invalidation > loadStarted;
+    }
+
+    private synchronized void forget(Long number) {
+        if (number != null && number > forgottenUpTo) {
+            forgottenUpTo = number;
+        }
+    }
+
+    private static Inventory newer(Inventory cached, Inventory candidate) {
+        if (cached.getUpdatedAt() == null || !candidate.getUpdatedAt().isBefore(cached.getUpdatedAt())) {
+            return candidate;
+        }
+        return cached;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.StockChange;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes stock changes to watchers of the changed products. Changes made by this replica and those read from the
+ * {@code inventory-updates} topic go through one multicast sink shared by all watchers.
+ * <p>
+ * Each watcher keeps at most one pending change per product, so a watcher that reads slowly receives only the latest
+ * stock of each product rather than a growing backlog. A change is only passed on if it is newer than what the
+ * watcher has already received, so the same change arriving locally and through the topic is delivered once, and a
+ * watcher resuming from a version receives only products changed after it.
+ */
+@Slf4j
+@Component
+public class InventoryChangeFeed {
+
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(1);
+
+    private final InventoryLoader inventoryLoader;
+
+    private final InventoryProperties.Feed properties;
+
+    private final Sinks.Many<StockChange> changes = Sinks.many().multicast().directBestEffort();
+
+    private final Map<String, Integer> watched = new ConcurrentHashMap<>();
+
+    private final AtomicInteger watchers = new AtomicInteger();
+
+    public InventoryChangeFeed(InventoryLoader inventoryLoader, InventoryProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.inventoryLoader = inventoryLoader;
+        this.properties = properties.getFeed();
+        Gauge.builder("inventory.feed.watchers", watchers, AtomicInteger::get)
+             .description("Clients watching stock changes")
+             .register(meterRegistry);
+    }
+
+    public Duration heartbeat() {
+        return properties.getHeartbeat();
+    }
+
+    public boolean isWatched(String productId) {
+        return watched.containsKey(productId);
+    }
+
+    /**
+     * Passes on a row changed by this replica. Rows without a modification time, such as bulk results, arrive
+     * through the topic instead.
+     */
+    public void publish(Inventory inventory) {
+        if (inventory.getUpdatedAt() != null && isWatched(inventory.getProductId())) {
+            emit(new StockChange(inventory.getProductId(), inventory.getQuantity(), inventory.getReserved(),
+                                 StockChange.version(inventory.getUpdatedAt())));
+        }
+    }
+
+    public void publish(InventoryEvents.InventoryUpdatedEvent event) {
+        if (event.getTimestamp() != null && isWatched(event.getProductId())) {
+            emit(new StockChange(event.getProductId(), event.getQuantity(), event.getReserved(),
+                                 StockChange.version(event.getTimestamp())));
+        }
+    }
+
+    /**
+     * Streams the stock of the products, first as it is now and then on every change. With a version, only products
+     * changed after it are sent at first.
+     */
+    public Flux<@NotNull StockChange> watch(List<String> productIds, Long since) {
+        if (productIds == null || productIds.isEmpty() || productIds.stream().anyMatch(Objects::isNull)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "No product IDs to watch"));
+        }
+        Set<String> products = Set.copyOf(productIds);
+        if (products.size() > properties.getMaxProducts()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                                          "At most " + properties.getMaxProducts() +
+                                                          " products can be watched at once"));
+        }
+        return Flux.create(sink -> {
+            Watcher watcher = new Watcher(sink, products, since == null ? Long.MIN_VALUE : since);
+            products.forEach(productId -> watched.merge(productId, 1, Integer::sum));
+            watchers.incrementAndGet();
+            Disposable live = changes.asFlux()
+                                     .filter(change -> products.contains(change.getProductId()))
+                                     .subscribe(watcher::offer);
+            Disposable current = inventoryLoader.loadAll(products)
+                                                .filter(inventory -> inventory.getUpdatedAt() != null)
+                                                .map(inventory -> new StockChange(
+                                                        inventory.getProductId(), inventory.getQuantity(),
+                                                        inventory.getReserved(),
+                                                        StockChange.version(inventory.getUpdatedAt())))
+                                                .subscribe(watcher::offer, e -> log.warn(
+                                                        "Failed to load watched products: {}", e.getMessage()));
+            sink.onRequest(n -> watcher.drain());
+            sink.onDispose(() -> {
+                live.dispose();
+                current.dispose();
+                products.forEach(productId -> watched.computeIfPresent(productId,
+                                                                       (id, count) -> count > 1 ? count - 1 : null));
+                watchers.decrementAndGet();
+            });
+        });
+    }
+
+    private void emit(StockChange change) {
+        changes.emitNext(change, Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+    }
+
+    /**
+     * Conflates the changes for one client, emitting only as fast as the client requests.
+     */
+    private static final class Watcher {
+
+        private final FluxSink<StockChange> sink;
+
+        private final Map<String, StockChange> pending = new LinkedHashMap<>();
+
+        private final Map<String, Long> versions = new HashMap<>();
+
+        private Watcher(FluxSink<StockChange> sink, Set<String> products, long since) {
+            this.sink = sink;
+            products.forEach(productId -> versions.put(productId, since));
+        }
+
+        private synchronized void offer(StockChange change) {
+            if (change.getVersion() <= versions.get(change.getProductId())) {
+                return;
+            }
+            versions.put(change.getProductId(), change.getVersion());
+            pending.put(change.getProductId(), change);
+            drain();
+        }
+
+        private synchronized void drain() {
+            while (!pending.isEmpty() && sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                Iterator<StockChange> oldest = pending.values().iterator();
+                StockChange change = oldest.next();
+                oldest.remove();
+                sink.next(change);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Loads inventory rows into the cache, collapsing concurrent lookups of the same product into one query. With a batch
+ * window configured, lookups of different products arriving within the window are merged into one {@code IN} query.
+ * A lookup joining a query already in flight gets its row even if the product was invalidated meanwhile, but the row
+ * is only cached if it was not.
+ */
+@Slf4j
+@Component
+public class InventoryLoader {
+
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(1);
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryCache inventoryCache;
+
+    private final Map<String, Mono<@NotNull Inventory>> inFlight = new ConcurrentHashMap<>();
+
+    private final Sinks.Many<PendingLookup> lookups;
+
+    private final Disposable batcher;
+
+    private final ReplicaReads replicaReads;
+
+    private final boolean ledger;
+
+    public InventoryLoader(InventoryRepository inventoryRepository, InventoryCache inventoryCache,
+                           ReplicaReads replicaReads, InventoryProperties properties) {
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryCache = inventoryCache;
+        this.replicaReads = replicaReads;
+        this.ledger = properties.getLedger().isEnabled();
+        InventoryProperties.Lookup settings = properties.getLookup();
+        if (settings.getBatchWindow().isZero()) {
+            this.lookups = null;
+            this.batcher = null;
+        } else {
+            this.lookups = Sinks.many().unicast().onBackpressureBuffer();
+            this.batcher = lookups.asFlux()
+                                  .bufferTimeout(settings.getMaxBatchSize(), settings.getBatchWindow())
+                                  .flatMap(this::fetch, settings.getMaxConcurrency())
+                                  .subscribe();
+        }
+    }
+
+    public Mono<@NotNull Inventory> load(String productId) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(productId, this::start));
+    }
+
+    /**
+     * Loads the products with one query, bypassing batching. Products that do not exist are absent from the result.
+     * The query may go to a replica unless one of the products has just changed.
+     */
+    public Flux<@NotNull Inventory> loadAll(Collection<String> productIds) {
+        return Flux.defer(() -> {
+            long loadStarted = inventoryCache.loadStarted();
+            return queryAll(productIds).doOnNext(inventory -> inventoryCache.putLoaded(inventory, loadStarted));
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (batcher != null) {
+            batcher.dispose();
+        }
+    }
+
+    private Mono<@NotNull Inventory> start(String productId) {
+        AtomicReference<Mono<@NotNull Inventory>> self = new AtomicReference<>();
+        long loadStarted = inventoryCache.loadStarted();
+        Mono<@NotNull Inventory> shared = query(productId).doOnNext(inventory -> inventoryCache.putLoaded(inventory,
+                                                                                                          loadStarted))
+                                                          .doFinally(signal -> inFlight.remove(productId, self.get()))
+                                                          .cache();
+        self.set(shared);
+        return shared;
+    }
+
+    private Mono<@NotNull Inventory> query(String productId) {
+        if (lookups == null) {
+            return replicaReads.read(productId, ledger
+                                                ? inventoryRepository.findViewByProductIdIn(List.of(productId)).next()
+                                                : inventoryRepository.findByProductId(productId));
+        }
+        return Mono.defer(() -> {
+            Sinks.One<Inventory> result = Sinks.one();
+            lookups.emitNext(new PendingLookup(productId, result), Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+            return result.asMono();
+        });
+    }
+
+    private Mono<@NotNull Void> fetch(List<PendingLookup> batch) {
+        List<String> productIds = batch.stream().map(PendingLookup::productId).distinct().toList();
+        Flux<@NotNull Inventory> rows = queryAll(productIds);
+        return rows.collectMap(Inventory::getProductId, Function.identity())
+                   .doOnNext(found -> batch.forEach(lookup -> {
+                       Inventory inventory = found.get(lookup.productId());
+                       if (inventory == null) {
+                           lookup.result().tryEmitEmpty();
+                       } else {
+                           lookup.result().tryEmitValue(inventory);
+                       }
+                   }))
+                   .onErrorResume(e -> {
+                       batch.forEach(lookup -> lookup.result().tryEmitError(e));
+                       return Mono.empty();
+                   })
+                   .then();
+    }
+
+    private Flux<@NotNull Inventory> queryAll(Collection<String> productIds) {
+        return replicaReads.read(productIds, ledger
+                                             ? inventoryRepository.findViewByProductIdIn(productIds)
+                                             : inventoryRepository.findByProductIdIn(productIds));
+    }
+
+    private record PendingLookup(String productId, Sinks.One<Inventory> result) {}
+
+}
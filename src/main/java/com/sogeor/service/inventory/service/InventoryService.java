@@ -1,18 +1,36 @@
 package com.sogeor.service.inventory.service;
 
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
 import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.LowStockCursor;
+import com.sogeor.service.inventory.domain.LowStockPage;
+import com.sogeor.service.inventory.domain.StockAdjustment;
+import com.sogeor.service.inventory.domain.StockAvailability;
+import com.sogeor.service.inventory.domain.StockMutation;
 import com.sogeor.service.inventory.dto.InventoryEvents;
-import com.sogeor.service.inventory.messaging.InventoryEventProducer;
 import com.sogeor.service.inventory.repository.InventoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -21,106 +39,371 @@ public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
 
-    private final InventoryEventProducer eventProducer;
+    private final FlashSaleService flashSaleService;
+
+    private final InventoryCache inventoryCache;
+
+    private final InventoryLoader inventoryLoader;
+
+    private final LowStockAlertEngine lowStockAlertEngine;
+
+    private final OwnershipService ownershipService;
+
+    private final AdmissionControl admissionControl;
+
+    private final OperationMetrics operationMetrics;
+
+    private final InventoryChangeFeed changeFeed;
+
+    private final StockLocations stockLocations;
+
+    private final ReplicaReads replicaReads;
+
+    private final InventoryProperties properties;
 
     public Mono<@NotNull Inventory> getInventory(String productId) {
-        return inventoryRepository.findByProductId(productId)
-                                  .switchIfEmpty(Mono.error(
-                                          new RuntimeException("Inventory not found for product: " + productId)));
+        Inventory owned = ownershipService.localView(productId);
+        if (owned != null) {
+            return operationMetrics.timed(OperationMetrics.GET, productId, Mono.just(owned));
+        }
+        Inventory cached = inventoryCache.get(productId);
+        Mono<@NotNull Inventory> inventory = cached != null
+                                             ? Mono.just(cached)
+                                             : inventoryLoader.load(productId);
+        return operationMetrics.timed(OperationMetrics.GET, productId,
+                                      inventory.map(flashSaleService::localView)
+                                               .switchIfEmpty(Mono.error(() -> notFound(productId))));
+    }
+
+    /**
+     * Returns the available stock of every requested product in request order, duplicates removed. Products that are
+     * neither owned locally nor cached are read chunk by chunk, one query per chunk, so long lists are streamed.
+     */
+    public Flux<@NotNull StockAvailability> getAvailability(List<String> productIds) {
+        InventoryProperties.Lookup lookup = properties.getLookup();
+        if (productIds == null || productIds.isEmpty() || productIds.stream().anyMatch(Objects::isNull)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "No product IDs to look up"));
+        }
+        List<String> distinct = productIds.stream().distinct().toList();
+        if (distinct.size() > lookup.getMaxProducts()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                                          "At most " + lookup.getMaxProducts() +
+                                                          " products can be looked up at once"));
+        }
+        return Flux.fromIterable(distinct).buffer(lookup.getChunkSize()).concatMap(this::getAvailabilityChunk);
+    }
+
+    /**
+     * Returns the stock of the product as it was at the given time, reconstructed from the ledger.
+     */
+    public Mono<@NotNull Inventory> getInventoryAsOf(String productId, Instant at) {
+        if (!properties.getLedger().isEnabled()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock history requires ledger mode"));
+        }
+        return replicaReads.read(productId, inventoryRepository.findAsOf(productId, at))
+                           .switchIfEmpty(Mono.error(() -> notFound(productId)));
     }
 
-    @Transactional
     public Mono<@NotNull Inventory> addStock(String productId, Integer quantity) {
-        return inventoryRepository.findByProductId(productId)
-                                  .defaultIfEmpty(
-                                          Inventory.builder().productId(productId).quantity(0).reserved(0).build())
-                                  .flatMap(inventory -> {
-                                      inventory.setQuantity(inventory.getQuantity() + quantity);
-                                      return inventoryRepository.save(inventory);
-                                  })
-                                  .doOnSuccess(this::sendUpdateEvent);
+        return addStock(productId, null, quantity);
+    }
+
+    /**
+     * Adds stock at the location, or at the default location if none is given.
+     */
+    public Mono<@NotNull Inventory> addStock(String productId, String locationId, Integer quantity) {
+        Mono<@NotNull Inventory> added;
+        if (locationId != null && !locationId.equals(stockLocations.defaultLocation())) {
+            added = stockLocations.addStock(productId, locationId, quantity).doOnSuccess(this::onUpdated);
+        } else if (ownershipService.isEnabled()) {
+            added = owned(InventoryEvents.StockCommand.ADD, productId, quantity, null);
+        } else {
+            added = (properties.getLedger().isEnabled()
+                     ? inventoryRepository.appendStock(productId, quantity)
+                     : inventoryRepository.addStock(productId, quantity)).doOnSuccess(this::onUpdated);
+        }
+        return operationMetrics.timed(OperationMetrics.ADD, productId,
+                                      admissionControl.admit(productId, added));
     }
 
-    @Transactional
     public Mono<@NotNull Inventory> reserveStock(String productId, Integer quantity) {
-        return inventoryRepository.findByProductId(productId)
-                                  .switchIfEmpty(Mono.error(
-                                          new RuntimeException("Inventory not found for product: " + productId)))
-                                  .flatMap(inventory -> {
-                                      if (inventory.getQuantity() - inventory.getReserved() < quantity) {
-                                          return Mono.error(
-                                                  new RuntimeException("Insufficient stock for product: " + productId));
-                                      }
-                                      inventory.setReserved(inventory.getReserved() + quantity);
-                                      return inventoryRepository.save(inventory);
-                                  })
-                                  .doOnSuccess(this::sendUpdateEvent);
-    }
-
-    @Transactional
+        Mono<@NotNull Inventory> reserved = flashSaleService.isFlashSale(productId)
+                                            ? flashSaleService.reserveStock(productId, quantity)
+                                                              .switchIfEmpty(Mono.defer(
+                                                                      () -> reserveStored(productId, quantity)))
+                                            : reserveStored(productId, quantity);
+        return operationMetrics.timed(OperationMetrics.RESERVE, productId,
+                                      admissionControl.admit(productId, reserved));
+    }
+
     public Mono<@NotNull Inventory> releaseStock(String productId, Integer quantity) {
-        return inventoryRepository.findByProductId(productId)
-                                  .switchIfEmpty(Mono.error(
-                                          new RuntimeException("Inventory not found for product: " + productId)))
-                                  .flatMap(inventory -> {
-                                      if (inventory.getReserved() < quantity) {
-                                          return Mono.error(new RuntimeException(
-                                                  "Cannot release more than reserved for product: " + productId));
-                                      }
-                                      inventory.setReserved(inventory.getReserved() - quantity);
-                                      return inventoryRepository.save(inventory);
-                                  })
-                                  .doOnSuccess(this::sendUpdateEvent);
-    }
-
-    @Transactional
+        String insufficientMessage = "Cannot release more than reserved for product: " + productId;
+        Mono<@NotNull Inventory> released;
+        if (ownershipService.isEnabled()) {
+            released = owned(InventoryEvents.StockCommand.RELEASE, productId, quantity, insufficientMessage);
+        } else if (stockLocations.isEnabled()) {
+            released = located(stockLocations::releaseStock, productId, quantity, insufficientMessage);
+        } else {
+            released = inventoryRepository.releaseStock(productId, quantity)
+                                          .switchIfEmpty(Mono.error(() -> notFound(productId)))
+                                          .flatMap(mutation -> applied(mutation, insufficientMessage))
+                                          .doOnSuccess(this::onUpdated);
+        }
+        return operationMetrics.timed(OperationMetrics.RELEASE, productId,
+                                      admissionControl.admit(productId, released));
+    }
+
     public Mono<@NotNull Inventory> deductStock(String productId, Integer quantity) {
-        return inventoryRepository.findByProductId(productId)
-                                  .switchIfEmpty(Mono.error(
-                                          new RuntimeException("Inventory not found for product: " + productId)))
-                                  .flatMap(inventory -> {
-                                      int newQuantity = inventory.getQuantity() - quantity;
-
-                                      if (newQuantity < 0) {
-                                          return Mono.error(new RuntimeException(
-                                                  "Insufficient stock to deduct for product: " + productId));
-                                      }
-                                      inventory.setQuantity(newQuantity);
-
-                                      if (inventory.getReserved() >= quantity) {
-                                          inventory.setReserved(inventory.getReserved() - quantity);
-                                      }
-
-                                      return inventoryRepository.save(inventory);
-                                  })
-                                  .doOnSuccess(this::sendUpdateEvent);
-    }
-
-    public Flux<@NotNull Inventory> getLowStockProducts(int threshold) {
-        return inventoryRepository.findByQuantityLessThan(threshold);
-    }
-
-    public Mono<@NotNull Void> checkAndSendLowStockAlert(Inventory inventory, int threshold) {
-        if (inventory.getQuantity() < threshold) {
-            eventProducer.sendLowStockAlert(InventoryEvents.LowStockAlertEvent.builder()
-                                                                              .eventType("LOW_STOCK")
-                                                                              .productId(inventory.getProductId())
-                                                                              .quantity(inventory.getQuantity())
-                                                                              .threshold(threshold)
-                                                                              .timestamp(Instant.now())
-                                                                              .build());
-        }
-        return Mono.empty();
-    }
-
-    private void sendUpdateEvent(Inventory inventory) {
-        eventProducer.sendInventoryUpdated(InventoryEvents.InventoryUpdatedEvent.builder()
-                                                                                .eventType("INVENTORY_UPDATED")
-                                                                                .productId(inventory.getProductId())
-                                                                                .quantity(inventory.getQuantity())
-                                                                                .reserved(inventory.getReserved())
-                                                                                .timestamp(Instant.now())
-                                                                                .build());
+        String insufficientMessage = "Insufficient stock to deduct for product: " + productId;
+        Mono<@NotNull Inventory> deducted;
+        if (ownershipService.isEnabled()) {
+            deducted = owned(InventoryEvents.StockCommand.DEDUCT, productId, quantity, insufficientMessage);
+        } else if (stockLocations.isEnabled()) {
+            deducted = located(stockLocations::deductStock, productId, quantity, insufficientMessage);
+        } else {
+            deducted = retryCompacted(() -> inventoryRepository.deductStock(productId, quantity),
+                                      mutation -> !mutation.isApplied(), productId)
+                    .switchIfEmpty(Mono.error(() -> notFound(productId)))
+                    .flatMap(mutation -> applied(mutation, insufficientMessage))
+                    .doOnSuccess(this::onUpdated);
+        }
+        return operationMetrics.timed(OperationMetrics.DEDUCT, productId,
+                                      admissionControl.admit(productId, deducted));
+    }
+
+    public Mono<@NotNull List<BulkStockLine>> reserveStock(List<InventoryEvents.OrderItem> items) {
+        return bulk(OperationMetrics.BULK_RESERVE, items,
+                    stockLocations.isEnabled() ? stockLocations::reserveStock : inventoryRepository::reserveStock);
+    }
+
+    public Mono<@NotNull List<BulkStockLine>> releaseStock(List<InventoryEvents.OrderItem> items) {
+        return bulk(OperationMetrics.BULK_RELEASE, items,
+                    stockLocations.isEnabled() ? stockLocations::releaseStock : inventoryRepository::releaseStock);
+    }
+
+    public Mono<@NotNull List<BulkStockLine>> deductStock(List<InventoryEvents.OrderItem> items) {
+        return bulk(OperationMetrics.BULK_DEDUCT, items,
+                    stockLocations.isEnabled() ? stockLocations::deductStock : inventoryRepository::deductStock);
+    }
+
+    /**
+     * Applies the adjustments and emits the changed rows. The caller may run this inside a transaction, so it has to
+     * pass each row to {@link #onUpdated} once the transaction has committed.
+     */
+    public Flux<@NotNull Inventory> adjustStock(List<StockAdjustment> adjustments) {
+        if (stockLocations.isEnabled()) {
+            return stockLocations.adjustStock(adjustments);
+        }
+        String[] productIds = new String[adjustments.size()];
+        Integer[] quantityDeltas = new Integer[adjustments.size()];
+        Integer[] reservedDeltas = new Integer[adjustments.size()];
+        for (int i = 0; i < adjustments.size(); i++) {
+            StockAdjustment adjustment = adjustments.get(i);
+            productIds[i] = adjustment.getProductId();
+            quantityDeltas[i] = adjustment.getQuantityDelta();
+            reservedDeltas[i] = adjustment.getReservedDelta();
+        }
+        return inventoryRepository.adjustStock(productIds, quantityDeltas, reservedDeltas);
+    }
+
+    /**
+     * Returns the stock of the product by location. Without locations enabled all stock is at the default location.
+     */
+    public Flux<@NotNull LocationStock> getLocations(String productId) {
+        return replicaReads.read(List.of(productId), stockLocations.getLocations(productId))
+                           .switchIfEmpty(Mono.error(() -> notFound(productId)));
+    }
+
+    public Mono<@NotNull LowStockPage> getLowStockProducts(int threshold, String cursor, Integer limit) {
+        LowStockCursor after;
+        try {
+            after = cursor == null ? LowStockCursor.START : LowStockCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+        }
+        InventoryProperties.LowStock lowStock = properties.getLowStock();
+        int pageSize = limit == null ? lowStock.getPageSize() : Math.clamp(limit, 1, lowStock.getMaxPageSize());
+        return replicaReads.scan(inventoryRepository.findLowStock(threshold, after.getAvailable(),
+                                                                  after.getProductId(), pageSize + 1))
+                           .collectList()
+                           .map(items -> items.size() > pageSize
+                                         ? new LowStockPage(items.subList(0, pageSize),
+                                                            LowStockCursor.after(items.get(pageSize - 1)))
+                                         : new LowStockPage(items, null));
+    }
+
+    /**
+     * Streams every product whose available stock is below the threshold, fetching the next page only once the
+     * subscriber has consumed the previous one.
+     */
+    public Flux<@NotNull Inventory> streamLowStockProducts(int threshold) {
+        return streamLowStockProducts(threshold, LowStockCursor.START);
+    }
+
+    /**
+     * Applies the local side effects of a committed change: reads of the product stay on the primary for a while,
+     * the cached row is replaced, low-stock thresholds are evaluated and watchers are notified.
+     */
+    public void onUpdated(Inventory inventory) {
+        replicaReads.written(inventory.getProductId());
+        inventoryCache.put(inventory);
+        lowStockAlertEngine.evaluate(inventory);
+        changeFeed.publish(inventory);
+    }
+
+    private Flux<@NotNull Inventory> streamLowStockProducts(int threshold, LowStockCursor after) {
+        int pageSize = properties.getLowStock().getStreamPageSize();
+        return replicaReads.scan(inventoryRepository.findLowStock(threshold, after.getAvailable(),
+                                                                  after.getProductId(), pageSize))
+                           .collectList()
+                           .flatMapMany(page -> page.size() < pageSize
+                                                ? Flux.fromIterable(page)
+                                                : Flux.fromIterable(page)
+                                                      .concatWith(Flux.defer(() -> streamLowStockProducts(
+                                                              threshold, LowStockCursor.after(page.getLast())))));
+    }
+
+    private Mono<@NotNull Inventory> reserveStored(String productId, Integer quantity) {
+        String insufficientMessage = "Insufficient stock for product: " + productId;
+        Mono<@NotNull Inventory> reserved;
+        if (ownershipService.isEnabled()) {
+            reserved = owned(InventoryEvents.StockCommand.RESERVE, productId, quantity, insufficientMessage);
+        } else if (stockLocations.isEnabled()) {
+            reserved = located(stockLocations::reserveStock, productId, quantity, insufficientMessage);
+        } else {
+            reserved = retryCompacted(() -> inventoryRepository.reserveStock(productId, quantity),
+                                      mutation -> !mutation.isApplied(), productId)
+                    .switchIfEmpty(Mono.error(() -> notFound(productId)))
+                    .flatMap(mutation -> applied(mutation, insufficientMessage))
+                    .doOnSuccess(this::onUpdated);
+        }
+        return reserved;
+    }
+
+    private Flux<@NotNull StockAvailability> getAvailabilityChunk(List<String> productIds) {
+        Map<String, Inventory> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String productId : productIds) {
+            Inventory known = ownershipService.localView(productId);
+            if (known == null) {
+                known = inventoryCache.get(productId);
+            }
+            if (known == null) {
+                misses.add(productId);
+            } else {
+                found.put(productId, known);
+            }
+        }
+        Mono<@NotNull Map<String, Inventory>> loaded = misses.isEmpty()
+                                                       ? Mono.just(found)
+                                                       : inventoryLoader.loadAll(misses)
+                                                                        .collectMap(Inventory::getProductId,
+                                                                                    Function.identity(), () -> found);
+        return loaded.flatMapIterable(all -> productIds.stream().map(productId -> {
+            Inventory inventory = all.get(productId);
+            if (inventory == null) {
+                return new StockAvailability(productId, null);
+            }
+            Inventory view = flashSaleService.localView(inventory);
+            return new StockAvailability(productId, view.getQuantity() - view.getReserved());
+        }).toList());
+    }
+
+    private Mono<@NotNull List<BulkStockLine>> bulk(String operation, List<InventoryEvents.OrderItem> items,
+                                                    BiFunction<String[], Integer[], Flux<@NotNull BulkStockLine>> statement) {
+        if (items == null || items.isEmpty()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "No items to apply"));
+        }
+        String[] productIds = new String[items.size()];
+        Integer[] quantities = new Integer[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            InventoryEvents.OrderItem item = items.get(i);
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid item: " + item));
+            }
+            productIds[i] = item.getProductId();
+            quantities[i] = item.getQuantity();
+        }
+        Mono<@NotNull List<BulkStockLine>> applied = retryCompacted(
+                () -> statement.apply(productIds, quantities).collectList(),
+                lines -> lines.stream().map(BulkStockLine::getStatus).anyMatch(BulkStockLine.INSUFFICIENT::equals),
+                productIds);
+        List<String> products = Arrays.asList(productIds);
+        return operationMetrics.timed(operation, products,
+                                      admissionControl.admit(products, applied.doOnSuccess(lines -> {
+                                          operationMetrics.recordLines(operation, lines);
+                                          lines.stream()
+                                               .filter(BulkStockLine::isApplied)
+                                               .map(BulkStockLine::toInventory)
+                                               .forEach(this::onUpdated);
+                                      })));
+    }
+
+    /**
+     * In ledger mode recently added stock may still be pending, so a statement rejected for insufficient stock is
+     * retried once after folding the pending movements of its products.
+     */
+    private <T> Mono<@NotNull T> retryCompacted(Supplier<Mono<@NotNull T>> statement, Predicate<T> insufficient,
+                                                String... productIds) {
+        if (!properties.getLedger().isEnabled()) {
+            return statement.get();
+        }
+        return statement.get()
+                        .flatMap(result -> insufficient.test(result)
+                                           ? inventoryRepository.compactStock(productIds)
+                                                                .filter(folded -> folded > 0)
+                                                                .flatMap(folded -> statement.get())
+                                                                .defaultIfEmpty(result)
+                                           : Mono.just(result));
+    }
+
+    /**
+     * Applies a single-product change through the replica owning the product. Bulk, hold and flash-sale changes are
+     * not routed and go to the database directly; the owner rebases on them once their update event arrives.
+     */
+    private Mono<@NotNull Inventory> owned(String type, String productId, Integer quantity,
+                                           String insufficientMessage) {
+        InventoryEvents.StockCommand command = InventoryEvents.StockCommand.builder()
+                                                                           .type(type)
+                                                                           .productId(productId)
+                                                                           .quantity(quantity)
+                                                                           .build();
+        return ownershipService.execute(command)
+                               .flatMap(line -> applied(line, productId, insufficientMessage))
+                               .doOnSuccess(this::onUpdated);
+    }
+
+    /**
+     * Applies a single-product change to the locations of the product.
+     */
+    private Mono<@NotNull Inventory> located(BiFunction<String[], Integer[], Flux<@NotNull BulkStockLine>> statement,
+                                             String productId, Integer quantity, String insufficientMessage) {
+        if (quantity == null || quantity <= 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid quantity: " + quantity));
+        }
+        return statement.apply(new String[]{productId}, new Integer[]{quantity})
+                        .next()
+                        .flatMap(line -> applied(line, productId, insufficientMessage))
+                        .doOnSuccess(this::onUpdated);
+    }
+
+    private static Mono<@NotNull Inventory> applied(BulkStockLine line, String productId, String insufficientMessage) {
+        return switch (line.getStatus()) {
+            case BulkStockLine.APPLIED -> Mono.just(line.toInventory());
+            case BulkStockLine.NOT_FOUND -> Mono.error(notFound(productId));
+            default -> Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, insufficientMessage));
+        };
+    }
+
+    private static Mono<@NotNull Inventory> applied(StockMutation mutation, String insufficientMessage) {
+        if (!mutation.isApplied()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, insufficientMessage));
+        }
+        return Mono.just(mutation.toInventory());
+    }
+
+    private static ResponseStatusException notFound(String productId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Inventory not found for product: " + productId);
     }
 
 }
@@ -0,0 +1,74 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Folds pending ledger movements into the inventory snapshots.
+ * <p>
+ * A batch folds all movements of a product at once, so a burst of additions costs one snapshot update per product. The
+ * snapshot change goes through the outbox like any other mutation. Replicas compact disjoint batches.
+ */
+@Slf4j
+@Component
+public class LedgerCompactor {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryProperties.Ledger properties;
+
+    private final Counter compacted;
+
+    public LedgerCompactor(InventoryRepository inventoryRepository, InventoryProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.inventoryRepository = inventoryRepository;
+        this.properties = properties.getLedger();
+        this.compacted = Counter.builder("inventory.ledger.compacted")
+                                .description("Ledger movements folded into inventory snapshots")
+                                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.compaction-interval:200ms}")
+    public void compact() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            Integer folded;
+            do {
+                folded = inventoryRepository.compactStock(properties.getCompactionBatchSize())
+                                            .block(properties.getTimeout());
+                if (folded != null) {
+                    compacted.increment(folded);
+                }
+            } while (folded != null && folded == properties.getCompactionBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Failed to compact ledger: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.cleanup-interval:1h}")
+    public void cleanup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Instant before = Instant.now().minus(properties.getRetention());
+        try {
+            Long deleted;
+            do {
+                deleted = inventoryRepository.deleteLedgerBefore(before, properties.getCleanupBatchSize())
+                                             .block(properties.getTimeout());
+            } while (deleted != null && deleted > 0);
+        } catch (RuntimeException e) {
+            log.error("Failed to clean up ledger: {}", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LowStockThreshold;
+import com.sogeor.service.inventory.repository.LowStockThresholdRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates per-product low-stock thresholds on every mutation.
+ * <p>
+ * Thresholds and their alerted state are kept in memory, so a mutation that does not cross a threshold costs a map
+ * lookup. Only a crossing goes to the database, where the alerted flag is flipped against the current row together
+ * with the {@code LOW_STOCK} outbox message; whichever replica flips it first alerts, the others see no row. An alert
+ * re-arms once available stock is back at the re-arm threshold. Mutations arriving while a statement of the product is
+ * in flight are not dropped: once it completes, the latest available stock is checked again.
+ * <p>
+ * Threshold changes are published through the outbox, so every replica reloads the thresholds of the product as soon
+ * as it consumes the change instead of waiting for the next refresh.
+ */
+@Slf4j
+@Component
+public class LowStockAlertEngine {
+
+    private final LowStockThresholdRepository thresholdRepository;
+
+    private final InventoryProperties.LowStock properties;
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public LowStockAlertEngine(LowStockThresholdRepository thresholdRepository, InventoryProperties properties) {
+        this.thresholdRepository = thresholdRepository;
+        this.properties = properties.getLowStock();
+    }
+
+    public void evaluate(Inventory inventory) {
+        State state = states.get(inventory.getProductId());
+        if (state == null) {
+            return;
+        }
+        state.available = inventory.getQuantity() - inventory.getReserved();
+        if (state.wip.getAndIncrement() == 0) {
+            drain(inventory.getProductId(), state, 1);
+        }
+    }
+
+    public Mono<@NotNull LowStockThreshold> setThreshold(String productId, Integer threshold, Integer rearmThreshold) {
+        if (threshold == null || threshold < 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Threshold must not be negative"));
+        }
+        int rearm = rearmThreshold != null ? rearmThreshold : defaultRearmThreshold(threshold);
+        if (rearm < threshold) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                                          "Re-arm threshold must not be below threshold"));
+        }
+        return thresholdRepository.upsert(productId, threshold, rearm)
+                                  .flatMap(saved -> thresholdRepository.alert(productId).defaultIfEmpty(saved))
+                                  .doOnNext(saved -> states.put(productId, new State(saved)));
+    }
+
+    public Mono<@NotNull Void> removeThreshold(String productId) {
+        return thresholdRepository.remove(productId).doOnSuccess(ignored -> states.remove(productId)).then();
+    }
+
+    public Mono<@NotNull LowStockThreshold> getThreshold(String productId) {
+        return thresholdRepository.findById(productId);
+    }
+
+    /**
+     * Reloads thresholds and alerted state, picking up changes made through other replicas.
+     */
+    @Scheduled(fixedDelayString = "${inventory.low-stock.refresh-interval:30s}")
+    public void refresh() {
+        thresholdRepository.findAll()
+                           .collect(Collectors.toMap(LowStockThreshold::getProductId, State::new))
+                           .doOnNext(loaded -> {
+                               states.keySet().retainAll(loaded.keySet());
+                               states.putAll(loaded);
+                           })
+                           .onErrorResume(e -> {
+                               log.error("Failed to refresh low-stock thresholds: {}", e.getMessage());
+                               return Mono.empty();
+                           })
+                           .block(properties.getTimeout());
+    }
+
+    /**
+     * Reloads the thresholds of a product changed through any replica.
+     */
+    public void reload(String productId) {
+        thresholdRepository.findById(productId)
+                           .doOnNext(loaded -> states.put(productId, new State(loaded)))
+                           .switchIfEmpty(Mono.fromRunnable(() -> states.remove(productId)))
+                           .subscribe(null, error -> log.error("Failed to reload low-stock threshold of product {}: {}",
+                                                               productId, error.getMessage()));
+    }
+
+    /**
+     * Runs the statement the latest available stock calls for, one at a time per product. Evaluations arriving
+     * meanwhile are only counted; once the statement completes they are drained by checking the latest available stock
+     * again. The alerted state is taken from the database, since an empty result may mean another replica got there
+     * first.
+     */
+    private void drain(String productId, State state, int missed) {
+        while (true) {
+            Mono<@NotNull LowStockThreshold> statement = statement(productId, state);
+            if (statement != null) {
+                int handled = missed;
+                statement.switchIfEmpty(Mono.defer(() -> thresholdRepository.findById(productId)))
+                         .map(updated -> Boolean.TRUE.equals(updated.getAlerted()))
+                         .doFinally(signal -> {
+                             int remaining = state.wip.addAndGet(-handled);
+                             if (remaining != 0) {
+                                 drain(productId, state, remaining);
+                             }
+                         })
+                         .subscribe(alerted -> {
+                             state.alerted = alerted;
+                             log.debug("Low-stock alert state of product {} set to {}", productId, alerted);
+                         }, error -> log.error("Failed to evaluate low-stock threshold: {}", error.getMessage()));
+                return;
+            }
+            missed = state.wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private Mono<@NotNull LowStockThreshold> statement(String productId, State state) {
+        int available = state.available;
+        if (!state.alerted && available < state.threshold) {
+            return thresholdRepository.alert(productId);
+        }
+        if (state.alerted && available >= state.rearmThreshold) {
+            return thresholdRepository.rearm(productId);
+        }
+        return null;
+    }
+
+    private static int defaultRearmThreshold(int threshold) {
+        return threshold + Math.max(1, threshold / 5);
+    }
+
+    private static final class State {
+
+        private final int threshold;
+
+        private final int rearmThreshold;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile int available;
+
+        private volatile boolean alerted;
+
+        private State(LowStockThreshold threshold) {
+            this.threshold = threshold.getThreshold();
+            this.rearmThreshold = threshold.getRearmThreshold();
+            this.alerted = Boolean.TRUE.equals(threshold.getAlerted());
+        }
+
+    }
+
+}
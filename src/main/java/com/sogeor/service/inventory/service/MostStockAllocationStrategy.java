@@ -0,0 +1,29 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.LocationStock;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reserves from the location with the most available stock, continuing with the next best stocked locations if it
+ * does not have the whole quantity. Locations with equal stock are taken in order of preference.
+ */
+@Component
+public class MostStockAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public String name() {
+        return "most-stock";
+    }
+
+    @Override
+    public List<Allocation> allocate(int quantity, List<LocationStock> locations) {
+        return AllocationStrategy.fill(quantity, locations.stream()
+                                                          .sorted(Comparator.comparingInt(LocationStock::available)
+                                                                            .reversed())
+                                                          .toList());
+    }
+
+}
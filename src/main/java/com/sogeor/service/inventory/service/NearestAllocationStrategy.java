@@ -0,0 +1,30 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.LocationStock;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reserves from the most preferred location that has the whole quantity, splitting over the locations in order of
+ * preference only if none has.
+ */
+@Component
+public class NearestAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public String name() {
+        return "nearest";
+    }
+
+    @Override
+    public List<Allocation> allocate(int quantity, List<LocationStock> locations) {
+        for (LocationStock location : locations) {
+            if (location.available() >= quantity) {
+                return List.of(new Allocation(location.getLocationId(), quantity));
+            }
+        }
+        return AllocationStrategy.fill(quantity, locations);
+    }
+
+}
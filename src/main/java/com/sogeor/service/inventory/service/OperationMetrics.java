@@ -0,0 +1,143 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times stock reads and changes as {@code inventory.operations}, tagged by operation and outcome only, and passes the
+ * products to {@link HotKeys}. Waiting for admission is included. Cancelled calls are not recorded.
+ */
+@Component
+public class OperationMetrics {
+
+    public static final String GET = "get";
+
+    public static final String ADD = "add";
+
+    public static final String RESERVE = "reserve";
+
+    public static final String RELEASE = "release";
+
+    public static final String DEDUCT = "deduct";
+
+    public static final String BULK_RESERVE = "bulk_reserve";
+
+    public static final String BULK_RELEASE = "bulk_release";
+
+    public static final String BULK_DEDUCT = "bulk_deduct";
+
+    private static final List<String> OPERATIONS = List.of(GET, ADD, RESERVE, RELEASE, DEDUCT, BULK_RESERVE,
+                                                           BULK_RELEASE, BULK_DEDUCT);
+
+    private final HotKeys hotKeys;
+
+    private final Map<String, Timer[]> timers = new HashMap<>();
+
+    private final Map<String, Counter> insufficientLines = new HashMap<>();
+
+    public OperationMetrics(MeterRegistry meterRegistry, HotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+        for (String operation : OPERATIONS) {
+            Timer[] byOutcome = new Timer[Outcome.values().length];
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome[outcome.ordinal()] = Timer.builder("inventory.operations")
+                                                    .description("Time to read or change the stock of products")
+                                                    .tag("operation", operation)
+                                                    .tag("outcome", outcome.tag)
+                                                    .publishPercentileHistogram()
+                                                    .register(meterRegistry);
+            }
+            timers.put(operation, byOutcome);
+        }
+        for (String operation : List.of(BULK_RESERVE, BULK_RELEASE, BULK_DEDUCT)) {
+            insufficientLines.put(operation, Counter.builder("inventory.operations.insufficient-lines")
+                                                    .description("Bulk lines rejected for insufficient stock")
+                                                    .tag("operation", operation)
+                                                    .register(meterRegistry));
+        }
+    }
+
+    public <T> Mono<@NotNull T> timed(String operation, String productId, Mono<@NotNull T> call) {
+        Timer[] byOutcome = timers.get(operation);
+        return Mono.defer(() -> {
+            hotKeys.record(productId);
+            return timed(byOutcome, call);
+        });
+    }
+
+    public <T> Mono<@NotNull T> timed(String operation, Collection<String> productIds, Mono<@NotNull T> call) {
+        Timer[] byOutcome = timers.get(operation);
+        return Mono.defer(() -> {
+            if (hotKeys.isEnabled()) {
+                productIds.forEach(hotKeys::record);
+            }
+            return timed(byOutcome, call);
+        });
+    }
+
+    /**
+     * Counts the lines of a bulk change rejected for insufficient stock; the change itself succeeds.
+     */
+    public void recordLines(String operation, List<BulkStockLine> lines) {
+        long insufficient = lines.stream()
+                                 .map(BulkStockLine::getStatus)
+                                 .filter(BulkStockLine.INSUFFICIENT::equals)
+                                 .count();
+        if (insufficient > 0) {
+            insufficientLines.get(operation).increment(insufficient);
+        }
+    }
+
+    private static <T> Mono<@NotNull T> timed(Timer[] byOutcome, Mono<@NotNull T> call) {
+        long start = System.nanoTime();
+        return call.doOnSuccess(result -> record(byOutcome, Outcome.SUCCESS, start))
+                   .doOnError(e -> record(byOutcome, Outcome.of(e), start));
+    }
+
+    private static void record(Timer[] byOutcome, Outcome outcome, long start) {
+        byOutcome[outcome.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private enum Outcome {
+
+        SUCCESS("success"),
+        INVALID("invalid"),
+        NOT_FOUND("not_found"),
+        INSUFFICIENT("insufficient"),
+        REJECTED("rejected"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        private static Outcome of(Throwable e) {
+            if (!(e instanceof ResponseStatusException status)) {
+                return ERROR;
+            }
+            return switch (status.getStatusCode().value()) {
+                case 400 -> INVALID;
+                case 404 -> NOT_FOUND;
+                case 409 -> INSUFFICIENT;
+                case 429 -> REJECTED;
+                default -> ERROR;
+            };
+        }
+
+    }
+
+}
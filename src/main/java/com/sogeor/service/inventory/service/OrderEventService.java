@@ -0,0 +1,268 @@
+package com.sogeor.service.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.OrderEventKey;
+import com.sogeor.service.inventory.domain.StockAdjustment;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Applies order events to stock at most once per order and event type.
+ * <p>
+ * Each poll runs in one transaction that first records the event keys in {@code processed_order_event}, chunk by
+ * chunk, and then adjusts stock only for the events it recorded, so a redelivered event finds its key and changes
+ * nothing. The adjustments of the whole poll are merged per product, so a product is written once per poll unless its
+ * merged adjustment is rejected and its events are retried one by one.
+ * Recording a key is the same insert whether or not the event is a duplicate, so a fresh event costs no extra query.
+ * Keys committed by this replica are also remembered in memory, and replays of them are dropped before reaching the
+ * database. The changed rows are cached, evaluated for low stock and published to watchers only after the
+ * transaction has committed.
+ * <p>
+ * Events with missing or negative items are skipped and counted as rejected, so one malformed event does not hold up
+ * the batch it arrived in. Recorded events with an item that could not be adjusted even on its own are marked as
+ * rejected in {@code processed_order_event} and counted, since a redelivery will not apply them again.
+ */
+@Slf4j
+@Service
+public class OrderEventService {
+
+    private static final String ORDER_PAID = "ORDER_PAID";
+
+    private static final String ORDER_CANCELLED = "ORDER_CANCELLED";
+
+    private final InventoryService inventoryService;
+
+    private final InventoryRepository inventoryRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final InventoryProperties.OrderEvents properties;
+
+    private final Cache<OrderEventKey, Boolean> processed;
+
+    private final Counter duplicates;
+
+    private final Counter rejected;
+
+    private final Counter unapplied;
+
+    public OrderEventService(InventoryService inventoryService, InventoryRepository inventoryRepository,
+                             TransactionalOperator transactionalOperator, InventoryProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.inventoryService = inventoryService;
+        this.inventoryRepository = inventoryRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = properties.getOrderEvents();
+        this.processed = Caffeine.newBuilder().maximumSize(this.properties.getDedupCacheSize()).build();
+        this.duplicates = Counter.builder("inventory.order-events.duplicates")
+                                 .description("Redelivered order events that were not applied again")
+                                 .register(meterRegistry);
+        this.rejected = Counter.builder("inventory.order-events.rejected")
+                               .description("Order events skipped because their items are missing or invalid")
+                               .register(meterRegistry);
+        this.unapplied = Counter.builder("inventory.order-events.unapplied")
+                                .description("Processed order events with a product whose stock could not be adjusted")
+                                .register(meterRegistry);
+    }
+
+    public Mono<@NotNull Void> apply(List<InventoryEvents.OrderEvent> events) {
+        Map<OrderEventKey, InventoryEvents.OrderEvent> fresh = new LinkedHashMap<>();
+        for (InventoryEvents.OrderEvent event : events) {
+            if (!ORDER_PAID.equals(event.getEventType()) && !ORDER_CANCELLED.equals(event.getEventType())) {
+                continue;
+            }
+            if (event.getOrderId() == null) {
+                log.error("Skipping {} without order id", event.getEventType());
+                rejected.increment();
+                continue;
+            }
+            if (!hasValidItems(event)) {
+                log.error("Skipping {} with invalid items for order: {}", event.getEventType(), event.getOrderId());
+                rejected.increment();
+                continue;
+            }
+            OrderEventKey key = key(event);
+            if (processed.getIfPresent(key) != null || fresh.putIfAbsent(key, event) != null) {
+                duplicates.increment();
+            }
+        }
+        if (fresh.isEmpty()) {
+            return Mono.empty();
+        }
+        List<InventoryEvents.OrderEvent> batch = List.copyOf(fresh.values());
+        return Flux.fromIterable(batch)
+                   .buffer(properties.getStatementSize())
+                   .concatMap(this::claim)
+                   .collect(Collectors.toSet())
+                   .flatMap(claimed -> adjust(batch, claimed))
+                   .as(transactionalOperator::transactional)
+                   .doOnSuccess(updated -> {
+                       batch.forEach(event -> processed.put(key(event), true));
+                       if (updated != null) {
+                           updated.forEach(inventoryService::onUpdated);
+                       }
+                   })
+                   .then();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.order-events.dedup-cleanup-interval:1h}")
+    public void cleanup() {
+        Instant before = Instant.now().minus(properties.getDedupRetention());
+        try {
+            Integer deleted;
+            do {
+                deleted = inventoryRepository.deleteProcessedOrderEvents(before, properties.getDedupCleanupBatchSize())
+                                             .block(properties.getTimeout());
+            } while (deleted != null && deleted == properties.getDedupCleanupBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Failed to clean up processed order events: {}", e.getMessage());
+        }
+    }
+
+    private Flux<@NotNull OrderEventKey> claim(List<InventoryEvents.OrderEvent> chunk) {
+        String[] orderIds = new String[chunk.size()];
+        String[] eventTypes = new String[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            orderIds[i] = chunk.get(i).getOrderId();
+            eventTypes[i] = chunk.get(i).getEventType();
+        }
+        return inventoryRepository.claimOrderEvents(orderIds, eventTypes);
+    }
+
+    /**
+     * Merges the claimed events of the whole poll into one adjustment per product, so every product is written by a
+     * single statement and the order of its events does not matter. If the merged adjustment of a product is rejected,
+     * its events are applied one by one, so a single overdrafting order does not hold back the others.
+     */
+    private Mono<@NotNull List<Inventory>> adjust(List<InventoryEvents.OrderEvent> batch, Set<OrderEventKey> claimed) {
+        List<InventoryEvents.OrderEvent> applied = new ArrayList<>();
+        Map<String, StockAdjustment> adjustments = new LinkedHashMap<>();
+        for (InventoryEvents.OrderEvent event : batch) {
+            if (!claimed.contains(key(event))) {
+                log.info("Skipping already processed {} for order: {}", event.getEventType(), event.getOrderId());
+                duplicates.increment();
+                continue;
+            }
+            log.info("Processing {} for order: {}", event.getEventType(), event.getOrderId());
+            applied.add(event);
+            merge(adjustments, event, productId -> true);
+        }
+        if (adjustments.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(adjustments.values())
+                   .buffer(properties.getStatementSize())
+                   .concatMap(inventoryService::adjustStock)
+                   .collectList()
+                   .flatMap(updated -> {
+                       Set<String> rejectedIds = new HashSet<>(adjustments.keySet());
+                       updated.forEach(inventory -> rejectedIds.remove(inventory.getProductId()));
+                       if (rejectedIds.isEmpty()) {
+                           return Mono.just(updated);
+                       }
+                       log.warn("Applying order events one by one for products: {}", String.join(", ", rejectedIds));
+                       return adjustOneByOne(applied, rejectedIds).map(retried -> {
+                           List<Inventory> all = new ArrayList<>(updated);
+                           all.addAll(retried);
+                           return all;
+                       });
+                   });
+    }
+
+    /**
+     * Applies the items of the given products event by event, in poll order. Events with an item that is still
+     * rejected are recorded as rejected, since a redelivery will not apply them again.
+     */
+    private Mono<@NotNull List<Inventory>> adjustOneByOne(List<InventoryEvents.OrderEvent> events,
+                                                          Set<String> productIds) {
+        List<Inventory> updated = new ArrayList<>();
+        List<String> orderIds = new ArrayList<>();
+        List<String> eventTypes = new ArrayList<>();
+        return Flux.fromIterable(events)
+                   .concatMap(event -> {
+                       Map<String, StockAdjustment> adjustments = new LinkedHashMap<>();
+                       merge(adjustments, event, productIds::contains);
+                       if (adjustments.isEmpty()) {
+                           return Mono.empty();
+                       }
+                       return inventoryService.adjustStock(List.copyOf(adjustments.values()))
+                                              .collectList()
+                                              .doOnNext(rows -> {
+                                                  updated.addAll(rows);
+                                                  if (rows.size() < adjustments.size()) {
+                                                      orderIds.add(event.getOrderId());
+                                                      eventTypes.add(event.getEventType());
+                                                  }
+                                              });
+                   })
+                   .then(Mono.defer(() -> reject(orderIds, eventTypes)))
+                   .thenReturn(updated);
+    }
+
+    private Mono<@NotNull Integer> reject(List<String> orderIds, List<String> eventTypes) {
+        if (orderIds.isEmpty()) {
+            return Mono.just(0);
+        }
+        log.error("Failed to adjust stock for orders (product not found or insufficient stock): {}",
+                  String.join(", ", orderIds));
+        unapplied.increment(orderIds.size());
+        return inventoryRepository.rejectOrderEvents(orderIds.toArray(String[]::new),
+                                                     eventTypes.toArray(String[]::new));
+    }
+
+    private static void merge(Map<String, StockAdjustment> adjustments, InventoryEvents.OrderEvent event,
+                              Predicate<String> products) {
+        for (InventoryEvents.OrderItem item : event.getItems()) {
+            if (!products.test(item.getProductId())) {
+                continue;
+            }
+            StockAdjustment adjustment = adjustments.computeIfAbsent(
+                    item.getProductId(), productId -> StockAdjustment.builder().productId(productId).build());
+            if (ORDER_PAID.equals(event.getEventType())) {
+                adjustment.deduct(item.getQuantity());
+            } else {
+                adjustment.add(item.getQuantity());
+            }
+        }
+    }
+
+    private static OrderEventKey key(InventoryEvents.OrderEvent event) {
+        return new OrderEventKey(event.getOrderId(), event.getEventType());
+    }
+
+    private static boolean hasValidItems(InventoryEvents.OrderEvent event) {
+        if (event.getItems() == null) {
+            return false;
+        }
+        for (InventoryEvents.OrderItem item : event.getItems()) {
+            if (item == null || item.getProductId() == null || item.getProductId().isBlank() ||
+                item.getQuantity() == null || item.getQuantity() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,262 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stock of the products of one command topic partition owned by this replica. Commands are applied in
+ * offset order and the changes since the last flush are handed out as deltas, together with the offset they cover.
+ * <p>
+ * Not thread-safe; callers synchronize on the instance.
+ */
+final class OwnedPartition {
+
+    private final int partition;
+
+    private final long epoch;
+
+    private final Map<String, Stock> stocks = new HashMap<>();
+
+    private long nextOffset;
+
+    private boolean advanced;
+
+    private boolean fenced;
+
+    private long flushes;
+
+    OwnedPartition(int partition, long epoch, long nextOffset) {
+        this.partition = partition;
+        this.epoch = epoch;
+        this.nextOffset = nextOffset;
+    }
+
+    int partition() {
+        return partition;
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    long nextOffset() {
+        return nextOffset;
+    }
+
+    boolean isFenced() {
+        return fenced;
+    }
+
+    /**
+     * Marks the partition as taken over by another replica; its changes are discarded.
+     */
+    void fence() {
+        fenced = true;
+        stocks.clear();
+    }
+
+    /**
+     * Number of flushes so far. A row read from the database while it was this value may predate any later flush.
+     */
+    long flushes() {
+        return flushes;
+    }
+
+    boolean isLoaded(String productId) {
+        return stocks.containsKey(productId);
+    }
+
+    /**
+     * Seeds the stock of a product from the database, {@code null} meaning that it does not exist yet.
+     */
+    void load(String productId, @Nullable Inventory inventory) {
+        stocks.computeIfAbsent(productId, ignored -> inventory == null
+                                                     ? new Stock(false, 0, 0)
+                                                     : new Stock(true, inventory.getQuantity(),
+                                                                 inventory.getReserved()));
+    }
+
+    @Nullable Inventory view(String productId) {
+        Stock stock = stocks.get(productId);
+        if (stock == null || !stock.exists) {
+            return null;
+        }
+        return Inventory.builder().productId(productId).quantity(stock.quantity).reserved(stock.reserved).build();
+    }
+
+    /**
+     * Takes over a row of a loaded product changed outside of this partition, keeping the changes not written yet on
+     * top of it. Returns {@code false} without changing anything if the partition has been flushed since the row was
+     * read, as the row may then be older than the flushed state.
+     */
+    boolean rebase(Inventory row, long flushesBeforeRead) {
+        if (flushesBeforeRead != flushes) {
+            return false;
+        }
+        Stock stock = stocks.get(row.getProductId());
+        if (stock != null) {
+            stock.rebase(row.getQuantity(), row.getReserved());
+        }
+        return true;
+    }
+
+    /**
+     * Applies a command to a loaded product. Commands below the next offset have already been applied and are
+     * skipped, so replaying a partition from its checkpoint is safe.
+     */
+    @Nullable BulkStockLine apply(long offset, InventoryEvents.StockCommand command) {
+        if (offset < nextOffset) {
+            return null;
+        }
+        nextOffset = offset + 1;
+        advanced = true;
+
+        String productId = command.getProductId();
+        int quantity = command.getQuantity();
+        Stock stock = stocks.get(productId);
+        String status = switch (command.getType()) {
+            case InventoryEvents.StockCommand.ADD -> {
+                stock.exists = true;
+                stock.quantity += quantity;
+                yield BulkStockLine.APPLIED;
+            }
+            case InventoryEvents.StockCommand.RESERVE -> {
+                if (!stock.exists) {
+                    yield BulkStockLine.NOT_FOUND;
+                }
+                if (stock.quantity - stock.reserved < quantity) {
+                    yield BulkStockLine.INSUFFICIENT;
+                }
+                stock.reserved += quantity;
+                yield BulkStockLine.APPLIED;
+            }
+            case InventoryEvents.StockCommand.RELEASE -> {
+                if (!stock.exists) {
+                    yield BulkStockLine.NOT_FOUND;
+                }
+                if (stock.reserved < quantity) {
+                    yield BulkStockLine.INSUFFICIENT;
+                }
+                stock.reserved -= quantity;
+                yield BulkStockLine.APPLIED;
+            }
+            case InventoryEvents.StockCommand.DEDUCT -> {
+                if (!stock.exists) {
+                    yield BulkStockLine.NOT_FOUND;
+                }
+                if (stock.quantity < quantity) {
+                    yield BulkStockLine.INSUFFICIENT;
+                }
+                stock.quantity -= quantity;
+                if (stock.reserved >= quantity) {
+                    stock.reserved -= quantity;
+                }
+                yield BulkStockLine.APPLIED;
+            }
+            default -> throw new IllegalArgumentException("Unknown command type: " + command.getType());
+        };
+
+        BulkStockLine.BulkStockLineBuilder line = BulkStockLine.builder()
+                                                               .productId(productId)
+                                                               .requested(quantity)
+                                                               .status(status);
+        if (stock.exists) {
+            line.quantity(stock.quantity).reserved(stock.reserved);
+        }
+        return line.build();
+    }
+
+    /**
+     * Returns the changes not written to the database yet, or {@code null} if there are none.
+     */
+    @Nullable Changes changes() {
+        List<String> productIds = new ArrayList<>();
+        List<Integer> quantityDeltas = new ArrayList<>();
+        List<Integer> reservedDeltas = new ArrayList<>();
+        stocks.forEach((productId, stock) -> {
+            if (stock.isDirty()) {
+                productIds.add(productId);
+                quantityDeltas.add(stock.quantity - stock.flushedQuantity);
+                reservedDeltas.add(stock.reserved - stock.flushedReserved);
+            }
+        });
+        if (productIds.isEmpty() && !advanced) {
+            return null;
+        }
+        return new Changes(productIds.toArray(String[]::new), quantityDeltas.toArray(Integer[]::new),
+                           reservedDeltas.toArray(Integer[]::new), nextOffset);
+    }
+
+    /**
+     * Records that the changes have been written and takes over the resulting rows, which also reflect changes made
+     * to the products outside of this partition.
+     */
+    void flushed(List<Inventory> rows) {
+        advanced = false;
+        flushes++;
+        for (Inventory row : rows) {
+            Stock stock = stocks.get(row.getProductId());
+            if (stock != null) {
+                stock.sync(row.getQuantity(), row.getReserved());
+            }
+        }
+    }
+
+    record Changes(String[] productIds, Integer[] quantityDeltas, Integer[] reservedDeltas, long nextOffset) {
+
+    }
+
+    private static final class Stock {
+
+        private boolean exists;
+
+        private boolean persisted;
+
+        private int quantity;
+
+        private int reserved;
+
+        private int flushedQuantity;
+
+        private int flushedReserved;
+
+        Stock(boolean exists, int quantity, int reserved) {
+            this.exists = exists;
+            this.persisted = exists;
+            this.quantity = quantity;
+            this.reserved = reserved;
+            this.flushedQuantity = quantity;
+            this.flushedReserved = reserved;
+        }
+
+        boolean isDirty() {
+            return quantity != flushedQuantity || reserved != flushedReserved || exists && !persisted;
+        }
+
+        void rebase(int quantity, int reserved) {
+            int quantityDelta = this.quantity - flushedQuantity;
+            int reservedDelta = this.reserved - flushedReserved;
+            sync(quantity, reserved);
+            this.quantity += quantityDelta;
+            this.reserved += reservedDelta;
+        }
+
+        void sync(int quantity, int reserved) {
+            this.exists = true;
+            this.persisted = true;
+            this.quantity = quantity;
+            this.reserved = reserved;
+            this.flushedQuantity = quantity;
+            this.flushedReserved = reserved;
+        }
+
+    }
+
+}
@@ -0,0 +1,415 @@
+package com.sogeor.service.inventory.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.OwnershipCheckpoint;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import com.sogeor.service.inventory.repository.OwnershipCheckpointRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Utils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Serves single-product stock changes from the replica owning the product.
+ * <p>
+ * Commands are keyed by product and sent to the command topic, so every product maps to one partition and every
+ * partition is consumed by one replica of the owners' consumer group. The owner applies the commands of its partitions
+ * to in-memory state in offset order and replies through a shared reply topic. Changes are written to the database
+ * behind, in one transaction with the offset they cover, guarded by the epoch taken when the partition was assigned.
+ * <p>
+ * A revoked partition is flushed before it is handed over, and its new owner starts from the checkpointed offset, so
+ * commands not written yet are replayed against the state they were first applied to. A replica that lost its
+ * partition without noticing is fenced off by the newer epoch and its unwritten changes are discarded.
+ * <p>
+ * Bulk, order-event, hold, import and flash-sale changes still write the database directly. Each of them reaches the
+ * owner as an inventory update, and the owner rebases the product on the current row, keeping its unwritten changes.
+ * A change racing an owner's decision may still overdraw the row; the owner's write then fails instead of storing it,
+ * and keeps failing until the product has stock for what the owner granted.
+ */
+@Slf4j
+@Service
+public class OwnershipService {
+
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final InventoryRepository inventoryRepository;
+
+    private final OwnershipCheckpointRepository checkpointRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ObjectMapper objectMapper;
+
+    private final InventoryProperties.Ownership ownership;
+
+    private final ConsumerFactory<@NotNull String, @NotNull String> consumerFactory;
+
+    private final ProducerFactory<@NotNull String, @NotNull String> producerFactory;
+
+    private final Map<Integer, OwnedPartition> partitions = new ConcurrentHashMap<>();
+
+    private ReplyingKafkaTemplate<@NotNull String, @NotNull String, @NotNull String> requests;
+
+    private ConcurrentMessageListenerContainer<@NotNull String, @NotNull String> commands;
+
+    public OwnershipService(InventoryRepository inventoryRepository,
+                            OwnershipCheckpointRepository checkpointRepository,
+                            TransactionalOperator transactionalOperator, ObjectMapper objectMapper,
+                            InventoryProperties properties, ConsumerFactory<?, ?> consumerFactory,
+                            ProducerFactory<?, ?> producerFactory) {
+        this.inventoryRepository = inventoryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.objectMapper = objectMapper;
+        this.ownership = properties.getOwnership();
+        this.consumerFactory = new DefaultKafkaConsumerFactory<>(consumerFactory.getConfigurationProperties(),
+                                                                 new StringDeserializer(), new StringDeserializer());
+
+        Map<String, Object> configs = new HashMap<>(producerFactory.getConfigurationProperties());
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        this.producerFactory = new DefaultKafkaProducerFactory<>(configs, new StringSerializer(),
+                                                                 new StringSerializer());
+    }
+
+    public boolean isEnabled() {
+        return ownership.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!ownership.isEnabled()) {
+            return;
+        }
+
+        ContainerProperties replyProperties = new ContainerProperties(ownership.getReplyTopic());
+        replyProperties.setGroupId(ownership.getReplyGroupId());
+        replyProperties.getKafkaConsumerProperties().setProperty("auto.offset.reset", "latest");
+        requests = new ReplyingKafkaTemplate<>(producerFactory,
+                                               new ConcurrentMessageListenerContainer<>(consumerFactory,
+                                                                                        replyProperties));
+        requests.setSharedReplyTopic(true);
+        requests.setDefaultReplyTimeout(ownership.getRequestTimeout());
+        requests.start();
+
+        ContainerProperties commandProperties = new ContainerProperties(ownership.getTopic());
+        commandProperties.setGroupId(ownership.getGroupId());
+        commandProperties.setConsumerRebalanceListener(new Handover());
+        commandProperties.setMessageListener((MessageListener<@NotNull String, @NotNull String>) this::handle);
+        commands = new ConcurrentMessageListenerContainer<>(consumerFactory, commandProperties);
+        commands.start();
+
+        try {
+            requests.waitForAssignment(ownership.getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (commands != null) {
+            commands.stop();
+        }
+        if (requests != null) {
+            requests.stop();
+        }
+    }
+
+    /**
+     * Sends the command to the owner of its product and emits the owner's reply.
+     */
+    public Mono<@NotNull BulkStockLine> execute(InventoryEvents.StockCommand command) {
+        if (!isValid(command)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid stock command: " + command));
+        }
+        return Mono.fromCallable(() -> new ProducerRecord<>(ownership.getTopic(), command.getProductId(),
+                                                            objectMapper.writeValueAsString(command)))
+                   .flatMap(record -> Mono.fromFuture(() -> requests.sendAndReceive(record)))
+                   .map(reply -> readLine(reply.value()))
+                   .onErrorMap(KafkaReplyTimeoutException.class,
+                               e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                                                "No reply from the owner of product: " +
+                                                                command.getProductId(), e));
+    }
+
+    /**
+     * Returns the in-memory stock of the product if this replica owns it and has loaded it, {@code null} otherwise.
+     */
+    public @Nullable Inventory localView(String productId) {
+        if (!ownership.isEnabled()) {
+            return null;
+        }
+        OwnedPartition owned = partitions.get(partitionOf(productId));
+        if (owned == null) {
+            return null;
+        }
+        synchronized (owned) {
+            return owned.view(productId);
+        }
+    }
+
+    /**
+     * Rebases the product on its current row if this replica owns it and has loaded it, so a change written outside of
+     * the owner is seen by its next decision. The row is read again if the partition was flushed in the meantime.
+     */
+    public void refresh(String productId) {
+        if (!ownership.isEnabled() || productId == null) {
+            return;
+        }
+        OwnedPartition owned = partitions.get(partitionOf(productId));
+        if (owned == null) {
+            return;
+        }
+        Mono.defer(() -> {
+                long flushes;
+                synchronized (owned) {
+                    if (owned.isFenced() || !owned.isLoaded(productId)) {
+                        return Mono.just(true);
+                    }
+                    flushes = owned.flushes();
+                }
+                return inventoryRepository.findByProductId(productId)
+                                          .map(row -> {
+                                              synchronized (owned) {
+                                                  return owned.isFenced() || owned.rebase(row, flushes);
+                                              }
+                                          })
+                                          .defaultIfEmpty(true);
+            })
+            .filter(Boolean::booleanValue)
+            .repeatWhenEmpty(MAX_REFRESH_ATTEMPTS, attempts -> attempts)
+            .subscribe(null, error -> log.error("Failed to refresh owned product {}: {}", productId,
+                                                error.getMessage()));
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ownership.flush-interval}")
+    public void flush() {
+        partitions.values().forEach(this::flush);
+    }
+
+    private void handle(ConsumerRecord<@NotNull String, @NotNull String> record) {
+        OwnedPartition owned = partitions.get(record.partition());
+        if (owned == null) {
+            return;
+        }
+
+        InventoryEvents.StockCommand command;
+        try {
+            command = objectMapper.readValue(record.value(), InventoryEvents.StockCommand.class);
+        } catch (JsonProcessingException e) {
+            log.error("Error processing stock command", e);
+            return;
+        }
+
+        if (!isValid(command)) {
+            log.error("Skipping invalid stock command: {}", command);
+            reply(record, BulkStockLine.builder()
+                                       .productId(command.getProductId())
+                                       .requested(command.getQuantity())
+                                       .status(BulkStockLine.NOT_APPLIED)
+                                       .build());
+            return;
+        }
+
+        String productId = command.getProductId();
+        boolean loaded;
+        synchronized (owned) {
+            loaded = owned.isLoaded(productId);
+        }
+        Inventory current = loaded
+                            ? null
+                            : inventoryRepository.findByProductId(productId).block(ownership.getTimeout());
+
+        BulkStockLine line;
+        synchronized (owned) {
+            if (owned.isFenced()) {
+                return;
+            }
+            owned.load(productId, current);
+            line = owned.apply(record.offset(), command);
+        }
+        if (line != null) {
+            reply(record, line);
+        }
+    }
+
+    private void reply(ConsumerRecord<@NotNull String, @NotNull String> record, BulkStockLine line) {
+        Header replyTopic = record.headers().lastHeader(KafkaHeaders.REPLY_TOPIC);
+        Header correlationId = record.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+        if (replyTopic == null || correlationId == null) {
+            return;
+        }
+        try {
+            ProducerRecord<@NotNull String, @NotNull String> reply = new ProducerRecord<>(
+                    new String(replyTopic.value(), StandardCharsets.UTF_8), record.key(),
+                    objectMapper.writeValueAsString(line));
+            reply.headers().add(KafkaHeaders.CORRELATION_ID, correlationId.value());
+            requests.send(reply);
+        } catch (JsonProcessingException e) {
+            log.error("Error replying to stock command", e);
+        }
+    }
+
+    private void flush(OwnedPartition owned) {
+        synchronized (owned) {
+            if (owned.isFenced()) {
+                return;
+            }
+            OwnedPartition.Changes changes = owned.changes();
+            if (changes == null) {
+                return;
+            }
+            try {
+                List<Inventory> rows = checkpointRepository.advance(owned.partition(), owned.epoch(),
+                                                                    changes.nextOffset())
+                                                           .flatMapMany(advanced -> write(advanced, changes))
+                                                           .as(transactionalOperator::transactional)
+                                                           .collectList()
+                                                           .block(ownership.getTimeout());
+                owned.flushed(rows == null ? List.of() : rows);
+            } catch (OptimisticLockingFailureException e) {
+                log.warn("Partition {} of {} was taken over, discarding its unwritten changes", owned.partition(),
+                         ownership.getTopic());
+                owned.fence();
+                partitions.remove(owned.partition(), owned);
+            } catch (RuntimeException e) {
+                log.error("Failed to write changes of partition {} of {}", owned.partition(), ownership.getTopic(),
+                          e);
+            }
+        }
+    }
+
+    private Flux<@NotNull Inventory> write(int advanced, OwnedPartition.Changes changes) {
+        if (advanced == 0) {
+            return Flux.error(new OptimisticLockingFailureException("Partition owned with a newer epoch"));
+        }
+        return inventoryRepository.applyOwnedChanges(changes.productIds(), changes.quantityDeltas(),
+                                                     changes.reservedDeltas())
+                                  .collectList()
+                                  .flatMapMany(rows -> rows.size() == changes.productIds().length
+                                                       ? Flux.fromIterable(rows)
+                                                       : Flux.error(overdrawn(changes, rows)));
+    }
+
+    private static IllegalStateException overdrawn(OwnedPartition.Changes changes, List<Inventory> rows) {
+        Set<String> written = rows.stream().map(Inventory::getProductId).collect(Collectors.toSet());
+        String products = Arrays.stream(changes.productIds())
+                                .filter(productId -> !written.contains(productId))
+                                .collect(Collectors.joining(", "));
+        return new IllegalStateException("Owned changes would overdraw products changed behind the owner: " + products);
+    }
+
+    private static boolean isValid(InventoryEvents.StockCommand command) {
+        return command.getProductId() != null && !command.getProductId().isBlank() &&
+               command.getQuantity() != null && command.getQuantity() >= 0 &&
+               (InventoryEvents.StockCommand.ADD.equals(command.getType()) ||
+                InventoryEvents.StockCommand.RESERVE.equals(command.getType()) ||
+                InventoryEvents.StockCommand.RELEASE.equals(command.getType()) ||
+                InventoryEvents.StockCommand.DEDUCT.equals(command.getType()));
+    }
+
+    private BulkStockLine readLine(String value) {
+        try {
+            return objectMapper.readValue(value, BulkStockLine.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed reply to stock command", e);
+        }
+    }
+
+    /**
+     * Partition the producer assigns to records keyed by the product, assuming the topic has the configured number of
+     * partitions.
+     */
+    private int partitionOf(String productId) {
+        return Utils.toPositive(Utils.murmur2(productId.getBytes(StandardCharsets.UTF_8))) % ownership.getPartitions();
+    }
+
+    private final class Handover implements ConsumerAwareRebalanceListener {
+
+        @Override
+        public void onPartitionsRevokedBeforeCommit(@NotNull Consumer<?, ?> consumer,
+                                                    @NotNull Collection<TopicPartition> revoked) {
+            for (TopicPartition topicPartition : revoked) {
+                OwnedPartition owned = partitions.remove(topicPartition.partition());
+                if (owned != null) {
+                    flush(owned);
+                }
+            }
+        }
+
+        @Override
+        public void onPartitionsLost(@NotNull Consumer<?, ?> consumer, @NotNull Collection<TopicPartition> lost) {
+            for (TopicPartition topicPartition : lost) {
+                OwnedPartition owned = partitions.remove(topicPartition.partition());
+                if (owned != null) {
+                    synchronized (owned) {
+                        owned.fence();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(@NotNull Consumer<?, ?> consumer,
+                                         @NotNull Collection<TopicPartition> assigned) {
+            for (TopicPartition topicPartition : assigned) {
+                OwnershipCheckpoint checkpoint = checkpointRepository.claim(topicPartition.partition())
+                                                                     .block(ownership.getTimeout());
+                if (checkpoint == null) {
+                    throw new IllegalStateException("Failed to claim partition " + topicPartition);
+                }
+                partitions.put(topicPartition.partition(),
+                               new OwnedPartition(topicPartition.partition(), checkpoint.getEpoch(),
+                                                  checkpoint.getNextOffset()));
+                consumer.seek(topicPartition, checkpoint.getNextOffset());
+            }
+        }
+
+    }
+
+}
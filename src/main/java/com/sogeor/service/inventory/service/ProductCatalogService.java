@@ -0,0 +1,59 @@
+package com.sogeor.service.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Makes sure every product of the catalog has an inventory row.
+ * <p>
+ * Products that are known to have a row are remembered in memory and skipped. The rest of a batch is created with one
+ * insert that leaves existing rows alone, so a catalog edit of a known product costs no query, and only products that
+ * were actually created are published.
+ */
+@Slf4j
+@Service
+public class ProductCatalogService {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final Cache<String, Boolean> known;
+
+    public ProductCatalogService(InventoryRepository inventoryRepository, InventoryProperties properties) {
+        this.inventoryRepository = inventoryRepository;
+        this.known = Caffeine.newBuilder().maximumSize(properties.getCatalog().getKnownProductsSize()).build();
+    }
+
+    /**
+     * Creates the missing rows among the given products and returns the number of rows created.
+     */
+    public Mono<@NotNull Long> register(Collection<String> productIds) {
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String productId : productIds) {
+            if (productId != null && known.getIfPresent(productId) == null) {
+                unknown.add(productId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return inventoryRepository.createMissing(unknown.toArray(String[]::new))
+                                  .count()
+                                  .doOnNext(created -> {
+                                      unknown.forEach(productId -> known.put(productId, Boolean.TRUE));
+                                      if (created > 0) {
+                                          log.info("Created inventory for {} new products", created);
+                                      }
+                                  });
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.sogeor.service.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.Collection;
+
+/**
+ * Marks queries that may be served by a read replica. Unmarked queries always go to the primary, so writes and the
+ * reads that plan them never see a lagging copy. Products changed within the read-your-writes window, here or on
+ * another instance, are read from the primary as well, so a client reading right after a change sees it.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final String CONTEXT_KEY = ReplicaReads.class.getName();
+
+    private final boolean enabled;
+
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReplicaReads(InventoryProperties properties) {
+        InventoryProperties.Replicas settings = properties.getReplicas();
+        this.enabled = !settings.getUrls().isEmpty();
+        this.recentWrites = Caffeine.newBuilder()
+                                    .expireAfterWrite(settings.getReadYourWrites())
+                                    .maximumSize(settings.getMaxRecentWrites())
+                                    .build();
+    }
+
+    public static boolean isReplicaRead(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records that the product has just changed, keeping its reads on the primary for the read-your-writes window.
+     */
+    public void written(String productId) {
+        if (enabled && productId != null) {
+            recentWrites.put(productId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Lets a query of the products go to a replica unless one of them has changed within the read-your-writes window.
+     */
+    public <T> Flux<T> read(Collection<String> productIds, Flux<T> query) {
+        if (!enabled) {
+            return query;
+        }
+        return query.contextWrite(context -> productIds.stream().anyMatch(this::isRecent)
+                                             ? context
+                                             : context.put(CONTEXT_KEY, true));
+    }
+
+    public <T> Mono<T> read(String productId, Mono<T> query) {
+        if (!enabled) {
+            return query;
+        }
+        return query.contextWrite(context -> isRecent(productId) ? context : context.put(CONTEXT_KEY, true));
+    }
+
+    /**
+     * Lets a scan go to a replica. Scans are not tied to products, so they may miss changes made within the replica
+     * lag.
+     */
+    public <T> Flux<T> scan(Flux<T> query) {
+        return enabled ? query.contextWrite(context -> context.put(CONTEXT_KEY, true)) : query;
+    }
+
+    private boolean isRecent(String productId) {
+        return recentWrites.getIfPresent(productId) != null;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.LocationStock;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads the quantity over all locations in proportion to their available stock, so stock levels drain evenly. Units
+ * left over by rounding go to the locations with the largest remainders, in order of preference on ties.
+ */
+@Component
+public class SplitAllocationStrategy implements AllocationStrategy {
+
+    @Override
+    public String name() {
+        return "split";
+    }
+
+    @Override
+    public List<Allocation> allocate(int quantity, List<LocationStock> locations) {
+        List<LocationStock> stocked = locations.stream().filter(location -> location.available() > 0).toList();
+        long total = stocked.stream().mapToLong(LocationStock::available).sum();
+        if (total < quantity) {
+            return List.of();
+        }
+        int[] shares = new int[stocked.size()];
+        long[] remainders = new long[stocked.size()];
+        int allocated = 0;
+        for (int i = 0; i < stocked.size(); i++) {
+            long scaled = (long) quantity * stocked.get(i).available();
+            shares[i] = (int) (scaled / total);
+            remainders[i] = scaled % total;
+            allocated += shares[i];
+        }
+        int[] byRemainder = IntStream.range(0, stocked.size())
+                                     .boxed()
+                                     .sorted(Comparator.comparingLong(i -> -remainders[i]))
+                                     .mapToInt(Integer::intValue)
+                                     .toArray();
+        for (int i = 0; allocated < quantity; i++) {
+            shares[byRemainder[i]]++;
+            allocated++;
+        }
+        List<Allocation> allocations = new ArrayList<>();
+        for (int i = 0; i < stocked.size(); i++) {
+            if (shares[i] > 0) {
+                allocations.add(new Allocation(stocked.get(i).getLocationId(), shares[i]));
+            }
+        }
+        return allocations;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.sogeor.service.inventory.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.StockImport;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import com.sogeor.service.inventory.repository.StockImportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds stock from NDJSON or CSV bodies of any size. Lines are parsed as they arrive and applied in batches, each batch
+ * in one statement that also moves the checkpoint of the import, so a batch is applied at most once. Sending the same
+ * body again under the same import ID skips the rows already applied.
+ * <p>
+ * Every non-blank line except a CSV header counts as a row. Rows that cannot be parsed or carry a negative quantity are
+ * skipped and counted as rejected.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockImportService {
+
+    private static final InventoryEvents.OrderItem REJECTED = new InventoryEvents.OrderItem();
+
+    private final InventoryRepository inventoryRepository;
+
+    private final StockImportRepository stockImportRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final InventoryProperties properties;
+
+    public Mono<@NotNull StockImport> getImport(String importId) {
+        return stockImportRepository.findById(importId)
+                                    .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                                            HttpStatus.NOT_FOUND, "Import not found: " + importId)));
+    }
+
+    public Mono<@NotNull StockImport> importNdjson(String importId, Flux<String> lines) {
+        return importStock(importId, lines.filter(line -> !line.isBlank()).map(this::parseJson));
+    }
+
+    public Mono<@NotNull StockImport> importCsv(String importId, Flux<String> lines) {
+        Flux<InventoryEvents.OrderItem> rows = lines.filter(line -> !line.isBlank())
+                                                    .index()
+                                                    .filter(line -> line.getT1() > 0 || !isCsvHeader(line.getT2()))
+                                                    .map(line -> parseCsv(line.getT2()));
+        return importStock(importId, rows);
+    }
+
+    private Mono<@NotNull StockImport> importStock(String importId, Flux<InventoryEvents.OrderItem> rows) {
+        return stockImportRepository.start(importId).flatMap(started -> {
+            if (StockImport.COMPLETED.equals(started.getStatus())) {
+                return Mono.just(started);
+            }
+            long resumeFrom = started.getProcessedRows();
+            if (resumeFrom > 0) {
+                log.info("Resuming import {} after row {}", importId, resumeFrom);
+            }
+            return rows.skip(resumeFrom)
+                       .index()
+                       .buffer(properties.getImports().getBatchSize())
+                       .concatMap(batch -> applyBatch(importId, resumeFrom, batch))
+                       .then(stockImportRepository.complete(importId))
+                       .doOnNext(completed -> log.info("Import {} completed with {} rows, {} rejected", importId,
+                                                       completed.getProcessedRows(), completed.getRejectedRows()))
+                       .onErrorResume(e -> stockImportRepository.interrupt(importId).then(Mono.error(e)))
+                       .doOnCancel(() -> stockImportRepository.interrupt(importId).subscribe());
+        });
+    }
+
+    private Mono<@NotNull Integer> applyBatch(String importId, long resumeFrom,
+                                              List<Tuple2<Long, InventoryEvents.OrderItem>> batch) {
+        long fromRow = resumeFrom + batch.getFirst().getT1();
+        long toRow = resumeFrom + batch.getLast().getT1() + 1;
+        List<String> productIds = new ArrayList<>(batch.size());
+        List<Integer> quantities = new ArrayList<>(batch.size());
+        for (Tuple2<Long, InventoryEvents.OrderItem> row : batch) {
+            InventoryEvents.OrderItem item = row.getT2();
+            if (item.getProductId() != null) {
+                productIds.add(item.getProductId());
+                quantities.add(item.getQuantity());
+            }
+        }
+        int rejected = batch.size() - productIds.size();
+        return inventoryRepository.importStock(importId, fromRow, toRow, rejected, productIds.toArray(String[]::new),
+                                               quantities.toArray(Integer[]::new))
+                                  .flatMap(changed -> changed < 0
+                                                      ? Mono.error(new ResponseStatusException(
+                                                              HttpStatus.CONFLICT,
+                                                              "Import " + importId + " was advanced concurrently"))
+                                                      : Mono.just(changed));
+    }
+
+    private InventoryEvents.OrderItem parseJson(String line) {
+        try {
+            return valid(objectMapper.readValue(line, InventoryEvents.OrderItem.class));
+        } catch (JsonProcessingException e) {
+            return REJECTED;
+        }
+    }
+
+    private static InventoryEvents.OrderItem parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 2) {
+            return REJECTED;
+        }
+        try {
+            return valid(new InventoryEvents.OrderItem(fields[0].strip(), Integer.valueOf(fields[1].strip())));
+        } catch (NumberFormatException e) {
+            return REJECTED;
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        String first = line.split(",", 2)[0].strip();
+        return first.equalsIgnoreCase("productId") || first.equalsIgnoreCase("product_id");
+    }
+
+    private static InventoryEvents.OrderItem valid(InventoryEvents.OrderItem item) {
+        if (item == null || item.getProductId() == null || item.getProductId().isBlank() || item.getQuantity() == null ||
+            item.getQuantity() < 0) {
+            return REJECTED;
+        }
+        return item;
+    }
+
+}
@@ -0,0 +1,307 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.StockAdjustment;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps stock per location. The {@code inventory} row of a product stays the total over its locations and is updated
+ * by the same statement as the locations, so reading a product is still a single-row lookup. Stock not assigned to
+ * any location counts as held at the default location, which has no row of its own; changes that do not know about
+ * locations, such as imports, holds and flash-sale leases, therefore apply to the default location.
+ * <p>
+ * A change reads the stock of its products by location, plans which locations it takes from, and applies the plan in
+ * one statement that checks every location again under the product lock. If stock moved in between, the change is
+ * planned again from a fresh read.
+ */
+@Component
+public class StockLocations {
+
+    private static final int MAX_LOCATION_ID_LENGTH = 64;
+
+    private final InventoryRepository inventoryRepository;
+
+    private final InventoryProperties.Locations properties;
+
+    private final AllocationStrategy strategy;
+
+    public StockLocations(InventoryRepository inventoryRepository, List<AllocationStrategy> strategies,
+                          InventoryProperties properties) {
+        this.inventoryRepository = inventoryRepository;
+        this.properties = properties.getLocations();
+        String name = this.properties.getStrategy();
+        this.strategy = strategies.stream()
+                                  .filter(strategy -> strategy.name().equals(name))
+                                  .findFirst()
+                                  .orElseThrow(() -> new IllegalArgumentException(
+                                          "Unknown allocation strategy: " + name));
+        if (this.properties.isEnabled() &&
+            (properties.getLedger().isEnabled() || properties.getOwnership().isEnabled())) {
+            throw new IllegalStateException("Stock locations cannot be combined with ledger or ownership mode");
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String defaultLocation() {
+        return properties.getDefaultLocation();
+    }
+
+    public Flux<@NotNull LocationStock> getLocations(String productId) {
+        return inventoryRepository.findLocations(new String[]{productId}, properties.getDefaultLocation());
+    }
+
+    public Mono<@NotNull Inventory> addStock(String productId, String locationId, int quantity) {
+        if (!properties.isEnabled()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock locations are not enabled"));
+        }
+        if (locationId.isBlank() || locationId.length() > MAX_LOCATION_ID_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid location: " + locationId));
+        }
+        return inventoryRepository.addStock(productId, locationId, quantity);
+    }
+
+    /**
+     * Reserves stock from the locations chosen by the allocation strategy, for all products or none.
+     */
+    public Flux<@NotNull BulkStockLine> reserveStock(String[] productIds, Integer[] quantities) {
+        return moveAll(productIds, quantities, quantity -> locations -> reserve(quantity, locations));
+    }
+
+    /**
+     * Releases reserved stock from the locations holding the most of it, for all products or none.
+     */
+    public Flux<@NotNull BulkStockLine> releaseStock(String[] productIds, Integer[] quantities) {
+        return moveAll(productIds, quantities, quantity -> locations -> release(quantity, locations));
+    }
+
+    public Flux<@NotNull BulkStockLine> deductStock(String[] productIds, Integer[] quantities) {
+        return moveAll(productIds, quantities, quantity -> locations -> deduct(quantity, locations));
+    }
+
+    /**
+     * Applies each adjustment independently and emits the products that were changed. Deducted stock is taken like
+     * {@link #deductStock}, added stock goes to the default location.
+     */
+    public Flux<@NotNull Inventory> adjustStock(List<StockAdjustment> adjustments) {
+        Map<String, Plan> plans = new TreeMap<>();
+        for (StockAdjustment adjustment : adjustments) {
+            plans.put(adjustment.getProductId(), locations -> adjust(adjustment, locations));
+        }
+        return move(plans, false, 1).flatMapIterable(lines -> lines)
+                                    .filter(BulkStockLine::isApplied)
+                                    .map(BulkStockLine::toInventory);
+    }
+
+    private Flux<@NotNull BulkStockLine> moveAll(String[] productIds, Integer[] quantities, IntFunction<Plan> plan) {
+        Map<String, Integer> requested = new TreeMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            requested.merge(productIds[i], quantities[i], Integer::sum);
+        }
+        Map<String, Plan> plans = new TreeMap<>();
+        requested.forEach((productId, quantity) -> plans.put(productId, plan.apply(quantity)));
+        return move(plans, true, 1).flatMapIterable(lines -> lines)
+                                   .doOnNext(line -> line.setRequested(requested.get(line.getProductId())));
+    }
+
+    private Mono<@NotNull List<BulkStockLine>> move(Map<String, Plan> plans, boolean atomic, int attempt) {
+        return inventoryRepository.findLocations(plans.keySet().toArray(String[]::new),
+                                                 properties.getDefaultLocation())
+                                  .collectMultimap(LocationStock::getProductId)
+                                  .flatMap(stock -> move(plans, stock, atomic, attempt));
+    }
+
+    private Mono<@NotNull List<BulkStockLine>> move(Map<String, Plan> plans,
+                                                    Map<String, Collection<LocationStock>> stock, boolean atomic,
+                                                    int attempt) {
+        List<BulkStockLine> rejected = new ArrayList<>();
+        List<BulkStockLine> planned = new ArrayList<>();
+        List<String> productIds = new ArrayList<>();
+        List<String> locationIds = new ArrayList<>();
+        List<Integer> quantityDeltas = new ArrayList<>();
+        List<Integer> reservedDeltas = new ArrayList<>();
+        plans.forEach((productId, plan) -> {
+            Collection<LocationStock> locations = stock.get(productId);
+            if (locations == null) {
+                rejected.add(line(productId, null, null, BulkStockLine.NOT_FOUND));
+                return;
+            }
+            int quantity = locations.stream().mapToInt(LocationStock::getQuantity).sum();
+            int reserved = locations.stream().mapToInt(LocationStock::getReserved).sum();
+            List<Move> moves = plan.moves(byPreference(locations));
+            if (moves == null) {
+                rejected.add(line(productId, quantity, reserved, BulkStockLine.INSUFFICIENT));
+                return;
+            }
+            planned.add(line(productId, quantity, reserved, BulkStockLine.NOT_APPLIED));
+            for (Move move : moves) {
+                productIds.add(productId);
+                locationIds.add(move.locationId());
+                quantityDeltas.add(move.quantityDelta());
+                reservedDeltas.add(move.reservedDelta());
+            }
+        });
+        if (atomic && !rejected.isEmpty()) {
+            return Mono.just(byProduct(rejected, planned));
+        }
+        if (productIds.isEmpty()) {
+            return Mono.just(rejected);
+        }
+        return inventoryRepository.moveStock(productIds.toArray(String[]::new), locationIds.toArray(String[]::new),
+                                             quantityDeltas.toArray(Integer[]::new),
+                                             reservedDeltas.toArray(Integer[]::new), properties.getDefaultLocation(),
+                                             atomic)
+                                  .collectList()
+                                  .flatMap(lines -> {
+                                      Map<String, Plan> stale = new TreeMap<>();
+                                      lines.stream()
+                                           .filter(line -> BulkStockLine.INSUFFICIENT.equals(line.getStatus()))
+                                           .forEach(line -> stale.put(line.getProductId(),
+                                                                      plans.get(line.getProductId())));
+                                      if (stale.isEmpty() || attempt >= properties.getMaxAttempts()) {
+                                          return Mono.just(byProduct(rejected, lines));
+                                      }
+                                      if (atomic) {
+                                          return move(plans, true, attempt + 1);
+                                      }
+                                      List<BulkStockLine> done = lines.stream()
+                                                                      .filter(line -> !stale.containsKey(
+                                                                              line.getProductId()))
+                                                                      .toList();
+                                      return move(stale, false, attempt + 1).map(
+                                              retried -> byProduct(rejected, done, retried));
+                                  });
+    }
+
+    private List<Move> reserve(int quantity, List<LocationStock> locations) {
+        List<AllocationStrategy.Allocation> allocations = strategy.allocate(quantity, locations);
+        if (allocations.isEmpty()) {
+            return null;
+        }
+        return allocations.stream()
+                          .map(allocation -> new Move(allocation.locationId(), 0, allocation.quantity()))
+                          .toList();
+    }
+
+    private static List<Move> release(int quantity, List<LocationStock> locations) {
+        List<Move> moves = new ArrayList<>();
+        int remaining = quantity;
+        for (LocationStock location : byReserved(locations)) {
+            int released = Math.clamp(location.getReserved(), 0, remaining);
+            if (released > 0) {
+                moves.add(new Move(location.getLocationId(), 0, -released));
+                remaining -= released;
+            }
+        }
+        return remaining == 0 ? moves : null;
+    }
+
+    /**
+     * Deducts reserved stock first, from the locations holding the most of it, and then available stock in order of
+     * preference.
+     */
+    private static List<Move> deduct(int quantity, List<LocationStock> locations) {
+        List<Move> moves = new ArrayList<>();
+        int remaining = quantity;
+        for (LocationStock location : byReserved(locations)) {
+            if (location.getReserved() > location.getQuantity()) {
+                continue;
+            }
+            int deducted = Math.clamp(location.getReserved(), 0, remaining);
+            if (deducted > 0) {
+                moves.add(new Move(location.getLocationId(), -deducted, -deducted));
+                remaining -= deducted;
+            }
+        }
+        for (LocationStock location : locations) {
+            int deducted = Math.min(location.available(), remaining);
+            if (deducted > 0) {
+                moves.add(new Move(location.getLocationId(), -deducted, 0));
+                remaining -= deducted;
+            }
+        }
+        return remaining == 0 ? moves : null;
+    }
+
+    private List<Move> adjust(StockAdjustment adjustment, List<LocationStock> locations) {
+        String defaultLocation = properties.getDefaultLocation();
+        int deducted = adjustment.getReservedDelta();
+        int added = adjustment.getQuantityDelta() + deducted;
+        List<LocationStock> restocked = locations.stream()
+                                                 .map(location -> location.getLocationId().equals(defaultLocation)
+                                                                  ? new LocationStock(location.getProductId(),
+                                                                                      defaultLocation,
+                                                                                      location.getQuantity() + added,
+                                                                                      location.getReserved())
+                                                                  : location)
+                                                 .toList();
+        List<Move> moves = deducted > 0 ? deduct(deducted, restocked) : List.of();
+        if (moves == null || added == 0 && !moves.isEmpty()) {
+            return moves;
+        }
+        return Stream.concat(moves.stream(), Stream.of(new Move(defaultLocation, added, 0))).toList();
+    }
+
+    private List<LocationStock> byPreference(Collection<LocationStock> locations) {
+        List<String> preferred = properties.getPreferred();
+        return locations.stream().sorted(Comparator.comparingInt(location -> {
+            int rank = preferred.indexOf(location.getLocationId());
+            return rank < 0 ? preferred.size() : rank;
+        })).toList();
+    }
+
+    private static List<LocationStock> byReserved(List<LocationStock> locations) {
+        return locations.stream().sorted(Comparator.comparingInt(LocationStock::getReserved).reversed()).toList();
+    }
+
+    @SafeVarargs
+    private static List<BulkStockLine> byProduct(List<BulkStockLine>... lines) {
+        return Stream.of(lines)
+                     .flatMap(List::stream)
+                     .sorted(Comparator.comparing(BulkStockLine::getProductId))
+                     .toList();
+    }
+
+    private static BulkStockLine line(String productId, Integer quantity, Integer reserved, String status) {
+        return BulkStockLine.builder()
+                            .productId(productId)
+                            .quantity(quantity)
+                            .reserved(reserved)
+                            .status(status)
+                            .build();
+    }
+
+    /**
+     * Moves that apply a change to the given locations of one product, or {@code null} if the locations do not have
+     * the stock for it.
+     */
+    @FunctionalInterface
+    private interface Plan {
+
+        List<Move> moves(List<LocationStock> locations);
+
+    }
+
+    private record Move(String locationId, int quantityDelta, int reservedDelta) {}
+
+}
@@ -0,0 +1,136 @@
+package com.sogeor.service.inventory.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Striped stock counter. Each thread draws from its home shard with a single CAS and only touches the other shards
+ * when its home shard runs dry, moving stock over from them. Shards are padded onto separate cache lines.
+ */
+final class StockShards {
+
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray shards;
+
+    private final int mask;
+
+    StockShards(int count) {
+        int size = Integer.highestOneBit(Math.max(1, count - 1) << 1);
+        shards = new AtomicIntegerArray(size * PADDING);
+        mask = size - 1;
+    }
+
+    boolean tryAcquire(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        int home = home();
+        if (takeExactly(home, quantity)) {
+            return true;
+        }
+
+        int taken = 0;
+        for (int i = 0; i <= mask && taken < quantity; i++) {
+            taken += takeUpTo((home + i) & mask, quantity - taken);
+        }
+        if (taken == quantity) {
+            rebalance(home);
+            return true;
+        }
+        shards.getAndAdd(home * PADDING, taken);
+        return false;
+    }
+
+    void add(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative: " + quantity);
+        }
+        int size = mask + 1;
+        int share = quantity / size;
+        int remainder = quantity % size;
+        for (int i = 0; i < size; i++) {
+            int delta = share + (i < remainder ? 1 : 0);
+            if (delta != 0) {
+                shards.getAndAdd(i * PADDING, delta);
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@code quantity} units out of the shards and returns how many were taken.
+     */
+    int takeUpTo(int quantity) {
+        int taken = 0;
+        for (int i = 0; i <= mask && taken < quantity; i++) {
+            taken += takeUpTo(i, quantity - taken);
+        }
+        return taken;
+    }
+
+    int drain() {
+        int drained = 0;
+        for (int i = 0; i <= mask; i++) {
+            drained += shards.getAndSet(i * PADDING, 0);
+        }
+        return drained;
+    }
+
+    int available() {
+        int available = 0;
+        for (int i = 0; i <= mask; i++) {
+            available += shards.get(i * PADDING);
+        }
+        return available;
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().threadId() & mask);
+    }
+
+    private boolean takeExactly(int shard, int quantity) {
+        int index = shard * PADDING;
+        for (; ; ) {
+            int current = shards.get(index);
+            if (current < quantity) {
+                return false;
+            }
+            if (shards.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private int takeUpTo(int shard, int quantity) {
+        int index = shard * PADDING;
+        for (; ; ) {
+            int current = shards.get(index);
+            int taken = Math.min(current, quantity);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (shards.compareAndSet(index, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * Moves half of the richest shard into the dry {@code home} shard so that its thread stops stealing.
+     */
+    private void rebalance(int home) {
+        int richest = home;
+        int richestStock = 0;
+        for (int i = 0; i <= mask; i++) {
+            int stock = shards.get(i * PADDING);
+            if (stock > richestStock) {
+                richest = i;
+                richestStock = stock;
+            }
+        }
+        if (richest != home) {
+            int moved = takeUpTo(richest, richestStock / 2);
+            shards.getAndAdd(home * PADDING, moved);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+CREATE TABLE IF NOT EXISTS inventory
+(
+    id         SERIAL PRIMARY KEY,
+    product_id VARCHAR(255) NOT NULL,
+    quantity   INTEGER      NOT NULL DEFAULT 0,
+    reserved   INTEGER      NOT NULL DEFAULT 0,
+    created_at TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS inventory_product_id_key ON inventory (product_id);
+
+CREATE INDEX IF NOT EXISTS inventory_available_idx ON inventory ((quantity - reserved), product_id);
+
+ALTER TABLE inventory
+    ADD COLUMN IF NOT EXISTS flash_sale BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS stock_lease
+(
+    product_id VARCHAR(255) NOT NULL,
+    owner_id   VARCHAR(255) NOT NULL,
+    held       INTEGER      NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    PRIMARY KEY (product_id, owner_id)
+);
+
+CREATE TABLE IF NOT EXISTS inventory_outbox
+(
+    id         BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(64)  NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    quantity   INTEGER,
+    reserved   INTEGER,
+    threshold  INTEGER,
+    created_at TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE TABLE IF NOT EXISTS inventory_threshold
+(
+    product_id      VARCHAR(255) PRIMARY KEY,
+    threshold       INTEGER     NOT NULL,
+    rearm_threshold INTEGER     NOT NULL,
+    alerted         BOOLEAN     NOT NULL DEFAULT FALSE,
+    updated_at      TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE TABLE IF NOT EXISTS stock_hold
+(
+    product_id VARCHAR(255) NOT NULL,
+    owner_id   VARCHAR(255) NOT NULL,
+    held       INTEGER      NOT NULL,
+    expires_at TIMESTAMPTZ  NOT NULL,
+    created_at TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    PRIMARY KEY (product_id, owner_id)
+);
+
+CREATE INDEX IF NOT EXISTS stock_hold_expires_at_idx ON stock_hold (expires_at);
+
+CREATE TABLE IF NOT EXISTS processed_order_event
+(
+    order_id     VARCHAR(255) NOT NULL,
+    event_type   VARCHAR(64)  NOT NULL,
+    processed_at TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    PRIMARY KEY (order_id, event_type)
+);
+
+CREATE INDEX IF NOT EXISTS processed_order_event_processed_at_idx ON processed_order_event (processed_at);
+
+ALTER TABLE processed_order_event
+    ADD COLUMN IF NOT EXISTS rejected BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS stock_movement
+(
+    id             BIGSERIAL PRIMARY KEY,
+    product_id     VARCHAR(255) NOT NULL,
+    quantity_delta INTEGER      NOT NULL,
+    created_at     TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    compacted_at   TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS stock_movement_pending_idx ON stock_movement (id) WHERE compacted_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS stock_movement_pending_product_id_idx ON stock_movement (product_id) WHERE compacted_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS stock_movement_product_id_created_at_idx ON stock_movement (product_id, created_at);
+
+CREATE INDEX IF NOT EXISTS stock_movement_compacted_at_idx ON stock_movement (compacted_at);
+
+CREATE TABLE IF NOT EXISTS stock_history
+(
+    id         BIGSERIAL PRIMARY KEY,
+    product_id VARCHAR(255) NOT NULL,
+    quantity   INTEGER      NOT NULL,
+    reserved   INTEGER      NOT NULL,
+    created_at TIMESTAMPTZ  NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS stock_history_product_id_created_at_idx ON stock_history (product_id, created_at);
+
+CREATE TABLE IF NOT EXISTS ownership_checkpoint
+(
+    partition_id INTEGER PRIMARY KEY,
+    next_offset  BIGINT      NOT NULL DEFAULT 0,
+    epoch        BIGINT      NOT NULL DEFAULT 0,
+    updated_at   TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE TABLE IF NOT EXISTS stock_import
+(
+    import_id      VARCHAR(255) PRIMARY KEY,
+    status         VARCHAR(32)  NOT NULL,
+    processed_rows BIGINT       NOT NULL DEFAULT 0,
+    rejected_rows  BIGINT       NOT NULL DEFAULT 0,
+    started_at     TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    updated_at     TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    completed_at   TIMESTAMPTZ
+);
+
+CREATE TABLE IF NOT EXISTS stock_location
+(
+    product_id  VARCHAR(255) NOT NULL,
+    location_id VARCHAR(64)  NOT NULL,
+    quantity    INTEGER      NOT NULL DEFAULT 0,
+    reserved    INTEGER      NOT NULL DEFAULT 0,
+    updated_at  TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp(),
+    PRIMARY KEY (product_id, location_id)
+);
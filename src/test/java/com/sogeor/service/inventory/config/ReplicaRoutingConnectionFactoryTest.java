@@ -0,0 +1,98 @@
+package com.sogeor.service.inventory.config;
+
+import com.sogeor.service.inventory.service.ReplicaReads;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two unrelated databases stand in for the primary and a replica, each knowing only its own name, so every query
+ * shows where it was routed.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingConnectionFactoryTest {
+
+    @Container
+    private static final PostgreSQLContainer primary = new PostgreSQLContainer("postgres:18-alpine");
+
+    @Container
+    private static final PostgreSQLContainer replica = new PostgreSQLContainer("postgres:18-alpine");
+
+    private static ReplicaRoutingConnectionFactory connectionFactory;
+
+    private static DatabaseClient databaseClient;
+
+    private static ReplicaReads replicaReads;
+
+    @BeforeAll
+    static void setUp() {
+        connectionFactory = new ReplicaRoutingConnectionFactory(database(primary, "primary"),
+                                                                List.of(database(replica, "replica")));
+        databaseClient = DatabaseClient.create(connectionFactory);
+        InventoryProperties properties = new InventoryProperties();
+        properties.getReplicas().setUrls(List.of("r2dbc:postgresql://replica/inventory"));
+        replicaReads = new ReplicaReads(properties);
+    }
+
+    @Test
+    void create_shouldUsePrimary_whenQueryIsNotMarked() {
+        assertThat(source().blockFirst()).isEqualTo("primary");
+    }
+
+    @Test
+    void create_shouldUseReplica_whenQueryIsMarked() {
+        assertThat(replicaReads.scan(source()).blockFirst()).isEqualTo("replica");
+        assertThat(replicaReads.read(List.of("unchanged"), source()).blockFirst()).isEqualTo("replica");
+    }
+
+    @Test
+    void create_shouldUsePrimary_whenProductChangedWithinReadYourWritesWindow() {
+        replicaReads.written("changed");
+
+        assertThat(replicaReads.read(List.of("unchanged", "changed"), source()).blockFirst()).isEqualTo("primary");
+        assertThat(replicaReads.read("changed", source().next()).block()).isEqualTo("primary");
+    }
+
+    @Test
+    void create_shouldUsePrimary_insideTransaction() {
+        TransactionalOperator operator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+
+        assertThat(operator.transactional(replicaReads.scan(source())).blockFirst()).isEqualTo("primary");
+    }
+
+    private static Flux<String> source() {
+        return databaseClient.sql("SELECT name FROM source").map(row -> row.get("name", String.class)).all();
+    }
+
+    private static ConnectionFactory database(PostgreSQLContainer container, String name) {
+        ConnectionFactory database = ConnectionFactories.get(
+                ConnectionFactoryOptions.builder()
+                                        .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                                        .option(ConnectionFactoryOptions.HOST, container.getHost())
+                                        .option(ConnectionFactoryOptions.PORT, container.getFirstMappedPort())
+                                        .option(ConnectionFactoryOptions.DATABASE, container.getDatabaseName())
+                                        .option(ConnectionFactoryOptions.USER, container.getUsername())
+                                        .option(ConnectionFactoryOptions.PASSWORD, container.getPassword())
+                                        .build());
+        DatabaseClient client = DatabaseClient.create(database);
+        client.sql("CREATE TABLE source (name VARCHAR(16))")
+              .then()
+              .then(client.sql("INSERT INTO source VALUES (:name)").bind("name", name).then())
+              .block();
+        return database;
+    }
+
+}
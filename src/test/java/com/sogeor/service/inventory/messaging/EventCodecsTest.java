@@ -0,0 +1,95 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void decode_shouldRoundTripEveryEvent_whenEncodedAsBinary() throws IOException {
+        EventCodecs codecs = codecs(BinaryEventCodec.CONTENT_TYPE);
+        Instant timestamp = Instant.parse("2026-03-01T10:15:30.123456789Z");
+        List<Object> events = List.of(
+                new InventoryEvents.InventoryUpdatedEvent("INVENTORY_UPDATED", "p", 10, 3, timestamp),
+                new InventoryEvents.LowStockAlertEvent("LOW_STOCK", "p", 2, 5, timestamp),
+                new InventoryEvents.ProductUpdatedEvent("PRODUCT_UPDATED", "p", "Чай", new BigDecimal("-12.50"), null,
+                                                        timestamp),
+                new InventoryEvents.OrderEvent("ORDER_CREATED", "o",
+                                               List.of(new InventoryEvents.OrderItem("p", 1),
+                                                       new InventoryEvents.OrderItem("q", Integer.MIN_VALUE)),
+                                               null));
+
+        for (Object event : events) {
+            ProducerRecord<String, byte[]> record = codecs.record("topic", "p", event);
+
+            assertThat(codecs.decode(consumed(record), event.getClass())).isEqualTo(event);
+            assertThat(record.value().length).isLessThan(objectMapper.writeValueAsBytes(event).length);
+        }
+    }
+
+    @Test
+    void decode_shouldTreatRecordWithoutHeaderAsJson() throws IOException {
+        EventCodecs codecs = codecs(BinaryEventCodec.CONTENT_TYPE);
+        InventoryEvents.OrderEvent event = new InventoryEvents.OrderEvent("ORDER_CANCELLED", "o", List.of(), null);
+        byte[] json = objectMapper.writeValueAsBytes(event);
+        byte[] doubleEncoded = objectMapper.writeValueAsBytes(new String(json, StandardCharsets.UTF_8));
+
+        assertThat(codecs.decode(new ConsumerRecord<>("topic", 0, 0, "o", json), InventoryEvents.OrderEvent.class))
+                .isEqualTo(event);
+        assertThat(codecs.decode(new ConsumerRecord<>("topic", 0, 0, "o", doubleEncoded),
+                                 InventoryEvents.OrderEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void decode_shouldReject_whenPayloadIsTruncated() throws IOException {
+        EventCodecs codecs = codecs(BinaryEventCodec.CONTENT_TYPE);
+        ProducerRecord<String, byte[]> record = codecs.record(
+                "topic", "p", new InventoryEvents.InventoryUpdatedEvent("INVENTORY_UPDATED", "p", 10, 3, null));
+        ConsumerRecord<String, byte[]> truncated = new ConsumerRecord<>("topic", 0, 0, "p", Arrays.copyOf(
+                record.value(), record.value().length - 2));
+        record.headers().forEach(header -> truncated.headers().add(header));
+
+        assertThatThrownBy(() -> codecs.decode(truncated, InventoryEvents.InventoryUpdatedEvent.class))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void decode_shouldReject_whenRecordIsTombstone() {
+        EventCodecs codecs = codecs(BinaryEventCodec.CONTENT_TYPE);
+        ConsumerRecord<String, byte[]> tombstone = new ConsumerRecord<>("topic", 0, 0, "o", null);
+
+        assertThatThrownBy(() -> codecs.decode(tombstone, InventoryEvents.OrderEvent.class))
+                .isInstanceOf(IOException.class);
+    }
+
+    private EventCodecs codecs(String contentType) {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getEvents().setContentType(contentType);
+        return new EventCodecs(List.of(new JsonEventCodec(objectMapper), new BinaryEventCodec()), properties);
+    }
+
+    private static ConsumerRecord<String, byte[]> consumed(ProducerRecord<String, byte[]> record) {
+        ConsumerRecord<String, byte[]> consumed = new ConsumerRecord<>(record.topic(), 0, 0, record.key(),
+                                                                       record.value());
+        record.headers().forEach(header -> consumed.headers().add(header));
+        return consumed;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.sogeor.service.inventory.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryEventProducerTest {
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Captor
+    private ArgumentCaptor<ProducerRecord<String, byte[]>> records;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void sendInventoryUpdated_shouldPublishOnlyLatestSnapshotPerProduct_whenCoalescing() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getCoalescing().setEnabled(true);
+        EventCodecs eventCodecs = new EventCodecs(
+                List.of(new JsonEventCodec(new ObjectMapper().registerModule(new JavaTimeModule()))), properties);
+        InventoryEventProducer producer = new InventoryEventProducer(kafkaTemplate, eventCodecs, properties,
+                                                                     meterRegistry);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<?> first = producer.sendInventoryUpdated(event("a", 1));
+        CompletableFuture<?> second = producer.sendInventoryUpdated(event("a", 2));
+        CompletableFuture<?> other = producer.sendInventoryUpdated(event("b", 7));
+
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        producer.flush();
+
+        verify(kafkaTemplate, times(2)).send(records.capture());
+        ProducerRecord<String, byte[]> latest = records.getAllValues().getFirst();
+        assertThat(latest.topic()).isEqualTo("inventory-updates");
+        assertThat(latest.key()).isEqualTo("a");
+        assertThat(new String(latest.value(), StandardCharsets.UTF_8)).contains("\"reserved\":2");
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(other).isCompleted();
+        assertThat(meterRegistry.get("inventory.events.coalesced").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("inventory.events.send").tag("outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    private static InventoryEvents.InventoryUpdatedEvent event(String productId, int reserved) {
+        return InventoryEvents.InventoryUpdatedEvent.builder()
+                                                    .eventType("INVENTORY_UPDATED")
+                                                    .productId(productId)
+                                                    .quantity(10)
+                                                    .reserved(reserved)
+                                                    .build();
+    }
+
+}
@@ -0,0 +1,496 @@
+package com.sogeor.service.inventory.repository;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LocationStock;
+import com.sogeor.service.inventory.domain.LowStockPage;
+import com.sogeor.service.inventory.domain.OrderEventKey;
+import com.sogeor.service.inventory.domain.OutboxMessage;
+import com.sogeor.service.inventory.domain.StockAdjustment;
+import com.sogeor.service.inventory.domain.StockLease;
+import com.sogeor.service.inventory.service.AdmissionControl;
+import com.sogeor.service.inventory.service.FlashSaleService;
+import com.sogeor.service.inventory.service.HotKeys;
+import com.sogeor.service.inventory.service.InventoryCache;
+import com.sogeor.service.inventory.service.InventoryChangeFeed;
+import com.sogeor.service.inventory.service.InventoryLoader;
+import com.sogeor.service.inventory.service.InventoryService;
+import com.sogeor.service.inventory.service.LowStockAlertEngine;
+import com.sogeor.service.inventory.service.NearestAllocationStrategy;
+import com.sogeor.service.inventory.service.OperationMetrics;
+import com.sogeor.service.inventory.service.OwnershipService;
+import com.sogeor.service.inventory.service.ReplicaReads;
+import com.sogeor.service.inventory.service.StockLocations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@Testcontainers(disabledWithoutDocker = true)
+class InventoryRepositoryTest {
+
+    @Container
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine");
+
+    private static InventoryRepository inventoryRepository;
+
+    private static OutboxRepository outboxRepository;
+
+    private static LowStockThresholdRepository thresholdRepository;
+
+    private static InventoryService inventoryService;
+
+    @BeforeAll
+    static void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                ConnectionFactoryOptions.builder()
+                                        .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                                        .option(ConnectionFactoryOptions.HOST, postgres.getHost())
+                                        .option(ConnectionFactoryOptions.PORT, postgres.getFirstMappedPort())
+                                        .option(ConnectionFactoryOptions.DATABASE, postgres.getDatabaseName())
+                                        .option(ConnectionFactoryOptions.USER, postgres.getUsername())
+                                        .option(ConnectionFactoryOptions.PASSWORD, postgres.getPassword())
+                                        .build());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(connectionFactory).block();
+
+        R2dbcRepositoryFactory repositoryFactory = new R2dbcRepositoryFactory(
+                new R2dbcEntityTemplate(connectionFactory));
+        inventoryRepository = repositoryFactory.getRepository(InventoryRepository.class);
+        outboxRepository = repositoryFactory.getRepository(OutboxRepository.class);
+        thresholdRepository = repositoryFactory.getRepository(LowStockThresholdRepository.class);
+        InventoryProperties properties = new InventoryProperties();
+        properties.getAdmission().setEnabled(false);
+        ReplicaReads replicaReads = new ReplicaReads(properties);
+        InventoryCache inventoryCache = Mockito.mock(InventoryCache.class);
+        inventoryService = new InventoryService(inventoryRepository, Mockito.mock(FlashSaleService.class),
+                                                inventoryCache,
+                                                new InventoryLoader(inventoryRepository, inventoryCache, replicaReads,
+                                                                    properties),
+                                                Mockito.mock(LowStockAlertEngine.class),
+                                                Mockito.mock(OwnershipService.class),
+                                                new AdmissionControl(properties, new SimpleMeterRegistry()),
+                                                new OperationMetrics(new SimpleMeterRegistry(),
+                                                                     new HotKeys(properties)),
+                                                Mockito.mock(InventoryChangeFeed.class),
+                                                new StockLocations(inventoryRepository,
+                                                                   List.of(new NearestAllocationStrategy()),
+                                                                   properties),
+                                                replicaReads, properties);
+    }
+
+    @Test
+    void reserveStock_shouldNotLoseUpdates_whenReservedConcurrently() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 100).block();
+
+        Long succeeded = Flux.range(0, 500)
+                             .flatMap(i -> inventoryService.reserveStock(productId, 1)
+                                                           .map(inv -> 1)
+                                                           .onErrorResume(e -> Mono.empty()), 32)
+                             .count()
+                             .block();
+
+        Inventory inventory = inventoryRepository.findByProductId(productId).block();
+        assertThat(succeeded).isEqualTo(100);
+        assertThat(inventory).isNotNull();
+        assertThat(inventory.getReserved()).isEqualTo(100);
+        assertThat(inventory.getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    void addStock_shouldNotLoseUpdates_whenAddedConcurrently() {
+        String productId = UUID.randomUUID().toString();
+
+        Flux.range(0, 200).flatMap(i -> inventoryService.addStock(productId, 1), 32).blockLast();
+
+        Inventory inventory = inventoryRepository.findByProductId(productId).block();
+        assertThat(inventory).isNotNull();
+        assertThat(inventory.getQuantity()).isEqualTo(200);
+    }
+
+    @Test
+    void mutations_shouldDistinguishMissingProductFromInsufficientStock() {
+        String productId = UUID.randomUUID().toString();
+
+        assertThat(inventoryRepository.reserveStock(productId, 1).blockOptional()).isEmpty();
+
+        inventoryRepository.addStock(productId, 1).block();
+        assertThat(inventoryRepository.reserveStock(productId, 2).block()).satisfies(
+                mutation -> assertThat(mutation.isApplied()).isFalse());
+        assertThat(inventoryRepository.deductStock(productId, 1).block()).satisfies(mutation -> {
+            assertThat(mutation.isApplied()).isTrue();
+            assertThat(mutation.getQuantity()).isZero();
+        });
+    }
+
+    @Test
+    void bulkReserveStock_shouldApplyAllOrNothing() {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        inventoryRepository.addStock(first, 5).block();
+        inventoryRepository.addStock(second, 1).block();
+
+        List<BulkStockLine> rejected = inventoryRepository.reserveStock(new String[]{first, second, first},
+                                                                        new Integer[]{2, 2, 1}).collectList().block();
+        assertThat(rejected).extracting(BulkStockLine::getStatus)
+                            .containsExactlyInAnyOrder(BulkStockLine.NOT_APPLIED, BulkStockLine.INSUFFICIENT);
+        assertThat(inventoryRepository.findByProductId(first).block().getReserved()).isZero();
+
+        List<BulkStockLine> applied = inventoryRepository.reserveStock(new String[]{first, second, first},
+                                                                       new Integer[]{2, 1, 1}).collectList().block();
+        assertThat(applied).allMatch(BulkStockLine::isApplied);
+        assertThat(inventoryRepository.findByProductId(first).block().getReserved()).isEqualTo(3);
+        assertThat(inventoryRepository.findByProductId(second).block().getReserved()).isEqualTo(1);
+    }
+
+    @Test
+    void bulkReserveStock_shouldNotDeadlock_whenCartsOverlapInOppositeOrder() {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        inventoryRepository.addStock(first, 1000).block();
+        inventoryRepository.addStock(second, 1000).block();
+
+        Flux.range(0, 200)
+            .flatMap(i -> i % 2 == 0
+                          ? inventoryRepository.reserveStock(new String[]{first, second}, new Integer[]{1, 1})
+                          : inventoryRepository.reserveStock(new String[]{second, first}, new Integer[]{1, 1}), 32)
+            .blockLast();
+
+        assertThat(inventoryRepository.findByProductId(first).block().getReserved()).isEqualTo(200);
+        assertThat(inventoryRepository.findByProductId(second).block().getReserved()).isEqualTo(200);
+    }
+
+    @Test
+    void adjustStock_shouldApplyEachProductIndependently() {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        inventoryRepository.addStock(first, 5).block();
+        inventoryRepository.reserveStock(first, 3).block();
+        inventoryRepository.addStock(second, 1).block();
+
+        List<Inventory> adjusted = inventoryRepository.adjustStock(new String[]{first, second},
+                                                                   new Integer[]{-3, -2},
+                                                                   new Integer[]{3, 2}).collectList().block();
+
+        assertThat(adjusted).singleElement().satisfies(inventory -> {
+            assertThat(inventory.getProductId()).isEqualTo(first);
+            assertThat(inventory.getQuantity()).isEqualTo(2);
+            assertThat(inventory.getReserved()).isZero();
+        });
+        assertThat(inventoryRepository.findByProductId(second).block().getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void adjustStock_shouldReleaseWhatIsReserved_whenMergedDeductionExceedsReserved() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 10).block();
+        inventoryRepository.reserveStock(productId, 5).block();
+
+        Inventory adjusted = inventoryRepository.adjustStock(new String[]{productId}, new Integer[]{-6},
+                                                             new Integer[]{6}).blockLast();
+
+        assertThat(adjusted.getQuantity()).isEqualTo(4);
+        assertThat(adjusted.getReserved()).isZero();
+    }
+
+    @Test
+    void locations_shouldKeepTotalEqualToSumOfLocations_andNeverOversellLocation() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getLocations().setEnabled(true);
+        properties.getLocations().setPreferred(List.of("east", "west"));
+        StockLocations stockLocations = new StockLocations(inventoryRepository,
+                                                           List.of(new NearestAllocationStrategy()), properties);
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 10).block();
+        stockLocations.addStock(productId, "east", 20).block();
+        stockLocations.addStock(productId, "west", 30).block();
+
+        stockLocations.reserveStock(new String[]{productId}, new Integer[]{25}).blockLast();
+        assertThat(reservedByLocation(productId)).containsEntry("west", 25);
+        stockLocations.reserveStock(new String[]{productId}, new Integer[]{30}).blockLast();
+        assertThat(reservedByLocation(productId)).containsEntry("east", 20)
+                                                 .containsEntry("west", 30)
+                                                 .containsEntry("default", 5);
+
+        StockAdjustment paid = StockAdjustment.builder().productId(productId).build();
+        paid.deduct(30);
+        stockLocations.adjustStock(List.of(paid)).blockLast();
+        assertThat(reservedByLocation(productId)).containsEntry("west", 0);
+
+        Long applied = Flux.range(0, 50)
+                           .flatMap(i -> stockLocations.reserveStock(new String[]{productId}, new Integer[]{1}), 16)
+                           .filter(BulkStockLine::isApplied)
+                           .count()
+                           .block();
+
+        Inventory total = inventoryRepository.findByProductId(productId).block();
+        List<LocationStock> locations = stockLocations.getLocations(productId).collectList().block();
+        assertThat(applied).isLessThanOrEqualTo(5);
+        assertThat(total.getQuantity()).isEqualTo(30);
+        assertThat(total.getReserved()).isEqualTo(25 + applied.intValue());
+        assertThat(locations.stream().mapToInt(LocationStock::getQuantity).sum()).isEqualTo(total.getQuantity());
+        assertThat(locations.stream().mapToInt(LocationStock::getReserved).sum()).isEqualTo(total.getReserved());
+        assertThat(locations).allMatch(location -> location.getReserved() <= location.getQuantity());
+    }
+
+    @Test
+    void locations_shouldNotOversellProduct_whenHoldsReserveWithoutLocation() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getLocations().setEnabled(true);
+        properties.getLocations().setPreferred(List.of("east"));
+        StockLocations stockLocations = new StockLocations(inventoryRepository,
+                                                           List.of(new NearestAllocationStrategy()), properties);
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 10).block();
+        stockLocations.addStock(productId, "east", 20).block();
+        assertThat(inventoryRepository.placeHold(productId, "cart-1", 25, 60_000).block().isApplied()).isTrue();
+
+        assertThat(stockLocations.reserveStock(new String[]{productId}, new Integer[]{10}).blockLast().getStatus())
+                .isEqualTo(BulkStockLine.INSUFFICIENT);
+        assertThat(stockLocations.reserveStock(new String[]{productId}, new Integer[]{5}).blockLast().isApplied())
+                .isTrue();
+
+        Inventory total = inventoryRepository.findByProductId(productId).block();
+        assertThat(total.getReserved()).isEqualTo(total.getQuantity());
+    }
+
+    @Test
+    void leaseStock_shouldNeverGrantMoreThanAvailable() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 250).block();
+
+        Integer granted = Flux.range(0, 10)
+                              .flatMap(i -> inventoryRepository.leaseStock(productId, "owner-" + (i % 2), 100), 10)
+                              .map(StockLease::getGranted)
+                              .reduce(0, Integer::sum)
+                              .block();
+
+        assertThat(granted).isEqualTo(250);
+        assertThat(inventoryRepository.findByProductId(productId).block().getReserved()).isEqualTo(250);
+        assertThat(inventoryRepository.returnStock(productId, "owner-0", 50, 0).block().getReserved()).isEqualTo(200);
+    }
+
+    @Test
+    void leases_shouldPublishSoldUnits_andBeReclaimedOnceExpired() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 100).block();
+        inventoryRepository.leaseStock(productId, "crashed", 30).block();
+        inventoryRepository.leaseStock(productId, "alive", 30).block();
+
+        inventoryRepository.recordLease(productId, "crashed", 20).block();
+        inventoryRepository.touchLeases("alive").blockLast();
+        inventoryRepository.reclaimExpiredLeases(Instant.now().minusSeconds(60)).block();
+        assertThat(inventoryRepository.findByProductId(productId).block().getReserved()).isEqualTo(60);
+
+        Instant before = Instant.now();
+        inventoryRepository.touchLeases("alive").blockLast();
+        inventoryRepository.reclaimExpiredLeases(before).block();
+
+        assertThat(inventoryRepository.findByProductId(productId).block().getReserved()).isEqualTo(40);
+        assertThat(inventoryRepository.recordLease(productId, "crashed", 20).blockOptional()).isEmpty();
+        List<OutboxMessage> messages = outboxRepository.findAll()
+                                                       .filter(message -> message.getProductId().equals(productId))
+                                                       .collectSortedList(Comparator.comparing(OutboxMessage::getId))
+                                                       .block();
+        assertThat(messages).extracting(OutboxMessage::getReserved).containsExactly(0, 10, 10);
+    }
+
+    @Test
+    void mutations_shouldWriteOutboxMessageInSameStatement_onlyWhenApplied() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 2).block();
+        inventoryRepository.reserveStock(productId, 5).block();
+        inventoryRepository.reserveStock(productId, 1).block();
+
+        List<OutboxMessage> messages = outboxRepository.findAll()
+                                                       .filter(message -> message.getProductId().equals(productId))
+                                                       .collectSortedList(Comparator.comparing(OutboxMessage::getId))
+                                                       .block();
+
+        assertThat(messages).extracting(OutboxMessage::getQuantity, OutboxMessage::getReserved)
+                            .containsExactly(tuple(2, 0), tuple(2, 1));
+    }
+
+    @Test
+    void alert_shouldFireOncePerCrossing_andRearmAboveRearmThreshold() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 10).block();
+        thresholdRepository.upsert(productId, 5, 8).block();
+
+        assertThat(thresholdRepository.alert(productId).blockOptional()).isEmpty();
+        inventoryRepository.reserveStock(productId, 6).block();
+        Long alerted = Flux.range(0, 8)
+                           .flatMap(i -> thresholdRepository.alert(productId), 8)
+                           .count()
+                           .block();
+        assertThat(alerted).isEqualTo(1);
+
+        inventoryRepository.releaseStock(productId, 2).block();
+        assertThat(thresholdRepository.rearm(productId).blockOptional()).isEmpty();
+        inventoryRepository.releaseStock(productId, 2).block();
+        assertThat(thresholdRepository.rearm(productId).block().getAlerted()).isFalse();
+
+        List<OutboxMessage> alerts = outboxRepository.findAll()
+                                                     .filter(message -> message.getProductId().equals(productId))
+                                                     .filter(message -> "LOW_STOCK".equals(message.getEventType()))
+                                                     .collectList()
+                                                     .block();
+        assertThat(alerts).extracting(OutboxMessage::getQuantity, OutboxMessage::getThreshold)
+                          .containsExactly(tuple(4, 5));
+    }
+
+    @Test
+    void lowStock_shouldPageAndStreamByAvailableStock() {
+        String prefix = UUID.randomUUID().toString();
+        List<String> productIds = Flux.range(0, 7)
+                                      .map(i -> prefix + "-" + i)
+                                      .concatMap(productId -> inventoryRepository.addStock(productId, 3)
+                                                                                 .then(inventoryRepository.reserveStock(
+                                                                                         productId, 1))
+                                                                                 .thenReturn(productId))
+                                      .collectList()
+                                      .block();
+        inventoryRepository.addStock(prefix + "-plenty", 1000).block();
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            LowStockPage page = inventoryService.getLowStockProducts(3, cursor, 3).block();
+            page.getItems().forEach(inventory -> paged.add(inventory.getProductId()));
+            cursor = page.getNext() == null ? null : page.getNext().encode();
+        } while (cursor != null);
+        List<String> streamed = inventoryService.streamLowStockProducts(3)
+                                                .map(Inventory::getProductId)
+                                                .collectList()
+                                                .block();
+
+        assertThat(paged).filteredOn(productId -> productId.startsWith(prefix)).isEqualTo(productIds);
+        assertThat(streamed).filteredOn(productId -> productId.startsWith(prefix)).isEqualTo(productIds);
+        assertThat(paged).doesNotContain(prefix + "-plenty").doesNotHaveDuplicates();
+    }
+
+    @Test
+    void holds_shouldBeReleasedOnce_whenReleasedAndSweptConcurrently() throws InterruptedException {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 10).block();
+
+        assertThat(inventoryRepository.placeHold(productId, "cart-1", 3, 60_000).block().getHeld()).isEqualTo(3);
+        assertThat(inventoryRepository.placeHold(productId, "cart-1", 2, 60_000).block().getHeld()).isEqualTo(5);
+        assertThat(inventoryRepository.placeHold(productId, "cart-2", 6, 60_000).block().isApplied()).isFalse();
+        inventoryRepository.placeHold(productId, "cart-2", 4, 1).block();
+        inventoryRepository.placeHold(productId, "cart-3", 1, 1).block();
+        assertThat(inventoryRepository.findByProductId(productId).block().getReserved()).isEqualTo(10);
+
+        Thread.sleep(50);
+        Long released = Flux.merge(inventoryRepository.releaseHold(productId, "cart-2").map(inventory -> 1),
+                                   inventoryRepository.releaseExpiredHolds(1000).filter(count -> count > 0)
+                                                      .map(count -> 1),
+                                   inventoryRepository.releaseExpiredHolds(1000).filter(count -> count > 0)
+                                                      .map(count -> 1))
+                            .count()
+                            .block();
+        Integer reserved = inventoryRepository.findByProductId(productId).block().getReserved();
+        Inventory confirmed = inventoryRepository.confirmHold(productId, "cart-1").block();
+
+        assertThat(released).isBetween(1L, 3L);
+        assertThat(reserved).isEqualTo(5);
+        assertThat(confirmed.getQuantity()).isEqualTo(5);
+        assertThat(confirmed.getReserved()).isZero();
+        assertThat(inventoryRepository.releaseHold(productId, "cart-1").blockOptional()).isEmpty();
+    }
+
+    @Test
+    void createMissing_shouldCreateAndPublishOnlyNewProducts() {
+        String existing = UUID.randomUUID().toString();
+        String created = UUID.randomUUID().toString();
+        inventoryRepository.addStock(existing, 3).block();
+
+        List<String> result = inventoryRepository.createMissing(new String[] {existing, created, created})
+                                                 .collectList()
+                                                 .block();
+
+        assertThat(result).containsExactly(created);
+        assertThat(inventoryRepository.findByProductId(existing).block().getQuantity()).isEqualTo(3);
+        assertThat(outboxRepository.findAll()
+                                   .filter(message -> message.getProductId().equals(existing) ||
+                                                      message.getProductId().equals(created))
+                                   .map(OutboxMessage::getProductId)
+                                   .collectList()
+                                   .block()).containsExactlyInAnyOrder(existing, created);
+    }
+
+    @Test
+    void claimOrderEvents_shouldReturnOnlyKeysNotClaimedBefore() {
+        String orderId = UUID.randomUUID().toString();
+
+        List<OrderEventKey> first = inventoryRepository.claimOrderEvents(new String[] {orderId, orderId},
+                                                                         new String[] {"ORDER_PAID", "ORDER_CANCELLED"})
+                                                       .collectList()
+                                                       .block();
+        List<OrderEventKey> replay = inventoryRepository.claimOrderEvents(new String[] {orderId},
+                                                                          new String[] {"ORDER_PAID"})
+                                                        .collectList()
+                                                        .block();
+
+        assertThat(first).hasSize(2);
+        assertThat(replay).isEmpty();
+    }
+
+    @Test
+    void ledger_shouldFoldAppendedStock_andReconstructPastStock() {
+        String productId = UUID.randomUUID().toString();
+        inventoryRepository.addStock(productId, 5).block();
+        Instant beforeAppend = inventoryRepository.appendStock(productId, 1).block().getUpdatedAt().minusNanos(1000);
+        Flux.range(0, 19).flatMap(i -> inventoryRepository.appendStock(productId, 1), 19).blockLast();
+
+        assertThat(inventoryRepository.findByProductId(productId).block().getQuantity()).isEqualTo(5);
+        assertThat(inventoryRepository.findViewByProductIdIn(List.of(productId)).single().block().getQuantity())
+                .isEqualTo(25);
+        assertThat(inventoryRepository.findAsOf(productId, Instant.now()).block().getQuantity()).isEqualTo(25);
+
+        assertThat(inventoryRepository.compactStock(new String[] {productId}).block()).isEqualTo(20);
+        Long[] relayed = outboxRepository.findAll()
+                                         .filter(message -> message.getProductId().equals(productId))
+                                         .map(OutboxMessage::getId)
+                                         .collectList()
+                                         .block()
+                                         .toArray(Long[]::new);
+        outboxRepository.archiveByIds(relayed).block();
+
+        assertThat(inventoryRepository.findByProductId(productId).block().getQuantity()).isEqualTo(25);
+        assertThat(inventoryRepository.findViewByProductIdIn(List.of(productId)).single().block().getQuantity())
+                .isEqualTo(25);
+        assertThat(inventoryRepository.findAsOf(productId, beforeAppend).block().getQuantity()).isEqualTo(5);
+        assertThat(inventoryRepository.findAsOf(productId, Instant.now()).block().getQuantity()).isEqualTo(25);
+    }
+
+    private static Map<String, Integer> reservedByLocation(String productId) {
+        return inventoryRepository.findLocations(new String[]{productId}, "default")
+                                  .collectMap(LocationStock::getLocationId, LocationStock::getReserved)
+                                  .block();
+    }
+
+}
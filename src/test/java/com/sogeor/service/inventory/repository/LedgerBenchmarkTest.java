@@ -0,0 +1,95 @@
+package com.sogeor.service.inventory.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares concurrent additions to one hot product through in-place updates and through the ledger. Run with
+ * {@code ./gradlew test --tests '*LedgerBenchmarkTest' -Pbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+class LedgerBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerBenchmarkTest.class);
+
+    private static final int OPERATIONS = 20_000;
+
+    private static final int CONCURRENCY = 32;
+
+    @Container
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine");
+
+    private static ConnectionPool connectionPool;
+
+    private static InventoryRepository inventoryRepository;
+
+    @BeforeAll
+    static void setUp() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, postgres.getHost())
+                .option(ConnectionFactoryOptions.PORT, postgres.getFirstMappedPort())
+                .option(ConnectionFactoryOptions.DATABASE, postgres.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, postgres.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, postgres.getPassword())
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                                                                       .maxSize(CONCURRENCY)
+                                                                       .build());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(connectionPool).block();
+        inventoryRepository = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionPool)).getRepository(
+                InventoryRepository.class);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        connectionPool.dispose();
+    }
+
+    @Test
+    void addStock_inPlaceVersusLedger() {
+        double inPlace = measure("in-place", productId -> inventoryRepository.addStock(productId, 1).then());
+        double ledger = measure("ledger", productId -> inventoryRepository.appendStock(productId, 1).then());
+
+        log.info("in-place: {} ops/s, ledger: {} ops/s", Math.round(inPlace), Math.round(ledger));
+    }
+
+    private static double measure(String name, Function<String, Mono<Void>> operation) {
+        String productId = name + "-" + UUID.randomUUID();
+        inventoryRepository.addStock(productId, 0).block();
+        long started = System.nanoTime();
+        Flux.range(0, OPERATIONS)
+            .flatMap(i -> operation.apply(productId), CONCURRENCY)
+            .blockLast(Duration.ofMinutes(5));
+        long elapsed = System.nanoTime() - started;
+
+        inventoryRepository.compactStock(new String[]{productId}).block();
+        assertThat(inventoryRepository.findByProductId(productId).block().getQuantity()).isEqualTo(OPERATIONS);
+        return OPERATIONS * 1e9 / elapsed;
+    }
+
+}
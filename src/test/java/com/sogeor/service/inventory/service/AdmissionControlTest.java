@@ -0,0 +1,139 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+    private final InventoryProperties properties = new InventoryProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> started = new ArrayList<>();
+
+    private final Map<String, Sinks.One<String>> running = new ConcurrentHashMap<>();
+
+    @Test
+    void admit_shouldRejectHotProduct_whileOtherProductsAreAdmitted() {
+        InventoryProperties.Admission admission = properties.getAdmission();
+        admission.setInitialLimit(4);
+        admission.setProductShare(0.25);
+        admission.setProductQueueSize(1);
+        AdmissionControl admissionControl = new AdmissionControl(properties, meterRegistry);
+
+        admissionControl.admit("hot", change("hot-1")).subscribe();
+        admissionControl.admit("hot", change("hot-2")).subscribe();
+
+        StepVerifier.create(admissionControl.admit("hot", change("hot-3")))
+                    .expectErrorSatisfies(e -> {
+                        assertThat(e).isInstanceOf(AdmissionRejectedException.class);
+                        ResponseStatusException rejected = (ResponseStatusException) e;
+                        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                        assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                    })
+                    .verify();
+        admissionControl.admit("cold", change("cold-1")).subscribe();
+
+        assertThat(started).containsExactly("hot-1", "cold-1");
+        assertThat(admissionControl.queued()).isEqualTo(1);
+        assertThat(meterRegistry.counter("inventory.admission.rejected", "reason", "queue-full").count()).isEqualTo(1);
+    }
+
+    @Test
+    void admit_shouldServeWaitingProductsRoundRobin() {
+        InventoryProperties.Admission admission = properties.getAdmission();
+        admission.setInitialLimit(1);
+        admission.setMinLimit(1);
+        admission.setMaxLimit(1);
+        AdmissionControl admissionControl = new AdmissionControl(properties, meterRegistry);
+
+        for (String name : List.of("a-1", "a-2", "a-3", "b-1")) {
+            admissionControl.admit(name.substring(0, 1), change(name)).subscribe();
+        }
+        complete("a-1");
+        complete("a-2");
+        complete("b-1");
+
+        assertThat(started).containsExactly("a-1", "a-2", "b-1", "a-3");
+        assertThat(admissionControl.inFlight()).isEqualTo(1);
+        assertThat(admissionControl.queued()).isZero();
+    }
+
+    @Test
+    void admit_shouldRejectAfterMaxWait() {
+        InventoryProperties.Admission admission = properties.getAdmission();
+        admission.setInitialLimit(1);
+        admission.setMaxWait(Duration.ofMillis(50));
+        AdmissionControl admissionControl = new AdmissionControl(properties, meterRegistry);
+
+        admissionControl.admit("a", change("a-1")).subscribe();
+
+        StepVerifier.create(admissionControl.admit("b", change("b-1")))
+                    .expectError(AdmissionRejectedException.class)
+                    .verify(Duration.ofSeconds(5));
+        assertThat(admissionControl.queued()).isZero();
+        complete("a-1");
+        assertThat(started).containsExactly("a-1");
+        assertThat(admissionControl.inFlight()).isZero();
+    }
+
+    @Test
+    void admit_shouldCutLimit_onlyWhenChangeFailsForOtherReasonsThanRequest() {
+        AdmissionControl admissionControl = new AdmissionControl(properties, meterRegistry, () -> 0);
+
+        admissionControl.admit("a", Mono.error(new ResponseStatusException(HttpStatus.CONFLICT)))
+                        .onErrorResume(e -> Mono.empty())
+                        .block();
+        assertThat(admissionControl.limit()).isEqualTo(20);
+
+        admissionControl.admit("a", Mono.error(new IllegalStateException())).onErrorResume(e -> Mono.empty()).block();
+        assertThat(admissionControl.limit()).isEqualTo(18);
+    }
+
+    @Test
+    void admit_shouldShrinkLimit_whenLatencyRises() {
+        long[] now = {0};
+        properties.getAdmission().setInitialLimit(40);
+        AdmissionControl admissionControl = new AdmissionControl(properties, meterRegistry, () -> now[0]);
+
+        for (int i = 0; i < 50; i++) {
+            admissionControl.admit("a", Mono.fromRunnable(() -> now[0] += 1_000_000)).block();
+        }
+        double steady = admissionControl.limit();
+        for (int i = 0; i < 50; i++) {
+            admissionControl.admit("a", Mono.fromRunnable(() -> now[0] += 10_000_000)).block();
+        }
+
+        assertThat(steady).isEqualTo(40);
+        assertThat(admissionControl.limit()).isLessThan(steady / 2);
+    }
+
+    private Mono<String> change(String name) {
+        return Mono.defer(() -> {
+            started.add(name);
+            Sinks.One<String> sink = Sinks.one();
+            running.put(name, sink);
+            return sink.asMono();
+        });
+    }
+
+    private void complete(String name) {
+        running.get(name).tryEmitValue(name);
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.LocationStock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AllocationStrategyTest {
+
+    private static final List<LocationStock> LOCATIONS = List.of(location("near", 4, 1), location("middle", 10, 0),
+                                                                 location("far", 30, 10));
+
+    @Test
+    void nearest_shouldTakeWholeQuantityFromNearestLocationHavingIt() {
+        assertThat(new NearestAllocationStrategy().allocate(3, LOCATIONS)).containsExactly(
+                new AllocationStrategy.Allocation("near", 3));
+        assertThat(new NearestAllocationStrategy().allocate(8, LOCATIONS)).containsExactly(
+                new AllocationStrategy.Allocation("middle", 8));
+    }
+
+    @Test
+    void nearest_shouldSplitInOrderOfPreference_whenNoLocationHasWholeQuantity() {
+        assertThat(new NearestAllocationStrategy().allocate(25, LOCATIONS)).containsExactly(
+                new AllocationStrategy.Allocation("near", 3), new AllocationStrategy.Allocation("middle", 10),
+                new AllocationStrategy.Allocation("far", 12));
+    }
+
+    @Test
+    void mostStock_shouldPreferLocationWithMostAvailableStock() {
+        assertThat(new MostStockAllocationStrategy().allocate(3, LOCATIONS)).containsExactly(
+                new AllocationStrategy.Allocation("far", 3));
+        assertThat(new MostStockAllocationStrategy().allocate(25, LOCATIONS)).containsExactly(
+                new AllocationStrategy.Allocation("far", 20), new AllocationStrategy.Allocation("middle", 5));
+    }
+
+    @Test
+    void split_shouldSpreadInProportionToAvailableStock() {
+        List<AllocationStrategy.Allocation> allocations = new SplitAllocationStrategy().allocate(11, LOCATIONS);
+
+        assertThat(allocations).containsExactly(new AllocationStrategy.Allocation("near", 1),
+                                                new AllocationStrategy.Allocation("middle", 3),
+                                                new AllocationStrategy.Allocation("far", 7));
+        assertThat(new SplitAllocationStrategy().allocate(33, LOCATIONS)).extracting(
+                AllocationStrategy.Allocation::quantity).containsExactly(3, 10, 20);
+    }
+
+    @Test
+    void allocate_shouldReturnNothing_whenLocationsDoNotHaveEnoughStockTogether() {
+        assertThat(new NearestAllocationStrategy().allocate(34, LOCATIONS)).isEmpty();
+        assertThat(new MostStockAllocationStrategy().allocate(34, LOCATIONS)).isEmpty();
+        assertThat(new SplitAllocationStrategy().allocate(34, LOCATIONS)).isEmpty();
+    }
+
+    private static LocationStock location(String locationId, int quantity, int reserved) {
+        return LocationStock.builder()
+                            .productId("p")
+                            .locationId(locationId)
+                            .quantity(quantity)
+                            .reserved(reserved)
+                            .build();
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.sogeor.service.inventory.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryWheelTest {
+
+    private final ExpiryWheel wheel = new ExpiryWheel(Duration.ofSeconds(1), 8, 0);
+
+    @Test
+    void advance_shouldReportDeadline_onlyOnceItHasPassed() {
+        wheel.schedule(2_500);
+
+        assertThat(wheel.advance(2_000)).isFalse();
+        assertThat(wheel.advance(3_000)).isTrue();
+        assertThat(wheel.advance(4_000)).isFalse();
+    }
+
+    @Test
+    void advance_shouldWaitForLaterRound_whenDeadlineIsBeyondWheelSpan() {
+        wheel.schedule(11_000);
+
+        assertThat(wheel.advance(3_000)).isFalse();
+        assertThat(wheel.advance(10_000)).isFalse();
+        assertThat(wheel.advance(11_000)).isTrue();
+    }
+
+    @Test
+    void advance_shouldReportDeadline_whenTicksWereSkipped() {
+        wheel.schedule(1_000);
+
+        assertThat(wheel.advance(60_000)).isTrue();
+    }
+
+    @Test
+    void schedule_shouldFireOnNextTick_whenDeadlineHasAlreadyPassed() {
+        wheel.advance(5_000);
+        wheel.schedule(1_000);
+
+        assertThat(wheel.advance(6_000)).isTrue();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotKeysTest {
+
+    private final InventoryProperties properties = new InventoryProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.getHotKeys().setEnabled(true);
+        properties.getHotKeys().setSampleRate(1);
+        properties.getHotKeys().setCapacity(8);
+    }
+
+    @Test
+    void top_shouldKeepHeavyHitters_whenManyProductsExceedCapacity() {
+        HotKeys hotKeys = new HotKeys(properties);
+
+        for (int i = 0; i < 1_000; i++) {
+            hotKeys.record("hot");
+            hotKeys.record("cold-" + i);
+            if (i % 2 == 0) {
+                hotKeys.record("warm");
+            }
+        }
+
+        assertThat(hotKeys.top(2)).extracting(HotKeys.HotKey::productId).containsExactly("hot", "warm");
+        assertThat(hotKeys.top(1)).containsExactly(new HotKeys.HotKey("hot", 1_000, 0));
+    }
+
+    @Test
+    void decay_shouldHalveCountsAndDropColdProducts() {
+        HotKeys hotKeys = new HotKeys(properties);
+        for (int i = 0; i < 10; i++) {
+            hotKeys.record("hot");
+        }
+        hotKeys.record("cold");
+
+        hotKeys.decay();
+
+        assertThat(hotKeys.top(10)).containsExactly(new HotKeys.HotKey("hot", 5, 0));
+    }
+
+    @Test
+    void record_shouldIgnoreProducts_whenDisabled() {
+        properties.getHotKeys().setEnabled(false);
+        HotKeys hotKeys = new HotKeys(properties);
+
+        hotKeys.record("hot");
+
+        assertThat(hotKeys.top(10)).isEmpty();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InventoryCache inventoryCache = new InventoryCache(new InventoryProperties(), meterRegistry);
+
+    @Test
+    void put_shouldKeepNewerRow_whenOlderRowArrivesLater() {
+        Instant now = Instant.now();
+        Inventory newer = Inventory.builder().productId("p").quantity(5).reserved(2).updatedAt(now).build();
+        Inventory older = Inventory.builder().productId("p").quantity(5).reserved(1).updatedAt(now.minusMillis(1))
+                                   .build();
+
+        inventoryCache.put(newer);
+        inventoryCache.put(older);
+
+        assertThat(inventoryCache.get("p")).isSameAs(newer);
+    }
+
+    @Test
+    void put_shouldInvalidate_whenRowHasNoModificationTime() {
+        inventoryCache.put(Inventory.builder().productId("p").quantity(5).reserved(0).updatedAt(Instant.now()).build());
+        inventoryCache.put(Inventory.builder().productId("p").quantity(4).reserved(0).build());
+
+        assertThat(inventoryCache.get("p")).isNull();
+    }
+
+    @Test
+    void get_shouldRecordHitsAndMisses() {
+        inventoryCache.get("missing");
+        inventoryCache.put(Inventory.builder().productId("p").quantity(5).reserved(0).updatedAt(Instant.now()).build());
+        inventoryCache.get("p");
+
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void put_shouldInvalidate_inLedgerMode() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getLedger().setEnabled(true);
+        InventoryCache ledgerCache = new InventoryCache(properties, new SimpleMeterRegistry());
+        ledgerCache.putLoaded(Inventory.builder().productId("p").quantity(5).reserved(0).updatedAt(Instant.now())
+                                       .build(), ledgerCache.loadStarted());
+
+        ledgerCache.put(Inventory.builder().productId("p").quantity(4).reserved(0).updatedAt(Instant.now()).build());
+
+        assertThat(ledgerCache.get("p")).isNull();
+    }
+
+    @Test
+    void putLoaded_shouldDropRow_whenProductWasInvalidatedAfterLoadStarted() {
+        long loadStarted = inventoryCache.loadStarted();
+        inventoryCache.invalidate("p");
+        inventoryCache.putLoaded(Inventory.builder().productId("p").quantity(5).reserved(0).updatedAt(Instant.now())
+                                          .build(), loadStarted);
+
+        assertThat(inventoryCache.get("p")).isNull();
+
+        inventoryCache.putLoaded(Inventory.builder().productId("q").quantity(5).reserved(0).updatedAt(Instant.now())
+                                          .build(), loadStarted);
+
+        assertThat(inventoryCache.get("q")).isNotNull();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.StockChange;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryChangeFeedTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Mock
+    private InventoryLoader inventoryLoader;
+
+    private final InventoryProperties properties = new InventoryProperties();
+
+    @Test
+    void watch_shouldSendOnlyLatestChange_whenClientReadsSlowly() {
+        when(inventoryLoader.loadAll(anyCollection())).thenReturn(Flux.empty());
+        InventoryChangeFeed feed = new InventoryChangeFeed(inventoryLoader, properties, new SimpleMeterRegistry());
+
+        StepVerifier.create(feed.watch(List.of("p"), null), 0)
+                    .then(() -> {
+                        feed.publish(row("p", 10, 1));
+                        feed.publish(row("p", 9, 2));
+                        feed.publish(row("p", 8, 3));
+                    })
+                    .thenRequest(1)
+                    .assertNext(change -> assertThat(change.getQuantity()).isEqualTo(8))
+                    .thenCancel()
+                    .verify();
+        assertThat(feed.isWatched("p")).isFalse();
+    }
+
+    @Test
+    void watch_shouldSendChangeOnce_whenItArrivesLocallyAndThroughTopic() {
+        when(inventoryLoader.loadAll(anyCollection())).thenReturn(Flux.empty());
+        InventoryChangeFeed feed = new InventoryChangeFeed(inventoryLoader, properties, new SimpleMeterRegistry());
+
+        StepVerifier.create(feed.watch(List.of("p"), null))
+                    .then(() -> {
+                        feed.publish(row("p", 10, 1));
+                        feed.publish(event("p", 10, 1));
+                        feed.publish(event("p", 7, 2));
+                    })
+                    .assertNext(change -> assertThat(change.getQuantity()).isEqualTo(10))
+                    .assertNext(change -> assertThat(change.getQuantity()).isEqualTo(7))
+                    .thenCancel()
+                    .verify();
+    }
+
+    @Test
+    void watch_shouldSendOnlyNewerProducts_whenResumingFromVersion() {
+        when(inventoryLoader.loadAll(anyCollection())).thenReturn(
+                Flux.just(Inventory.builder().productId("a").quantity(1).reserved(0).updatedAt(at(1)).build(),
+                          Inventory.builder().productId("b").quantity(2).reserved(0).updatedAt(at(3)).build()));
+        InventoryChangeFeed feed = new InventoryChangeFeed(inventoryLoader, properties, new SimpleMeterRegistry());
+
+        StepVerifier.create(feed.watch(List.of("a", "b"), StockChange.version(at(2))))
+                    .assertNext(change -> {
+                        assertThat(change.getProductId()).isEqualTo("b");
+                        assertThat(change.getVersion()).isEqualTo(StockChange.version(at(3)));
+                    })
+                    .then(() -> feed.publish(row("a", 5, 4)))
+                    .assertNext(change -> assertThat(change.getProductId()).isEqualTo("a"))
+                    .thenCancel()
+                    .verify();
+    }
+
+    @Test
+    void watch_shouldFail_whenTooManyProductsAreWatched() {
+        properties.getFeed().setMaxProducts(2);
+        InventoryChangeFeed feed = new InventoryChangeFeed(inventoryLoader, properties, new SimpleMeterRegistry());
+
+        StepVerifier.create(feed.watch(IntStream.range(0, 3).mapToObj(i -> "p" + i).toList(), null))
+                    .expectError(ResponseStatusException.class)
+                    .verify();
+    }
+
+    private static Inventory row(String productId, int quantity, int second) {
+        return Inventory.builder().productId(productId).quantity(quantity).reserved(0).updatedAt(at(second)).build();
+    }
+
+    private static InventoryEvents.InventoryUpdatedEvent event(String productId, int quantity, int second) {
+        return InventoryEvents.InventoryUpdatedEvent.builder()
+                                                    .eventType("INVENTORY_UPDATED")
+                                                    .productId(productId)
+                                                    .quantity(quantity)
+                                                    .reserved(0)
+                                                    .timestamp(at(second))
+                                                    .build();
+    }
+
+    private static Instant at(int second) {
+        return NOW.plusSeconds(second);
+    }
+
+}
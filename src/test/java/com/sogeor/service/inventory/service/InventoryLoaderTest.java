@@ -0,0 +1,85 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryLoaderTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    private final InventoryCache inventoryCache = new InventoryCache(new InventoryProperties(),
+                                                                     new SimpleMeterRegistry());
+
+    @Test
+    void load_shouldShareOneQuery_whenSameProductIsLoadedConcurrently() {
+        Inventory inventory = Inventory.builder().productId("p").quantity(1).reserved(0).build();
+        when(inventoryRepository.findByProductId("p")).thenReturn(
+                Mono.just(inventory).delayElement(Duration.ofMillis(100)));
+        InventoryLoader loader = new InventoryLoader(inventoryRepository, inventoryCache,
+                                                     new ReplicaReads(new InventoryProperties()),
+                                                     new InventoryProperties());
+
+        List<Inventory> loaded = Flux.range(0, 50).flatMap(i -> loader.load("p")).collectList().block();
+
+        assertThat(loaded).hasSize(50).allMatch(inventory::equals);
+        verify(inventoryRepository, times(1)).findByProductId("p");
+    }
+
+    @Test
+    void load_shouldMergeDifferentProductsIntoOneQuery_whenBatchWindowIsSet() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getLookup().setBatchWindow(Duration.ofMillis(50));
+        when(inventoryRepository.findByProductIdIn(anyCollection())).thenReturn(
+                Flux.just(Inventory.builder().productId("a").quantity(1).reserved(0).build(),
+                          Inventory.builder().productId("b").quantity(2).reserved(0).build()));
+        InventoryLoader loader = new InventoryLoader(inventoryRepository, inventoryCache, new ReplicaReads(properties),
+                                                     properties);
+
+        List<Inventory> loaded = Flux.just("a", "b", "c").flatMap(loader::load).collectList().block();
+
+        assertThat(loaded).extracting(Inventory::getProductId).containsExactlyInAnyOrder("a", "b");
+        verify(inventoryRepository, times(1)).findByProductIdIn(anyCollection());
+        loader.close();
+    }
+
+    @Test
+    void load_shouldCacheRow_unlessProductIsInvalidatedWhileLoading() {
+        Inventory before = Inventory.builder().productId("p").quantity(1).reserved(0).updatedAt(Instant.now()).build();
+        when(inventoryRepository.findByProductId("p")).thenReturn(Mono.just(before));
+        InventoryLoader loader = new InventoryLoader(inventoryRepository, inventoryCache,
+                                                     new ReplicaReads(new InventoryProperties()),
+                                                     new InventoryProperties());
+
+        loader.load("p").block();
+        assertThat(inventoryCache.get("p")).isSameAs(before);
+
+        inventoryCache.invalidate("p");
+        when(inventoryRepository.findByProductId("p")).thenReturn(
+                Mono.just(before).delayElement(Duration.ofMillis(100)).doOnSubscribe(
+                        subscription -> inventoryCache.invalidate("p")));
+
+        assertThat(loader.load("p").block()).isSameAs(before);
+        assertThat(inventoryCache.get("p")).isNull();
+    }
+
+}
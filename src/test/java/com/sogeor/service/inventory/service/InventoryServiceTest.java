@@ -1,19 +1,31 @@
 package com.sogeor.service.inventory.service;
 
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
 import com.sogeor.service.inventory.domain.Inventory;
-import com.sogeor.service.inventory.messaging.InventoryEventProducer;
+import com.sogeor.service.inventory.domain.StockAvailability;
+import com.sogeor.service.inventory.domain.StockMutation;
 import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,52 +36,200 @@ class InventoryServiceTest {
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private InventoryEventProducer eventProducer;
+    private LowStockAlertEngine lowStockAlertEngine;
+
+    @Mock
+    private FlashSaleService flashSaleService;
+
+    @Mock
+    private InventoryCache inventoryCache;
+
+    @Mock
+    private InventoryLoader inventoryLoader;
+
+    @Mock
+    private OwnershipService ownershipService;
+
+    @Mock
+    private InventoryChangeFeed changeFeed;
+
+    @Mock
+    private StockLocations stockLocations;
+
+    @Spy
+    private InventoryProperties properties = new InventoryProperties();
+
+    @Spy
+    private ReplicaReads replicaReads = new ReplicaReads(properties);
+
+    @Spy
+    private AdmissionControl admissionControl = new AdmissionControl(properties, new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private OperationMetrics operationMetrics = new OperationMetrics(meterRegistry, new HotKeys(properties));
 
     @InjectMocks
     private InventoryService inventoryService;
 
+    @Test
+    void getInventory_shouldServeFromCache_whenCached() {
+        String productId = UUID.randomUUID().toString();
+        Inventory cached = Inventory.builder().productId(productId).quantity(3).reserved(1).build();
+
+        when(inventoryCache.get(productId)).thenReturn(cached);
+        when(flashSaleService.localView(cached)).thenReturn(cached);
+
+        StepVerifier.create(inventoryService.getInventory(productId)).expectNext(cached).verifyComplete();
+
+        verify(inventoryLoader, never()).load(any());
+    }
+
+    @Test
+    void getInventory_shouldLoad_whenNotCached() {
+        String productId = UUID.randomUUID().toString();
+        Inventory stored = Inventory.builder().productId(productId).quantity(3).reserved(1).build();
+
+        when(inventoryLoader.load(productId)).thenReturn(Mono.just(stored));
+        when(flashSaleService.localView(stored)).thenReturn(stored);
+
+        StepVerifier.create(inventoryService.getInventory(productId)).expectNext(stored).verifyComplete();
+    }
+
+    @Test
+    void getInventory_shouldServeFromOwner_whenOwnedLocally() {
+        String productId = UUID.randomUUID().toString();
+        Inventory owned = Inventory.builder().productId(productId).quantity(3).reserved(1).build();
+
+        when(ownershipService.localView(productId)).thenReturn(owned);
+
+        StepVerifier.create(inventoryService.getInventory(productId)).expectNext(owned).verifyComplete();
+
+        verify(inventoryCache, never()).get(any());
+    }
+
+    @Test
+    void getAvailability_shouldReadMissesWithOneQuery_andReportMissingProducts() {
+        Inventory cached = Inventory.builder().productId("a").quantity(5).reserved(2).build();
+        Inventory stored = Inventory.builder().productId("b").quantity(7).reserved(0).build();
+
+        when(inventoryCache.get("a")).thenReturn(cached);
+        when(inventoryLoader.loadAll(List.of("b", "c"))).thenReturn(Flux.just(stored));
+        when(flashSaleService.localView(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(inventoryService.getAvailability(List.of("b", "a", "c", "b")))
+                    .expectNext(new StockAvailability("b", 7))
+                    .expectNext(new StockAvailability("a", 3))
+                    .expectNext(new StockAvailability("c", null))
+                    .verifyComplete();
+    }
+
+    @Test
+    void getAvailability_shouldError_whenTooManyProductsAreRequested() {
+        properties.getLookup().setMaxProducts(2);
+
+        StepVerifier.create(inventoryService.getAvailability(List.of("a", "b", "c")))
+                    .expectErrorMatches(e -> e instanceof ResponseStatusException ex &&
+                                             ex.getStatusCode() == HttpStatus.BAD_REQUEST)
+                    .verify();
+
+        verify(inventoryLoader, never()).loadAll(any());
+    }
+
+    @Test
+    void reserveStock_shouldForwardToOwner_whenOwnershipEnabled() {
+        String productId = UUID.randomUUID().toString();
+        BulkStockLine line = BulkStockLine.builder()
+                                          .productId(productId)
+                                          .requested(5)
+                                          .quantity(10)
+                                          .reserved(5)
+                                          .status(BulkStockLine.APPLIED)
+                                          .build();
+
+        when(ownershipService.isEnabled()).thenReturn(true);
+        when(ownershipService.execute(any())).thenReturn(Mono.just(line));
+
+        StepVerifier.create(inventoryService.reserveStock(productId, 5))
+                    .expectNextMatches(inv -> inv.getReserved() == 5)
+                    .verifyComplete();
+
+        verify(inventoryRepository, never()).reserveStock(any(), anyInt());
+    }
+
+    @Test
+    void reserveStock_shouldError_whenOwnerRejects() {
+        String productId = UUID.randomUUID().toString();
+        BulkStockLine line = BulkStockLine.builder()
+                                          .productId(productId)
+                                          .requested(5)
+                                          .quantity(3)
+                                          .reserved(0)
+                                          .status(BulkStockLine.INSUFFICIENT)
+                                          .build();
+
+        when(ownershipService.isEnabled()).thenReturn(true);
+        when(ownershipService.execute(any())).thenReturn(Mono.just(line));
+
+        StepVerifier.create(inventoryService.reserveStock(productId, 5))
+                    .expectErrorMatches(e -> e instanceof ResponseStatusException ex &&
+                                             ex.getStatusCode() == HttpStatus.CONFLICT)
+                    .verify();
+    }
+
     @Test
     void addStock_shouldCreateNewInventory_whenProductDoesNotExist() {
         String productId = UUID.randomUUID().toString();
         Inventory newInventory = Inventory.builder().productId(productId).quantity(10).reserved(0).build();
 
-        when(inventoryRepository.findByProductId(productId)).thenReturn(Mono.empty());
-        when(inventoryRepository.save(any(Inventory.class))).thenReturn(Mono.just(newInventory));
+        when(inventoryRepository.addStock(productId, 10)).thenReturn(Mono.just(newInventory));
 
         StepVerifier.create(inventoryService.addStock(productId, 10))
                     .expectNextMatches(inv -> inv.getQuantity() == 10 && inv.getProductId().equals(productId))
                     .verifyComplete();
 
-        verify(eventProducer).sendInventoryUpdated(any());
+        verify(inventoryCache).put(any());
     }
 
     @Test
     void addStock_shouldUpdateExistingInventory_whenProductExists() {
         String productId = UUID.randomUUID().toString();
-        Inventory existingInventory = Inventory.builder().productId(productId).quantity(5).reserved(0).build();
-
         Inventory updatedInventory = Inventory.builder().productId(productId).quantity(15).reserved(0).build();
 
-        when(inventoryRepository.findByProductId(productId)).thenReturn(Mono.just(existingInventory));
-        when(inventoryRepository.save(any(Inventory.class))).thenReturn(Mono.just(updatedInventory));
+        when(inventoryRepository.addStock(productId, 10)).thenReturn(Mono.just(updatedInventory));
 
         StepVerifier.create(inventoryService.addStock(productId, 10))
                     .expectNextMatches(inv -> inv.getQuantity() == 15)
                     .verifyComplete();
 
-        verify(eventProducer).sendInventoryUpdated(any());
+        verify(inventoryCache).put(any());
     }
 
     @Test
     void reserveStock_shouldReserve_whenSufficientStock() {
         String productId = UUID.randomUUID().toString();
-        Inventory existingInventory = Inventory.builder().productId(productId).quantity(10).reserved(0).build();
+        StockMutation reserved = StockMutation.builder().productId(productId).quantity(10).reserved(5).applied(true)
+                                              .build();
+
+        when(inventoryRepository.reserveStock(productId, 5)).thenReturn(Mono.just(reserved));
+
+        StepVerifier.create(inventoryService.reserveStock(productId, 5))
+                    .expectNextMatches(inv -> inv.getReserved() == 5)
+                    .verifyComplete();
+
+        verify(inventoryCache).put(any());
+    }
 
-        Inventory reservedInventory = Inventory.builder().productId(productId).quantity(10).reserved(5).build();
+    @Test
+    void reserveStock_shouldReserveInDatabase_whenFlashSaleNoLongerServesProduct() {
+        String productId = UUID.randomUUID().toString();
+        StockMutation reserved = StockMutation.builder().productId(productId).quantity(10).reserved(5).applied(true)
+                                              .build();
 
-        when(inventoryRepository.findByProductId(productId)).thenReturn(Mono.just(existingInventory));
-        when(inventoryRepository.save(any(Inventory.class))).thenReturn(Mono.just(reservedInventory));
+        when(flashSaleService.isFlashSale(productId)).thenReturn(true);
+        when(flashSaleService.reserveStock(productId, 5)).thenReturn(Mono.empty());
+        when(inventoryRepository.reserveStock(productId, 5)).thenReturn(Mono.just(reserved));
 
         StepVerifier.create(inventoryService.reserveStock(productId, 5))
                     .expectNextMatches(inv -> inv.getReserved() == 5)
@@ -79,12 +239,34 @@ class InventoryServiceTest {
     @Test
     void reserveStock_shouldError_whenInsufficientStock() {
         String productId = UUID.randomUUID().toString();
-        Inventory existingInventory = Inventory.builder().productId(productId).quantity(10).reserved(8).build();
+        StockMutation unchanged = StockMutation.builder().productId(productId).quantity(10).reserved(8).applied(false)
+                                               .build();
 
-        when(inventoryRepository.findByProductId(productId)).thenReturn(Mono.just(existingInventory));
+        when(inventoryRepository.reserveStock(productId, 5)).thenReturn(Mono.just(unchanged));
 
         StepVerifier.create(inventoryService.reserveStock(productId, 5)) // 10-8=2 available, need 5
-                    .expectError(RuntimeException.class).verify();
+                    .expectErrorMatches(e -> e instanceof ResponseStatusException ex &&
+                                             ex.getStatusCode() == HttpStatus.CONFLICT)
+                    .verify();
+
+        verify(inventoryCache, never()).put(any());
+        assertThat(meterRegistry.get("inventory.operations")
+                                .tag("operation", "reserve")
+                                .tag("outcome", "insufficient")
+                                .timer()
+                                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void reserveStock_shouldError_whenProductDoesNotExist() {
+        String productId = UUID.randomUUID().toString();
+
+        when(inventoryRepository.reserveStock(productId, 5)).thenReturn(Mono.empty());
+
+        StepVerifier.create(inventoryService.reserveStock(productId, 5))
+                    .expectErrorMatches(e -> e instanceof ResponseStatusException ex &&
+                                             ex.getStatusCode() == HttpStatus.NOT_FOUND)
+                    .verify();
     }
 
 }
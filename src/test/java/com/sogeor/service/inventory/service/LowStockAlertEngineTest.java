@@ -0,0 +1,98 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.LowStockThreshold;
+import com.sogeor.service.inventory.repository.LowStockThresholdRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LowStockAlertEngineTest {
+
+    private final LowStockThresholdRepository thresholdRepository = mock(LowStockThresholdRepository.class);
+
+    private final LowStockAlertEngine engine = new LowStockAlertEngine(thresholdRepository, new InventoryProperties());
+
+    @Test
+    void evaluate_shouldAlertOnceAndRearm_whenStockCrossesThresholds() {
+        LowStockThreshold threshold = threshold(false);
+        when(thresholdRepository.upsert("p", 5, 8)).thenReturn(Mono.just(threshold));
+        when(thresholdRepository.alert("p")).thenReturn(Mono.empty(), Mono.just(threshold(true)));
+        when(thresholdRepository.rearm("p")).thenReturn(Mono.just(threshold));
+        engine.setThreshold("p", 5, 8).block();
+
+        engine.evaluate(inventory(6));
+        engine.evaluate(inventory(4));
+        engine.evaluate(inventory(3));
+        engine.evaluate(inventory(7));
+        engine.evaluate(inventory(8));
+
+        verify(thresholdRepository, times(2)).alert("p");
+        verify(thresholdRepository, times(1)).rearm("p");
+    }
+
+    @Test
+    void evaluate_shouldRecheckLatestStock_whenItChangesWhileStatementIsInFlight() {
+        LowStockThreshold threshold = threshold(false);
+        Sinks.One<LowStockThreshold> alerted = Sinks.one();
+        when(thresholdRepository.upsert("p", 5, 8)).thenReturn(Mono.just(threshold));
+        when(thresholdRepository.alert("p")).thenReturn(Mono.empty(), alerted.asMono());
+        when(thresholdRepository.rearm("p")).thenReturn(Mono.just(threshold));
+        engine.setThreshold("p", 5, 8).block();
+
+        engine.evaluate(inventory(4));
+        engine.evaluate(inventory(9));
+        verify(thresholdRepository, never()).rearm(any());
+
+        alerted.tryEmitValue(threshold(true));
+
+        verify(thresholdRepository, times(1)).rearm("p");
+    }
+
+    @Test
+    void reload_shouldDropThreshold_whenRemovedThroughAnotherReplica() {
+        LowStockThreshold threshold = threshold(false);
+        when(thresholdRepository.upsert("p", 5, 8)).thenReturn(Mono.just(threshold));
+        when(thresholdRepository.alert("p")).thenReturn(Mono.empty());
+        when(thresholdRepository.findById("p")).thenReturn(Mono.empty());
+        engine.setThreshold("p", 5, 8).block();
+
+        engine.reload("p");
+        engine.evaluate(inventory(0));
+
+        verify(thresholdRepository, times(1)).alert("p");
+    }
+
+    @Test
+    void evaluate_shouldNotTouchDatabase_whenProductHasNoThreshold() {
+        engine.evaluate(inventory(0));
+
+        verify(thresholdRepository, never()).alert(any());
+    }
+
+    @Test
+    void setThreshold_shouldReject_whenRearmThresholdIsBelowThreshold() {
+        StepVerifier.create(engine.setThreshold("p", 5, 4)).verifyError();
+
+        verify(thresholdRepository, never()).upsert(any(), anyInt(), anyInt());
+    }
+
+    private static LowStockThreshold threshold(boolean alerted) {
+        return LowStockThreshold.builder().productId("p").threshold(5).rearmThreshold(8).alerted(alerted).build();
+    }
+
+    private static Inventory inventory(int available) {
+        return Inventory.builder().productId("p").quantity(available + 1).reserved(1).build();
+    }
+
+}
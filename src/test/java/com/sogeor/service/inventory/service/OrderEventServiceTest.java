@@ -0,0 +1,172 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.domain.OrderEventKey;
+import com.sogeor.service.inventory.domain.StockAdjustment;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderEventServiceTest {
+
+    private final InventoryService inventoryService = mock(InventoryService.class);
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+
+    private final TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final OrderEventService orderEventService = new OrderEventService(inventoryService, inventoryRepository,
+                                                                              transactionalOperator,
+                                                                              new InventoryProperties(),
+                                                                              meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(inventoryService.adjustStock(any())).thenReturn(Flux.just(Inventory.builder().productId("p").build()));
+    }
+
+    @Test
+    void apply_shouldSkipEventsAlreadyRecordedInDatabase() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1")));
+
+        orderEventService.apply(List.of(paid("o-1"), paid("o-2"))).block();
+
+        verify(inventoryService).adjustStock(List.of(StockAdjustment.builder()
+                                                                    .productId("p")
+                                                                    .quantityDelta(-1)
+                                                                    .reservedDelta(1)
+                                                                    .build()));
+    }
+
+    @Test
+    void apply_shouldApplyUpdateCallbacks_onlyOnceCommitted() {
+        Inventory updated = Inventory.builder().productId("p").build();
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1"), key("o-2")));
+        when(transactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.<Mono<?>>getArgument(0)
+                                                    .then(Mono.error(new IllegalStateException("Commit failed"))))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(orderEventService.apply(List.of(paid("o-1")))).verifyError(IllegalStateException.class);
+        verify(inventoryService, never()).onUpdated(any());
+
+        orderEventService.apply(List.of(paid("o-2"))).block();
+        verify(inventoryService).onUpdated(updated);
+    }
+
+    @Test
+    void apply_shouldDropReplaysInMemory_onceCommitted() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1")));
+
+        orderEventService.apply(List.of(paid("o-1"))).block();
+        orderEventService.apply(List.of(paid("o-1"), paid("o-1"))).block();
+
+        verify(inventoryRepository, times(1)).claimOrderEvents(any(), any());
+        assertThat(meterRegistry.counter("inventory.order-events.duplicates").count()).isEqualTo(2);
+    }
+
+    @Test
+    void apply_shouldNotAdjust_whenEveryEventIsDuplicate() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.empty());
+
+        orderEventService.apply(List.of(paid("o-1"))).block();
+
+        verify(inventoryService, never()).adjustStock(any());
+    }
+
+    @Test
+    void apply_shouldSkipAndCountMalformedEvents_andApplyTheRest() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1")));
+        InventoryEvents.OrderEvent withoutItems = paid("o-2");
+        withoutItems.setItems(null);
+        InventoryEvents.OrderEvent withoutQuantity = paid("o-3");
+        withoutQuantity.setItems(List.of(InventoryEvents.OrderItem.builder().productId("p").build()));
+
+        orderEventService.apply(List.of(withoutItems, paid("o-1"), withoutQuantity)).block();
+
+        verify(inventoryRepository).claimOrderEvents(new String[]{"o-1"}, new String[]{"ORDER_PAID"});
+        assertThat(meterRegistry.counter("inventory.order-events.rejected").count()).isEqualTo(2);
+    }
+
+    @Test
+    void apply_shouldMergeProductAcrossClaimChunks_intoOneAdjustment() {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getOrderEvents().setStatementSize(1);
+        OrderEventService service = new OrderEventService(inventoryService, inventoryRepository, transactionalOperator,
+                                                          properties, meterRegistry);
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1")),
+                                                                           Flux.just(key("o-2")));
+
+        service.apply(List.of(paid("o-1"), paid("o-2"))).block();
+
+        verify(inventoryRepository, times(2)).claimOrderEvents(any(), any());
+        verify(inventoryService).adjustStock(List.of(StockAdjustment.builder()
+                                                                    .productId("p")
+                                                                    .quantityDelta(-2)
+                                                                    .reservedDelta(2)
+                                                                    .build()));
+    }
+
+    @Test
+    void apply_shouldRecordEventsAsRejected_whenTheirProductCannotBeAdjusted() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1")));
+        when(inventoryService.adjustStock(any())).thenReturn(Flux.empty());
+        when(inventoryRepository.rejectOrderEvents(any(), any())).thenReturn(Mono.just(1));
+
+        orderEventService.apply(List.of(paid("o-1"))).block();
+
+        verify(inventoryRepository).rejectOrderEvents(new String[]{"o-1"}, new String[]{"ORDER_PAID"});
+        assertThat(meterRegistry.counter("inventory.order-events.unapplied").count()).isEqualTo(1);
+    }
+
+    @Test
+    void apply_shouldApplyEventsOneByOne_whenMergedAdjustmentIsRejected() {
+        when(inventoryRepository.claimOrderEvents(any(), any())).thenReturn(Flux.just(key("o-1"), key("o-2")));
+        when(inventoryService.adjustStock(any())).thenReturn(Flux.empty(),
+                                                             Flux.just(Inventory.builder().productId("p").build()),
+                                                             Flux.empty());
+        when(inventoryRepository.rejectOrderEvents(any(), any())).thenReturn(Mono.just(1));
+
+        orderEventService.apply(List.of(paid("o-1"), paid("o-2"))).block();
+
+        verify(inventoryService, times(3)).adjustStock(any());
+        verify(inventoryRepository).rejectOrderEvents(new String[]{"o-2"}, new String[]{"ORDER_PAID"});
+        verify(inventoryService).onUpdated(Inventory.builder().productId("p").build());
+    }
+
+    private static OrderEventKey key(String orderId) {
+        return new OrderEventKey(orderId, "ORDER_PAID");
+    }
+
+    private static InventoryEvents.OrderEvent paid(String orderId) {
+        return InventoryEvents.OrderEvent.builder()
+                                         .eventType("ORDER_PAID")
+                                         .orderId(orderId)
+                                         .items(List.of(InventoryEvents.OrderItem.builder()
+                                                                                 .productId("p")
+                                                                                 .quantity(1)
+                                                                                 .build()))
+                                         .build();
+    }
+
+}
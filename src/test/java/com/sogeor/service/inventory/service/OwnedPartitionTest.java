@@ -0,0 +1,84 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OwnedPartitionTest {
+
+    private final OwnedPartition partition = new OwnedPartition(0, 1, 10);
+
+    @Test
+    void apply_shouldRejectReservation_whenAvailableStockIsInsufficient() {
+        partition.load("p", Inventory.builder().productId("p").quantity(5).reserved(3).build());
+
+        assertThat(partition.apply(10, command(InventoryEvents.StockCommand.RESERVE, "p", 2)).getStatus())
+                .isEqualTo(BulkStockLine.APPLIED);
+        assertThat(partition.apply(11, command(InventoryEvents.StockCommand.RESERVE, "p", 1)).getStatus())
+                .isEqualTo(BulkStockLine.INSUFFICIENT);
+        assertThat(partition.view("p").getReserved()).isEqualTo(5);
+    }
+
+    @Test
+    void apply_shouldSkipCommand_whenOffsetWasAlreadyApplied() {
+        partition.load("p", Inventory.builder().productId("p").quantity(5).reserved(0).build());
+
+        assertThat(partition.apply(9, command(InventoryEvents.StockCommand.RESERVE, "p", 1))).isNull();
+        assertThat(partition.view("p").getReserved()).isZero();
+    }
+
+    @Test
+    void changes_shouldCoverDeltasSinceLastFlush() {
+        partition.load("p", Inventory.builder().productId("p").quantity(5).reserved(0).build());
+        partition.load("q", null);
+        partition.apply(10, command(InventoryEvents.StockCommand.RESERVE, "p", 2));
+        partition.apply(11, command(InventoryEvents.StockCommand.ADD, "q", 0));
+
+        OwnedPartition.Changes changes = partition.changes();
+
+        assertThat(changes.productIds()).containsExactlyInAnyOrder("p", "q");
+        assertThat(changes.nextOffset()).isEqualTo(12);
+
+        partition.flushed(List.of(Inventory.builder().productId("p").quantity(7).reserved(2).build(),
+                                  Inventory.builder().productId("q").quantity(0).reserved(0).build()));
+
+        assertThat(partition.changes()).isNull();
+        assertThat(partition.view("p").getQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void rebase_shouldKeepUnwrittenChanges_onTopOfRowChangedElsewhere() {
+        partition.load("p", Inventory.builder().productId("p").quantity(10).reserved(0).build());
+        partition.apply(10, command(InventoryEvents.StockCommand.RESERVE, "p", 2));
+
+        assertThat(partition.rebase(Inventory.builder().productId("p").quantity(10).reserved(7).build(),
+                                    partition.flushes())).isTrue();
+
+        assertThat(partition.view("p").getReserved()).isEqualTo(9);
+        assertThat(partition.apply(11, command(InventoryEvents.StockCommand.RESERVE, "p", 2)).getStatus())
+                .isEqualTo(BulkStockLine.INSUFFICIENT);
+        assertThat(partition.changes().reservedDeltas()).containsExactly(2);
+    }
+
+    @Test
+    void rebase_shouldRefuseRow_readBeforeLastFlush() {
+        partition.load("p", Inventory.builder().productId("p").quantity(10).reserved(0).build());
+        long flushes = partition.flushes();
+        partition.apply(10, command(InventoryEvents.StockCommand.RESERVE, "p", 2));
+        partition.flushed(List.of(Inventory.builder().productId("p").quantity(10).reserved(2).build()));
+
+        assertThat(partition.rebase(Inventory.builder().productId("p").quantity(10).reserved(0).build(), flushes))
+                .isFalse();
+        assertThat(partition.view("p").getReserved()).isEqualTo(2);
+    }
+
+    private static InventoryEvents.StockCommand command(String type, String productId, int quantity) {
+        return InventoryEvents.StockCommand.builder().type(type).productId(productId).quantity(quantity).build();
+    }
+
+}
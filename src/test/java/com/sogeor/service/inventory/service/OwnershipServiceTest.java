@@ -0,0 +1,199 @@
+package com.sogeor.service.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.BulkStockLine;
+import com.sogeor.service.inventory.domain.Inventory;
+import com.sogeor.service.inventory.dto.InventoryEvents;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import com.sogeor.service.inventory.repository.OwnershipCheckpointRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs two owners against one embedded broker and hands partitions over between them while stock is being reserved.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OwnershipServiceTest {
+
+    private static final int STOCK = 50;
+
+    private static final int PRODUCTS = 8;
+
+    @Container
+    private static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:18-alpine");
+
+    private static EmbeddedKafkaKraftBroker broker;
+
+    private static InventoryRepository inventoryRepository;
+
+    private static OwnershipCheckpointRepository checkpointRepository;
+
+    private static TransactionalOperator transactionalOperator;
+
+    @BeforeAll
+    static void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                ConnectionFactoryOptions.builder()
+                                        .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                                        .option(ConnectionFactoryOptions.HOST, postgres.getHost())
+                                        .option(ConnectionFactoryOptions.PORT, postgres.getFirstMappedPort())
+                                        .option(ConnectionFactoryOptions.DATABASE, postgres.getDatabaseName())
+                                        .option(ConnectionFactoryOptions.USER, postgres.getUsername())
+                                        .option(ConnectionFactoryOptions.PASSWORD, postgres.getPassword())
+                                        .build());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(connectionFactory).block();
+
+        R2dbcRepositoryFactory repositoryFactory = new R2dbcRepositoryFactory(
+                new R2dbcEntityTemplate(connectionFactory));
+        inventoryRepository = repositoryFactory.getRepository(InventoryRepository.class);
+        checkpointRepository = repositoryFactory.getRepository(OwnershipCheckpointRepository.class);
+        transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+
+        broker = new EmbeddedKafkaKraftBroker(1, 4, "inventory-commands", "inventory-command-replies");
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        broker.destroy();
+    }
+
+    @Test
+    void execute_shouldNotOversell_whenPartitionsAreHandedOver() {
+        List<String> productIds = IntStream.range(0, PRODUCTS).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        OwnershipService first = owner("first");
+        first.start();
+        Flux.fromIterable(productIds)
+            .flatMap(productId -> first.execute(command(InventoryEvents.StockCommand.ADD, productId, STOCK)))
+            .blockLast(Duration.ofSeconds(30));
+
+        long applied = reserve(List.of(first), productIds);
+
+        OwnershipService second = owner("second");
+        second.start();
+        applied += reserve(List.of(first, second), productIds);
+
+        first.stop();
+        applied += reserve(List.of(second), productIds);
+
+        second.flush();
+        second.stop();
+
+        assertThat(applied).isEqualTo((long) STOCK * PRODUCTS);
+        List<Inventory> stored = inventoryRepository.findByProductIdIn(productIds).collectList().block();
+        assertThat(stored).hasSize(PRODUCTS).allSatisfy(inventory -> {
+            assertThat(inventory.getQuantity()).isEqualTo(STOCK);
+            assertThat(inventory.getReserved()).isEqualTo(STOCK);
+        });
+    }
+
+    @Test
+    void execute_shouldNotOversell_whenBulkReservationsWriteBehindTheOwner() {
+        String productId = UUID.randomUUID().toString();
+        OwnershipService owner = owner("mixed");
+        owner.start();
+        owner.execute(command(InventoryEvents.StockCommand.ADD, productId, STOCK)).block(Duration.ofSeconds(30));
+        owner.flush();
+
+        assertThat(inventoryRepository.reserveStock(new String[]{productId}, new Integer[]{STOCK / 2})
+                                      .collectList()
+                                      .block()).allMatch(BulkStockLine::isApplied);
+        owner.refresh(productId);
+        await().atMost(Duration.ofSeconds(10)).until(() -> owner.localView(productId).getReserved() == STOCK / 2);
+
+        long applied = Flux.range(0, STOCK)
+                           .flatMap(i -> owner.execute(command(InventoryEvents.StockCommand.RESERVE, productId, 1)))
+                           .filter(BulkStockLine::isApplied)
+                           .count()
+                           .block(Duration.ofMinutes(1));
+        owner.flush();
+
+        assertThat(applied).isEqualTo(STOCK - STOCK / 2);
+        assertThat(inventoryRepository.findByProductId(productId).block()).satisfies(inventory -> {
+            assertThat(inventory.getQuantity()).isEqualTo(STOCK);
+            assertThat(inventory.getReserved()).isEqualTo(STOCK);
+        });
+
+        owner.execute(command(InventoryEvents.StockCommand.RELEASE, productId, 1)).block(Duration.ofSeconds(30));
+        owner.flush();
+        inventoryRepository.reserveStock(new String[]{productId}, new Integer[]{1}).blockLast();
+        assertThat(owner.execute(command(InventoryEvents.StockCommand.RESERVE, productId, 1))
+                        .block(Duration.ofSeconds(30))
+                        .isApplied()).isTrue();
+        owner.flush();
+        owner.stop();
+
+        assertThat(inventoryRepository.findByProductId(productId).block().getReserved()).isEqualTo(STOCK);
+    }
+
+    /**
+     * Asks for the whole stock of every product again, spread over the given owners, and counts the reservations
+     * that were granted.
+     */
+    private static long reserve(List<OwnershipService> owners, List<String> productIds) {
+        return Flux.range(0, STOCK * PRODUCTS)
+                   .flatMap(i -> owners.get(i % owners.size())
+                                       .execute(command(InventoryEvents.StockCommand.RESERVE,
+                                                        productIds.get(i % PRODUCTS), 1)), 64)
+                   .filter(BulkStockLine::isApplied)
+                   .count()
+                   .block(Duration.ofMinutes(1));
+    }
+
+    private static OwnershipService owner(String name) {
+        InventoryProperties properties = new InventoryProperties();
+        InventoryProperties.Ownership ownership = properties.getOwnership();
+        ownership.setEnabled(true);
+        ownership.setPartitions(4);
+        ownership.setGroupId("owners");
+        ownership.setReplyGroupId("replies-" + name);
+        ownership.setRequestTimeout(Duration.ofSeconds(30));
+
+        Map<String, Object> consumerConfigs = Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
+                                                     broker.getBrokersAsString(),
+                                                     ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Map<String, Object> producerConfigs = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
+                                                     broker.getBrokersAsString());
+        return new OwnershipService(inventoryRepository, checkpointRepository, transactionalOperator,
+                                    new ObjectMapper(), properties,
+                                    new DefaultKafkaConsumerFactory<>(consumerConfigs, new StringDeserializer(),
+                                                                      new StringDeserializer()),
+                                    new DefaultKafkaProducerFactory<>(producerConfigs));
+    }
+
+    private static InventoryEvents.StockCommand command(String type, String productId, int quantity) {
+        return InventoryEvents.StockCommand.builder().type(type).productId(productId).quantity(quantity).build();
+    }
+
+}
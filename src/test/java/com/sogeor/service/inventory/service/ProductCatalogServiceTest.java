@@ -0,0 +1,44 @@
+package com.sogeor.service.inventory.service;
+
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductCatalogServiceTest {
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+
+    private final ProductCatalogService productCatalogService = new ProductCatalogService(inventoryRepository,
+                                                                                         new InventoryProperties());
+
+    @Test
+    void register_shouldCreateOnlyProductsNotKnownBefore() {
+        when(inventoryRepository.createMissing(any())).thenReturn(Flux.just("a"));
+
+        assertThat(productCatalogService.register(List.of("a", "b", "a")).block()).isEqualTo(1L);
+        productCatalogService.register(List.of("b", "c")).block();
+
+        verify(inventoryRepository).createMissing(new String[] {"a", "b"});
+        verify(inventoryRepository).createMissing(new String[] {"c"});
+    }
+
+    @Test
+    void register_shouldNotQuery_whenEveryProductIsKnown() {
+        when(inventoryRepository.createMissing(any())).thenReturn(Flux.empty());
+        productCatalogService.register(List.of("a")).block();
+
+        assertThat(productCatalogService.register(List.of("a", "a")).block()).isZero();
+
+        verify(inventoryRepository).createMissing(new String[] {"a"});
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.sogeor.service.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sogeor.service.inventory.config.InventoryProperties;
+import com.sogeor.service.inventory.domain.StockImport;
+import com.sogeor.service.inventory.repository.InventoryRepository;
+import com.sogeor.service.inventory.repository.StockImportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockImportServiceTest {
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+
+    private final StockImportRepository stockImportRepository = mock(StockImportRepository.class);
+
+    private final InventoryProperties properties = new InventoryProperties();
+
+    private final StockImportService stockImportService = new StockImportService(inventoryRepository,
+                                                                                 stockImportRepository,
+                                                                                 new ObjectMapper(), properties);
+
+    @BeforeEach
+    void setUp() {
+        properties.getImports().setBatchSize(2);
+        when(stockImportRepository.complete("i")).thenReturn(Mono.just(stockImport(StockImport.COMPLETED, 3)));
+        when(stockImportRepository.interrupt("i")).thenReturn(Mono.empty());
+        when(inventoryRepository.importStock(any(), anyLong(), anyLong(), anyInt(), any(), any())).thenReturn(
+                Mono.just(1));
+    }
+
+    @Test
+    void importCsv_shouldSkipHeaderAndCountRejectedRows() {
+        when(stockImportRepository.start("i")).thenReturn(Mono.just(stockImport(StockImport.RUNNING, 0)));
+
+        stockImportService.importCsv("i", Flux.just("product_id,quantity", "a,5", "b,-1", "c,x", "", "a,2")).block();
+
+        verify(inventoryRepository).importStock("i", 0, 2, 1, new String[] {"a"}, new Integer[] {5});
+        verify(inventoryRepository).importStock("i", 2, 4, 1, new String[] {"a"}, new Integer[] {2});
+        verify(stockImportRepository).complete("i");
+    }
+
+    @Test
+    void importNdjson_shouldSkipAppliedRows_whenResumed() {
+        when(stockImportRepository.start("i")).thenReturn(Mono.just(stockImport(StockImport.INTERRUPTED, 2)));
+
+        stockImportService.importNdjson("i", Flux.just("{\"productId\":\"a\",\"quantity\":1}",
+                                                       "{\"productId\":\"b\",\"quantity\":2}",
+                                                       "{\"productId\":\"c\",\"quantity\":3}", "{broken")).block();
+
+        verify(inventoryRepository).importStock("i", 2, 4, 1, new String[] {"c"}, new Integer[] {3});
+        verify(inventoryRepository, never()).importStock(any(), eq(0L), anyLong(), anyInt(), any(), any());
+    }
+
+    @Test
+    void importNdjson_shouldReturnCompletedImport_withoutReadingBody() {
+        StockImport completed = stockImport(StockImport.COMPLETED, 3);
+        when(stockImportRepository.start("i")).thenReturn(Mono.just(completed));
+
+        StockImport result = stockImportService.importNdjson("i", Flux.error(new IllegalStateException())).block();
+
+        assertThat(result).isSameAs(completed);
+        verify(inventoryRepository, never()).importStock(any(), anyLong(), anyLong(), anyInt(), any(), any());
+    }
+
+    @Test
+    void importCsv_shouldInterruptAndFail_whenCheckpointMoved() {
+        when(stockImportRepository.start("i")).thenReturn(Mono.just(stockImport(StockImport.RUNNING, 0)));
+        when(inventoryRepository.importStock(any(), anyLong(), anyLong(), anyInt(), any(), any())).thenReturn(
+                Mono.just(-1));
+
+        assertThatThrownBy(() -> stockImportService.importCsv("i", Flux.just("a,1")).block()).isInstanceOfSatisfying(
+                ResponseStatusException.class, ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        verify(stockImportRepository).interrupt("i");
+        verify(stockImportRepository, never()).complete("i");
+    }
+
+    private static StockImport stockImport(String status, long processedRows) {
+        return StockImport.builder().importId("i").status(status).processedRows(processedRows).rejectedRows(0L).build();
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.sogeor.service.inventory.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockShardsTest {
+
+    @Test
+    void tryAcquire_shouldNeverHandOutMoreThanAdded_whenContended() throws Exception {
+        StockShards shards = new StockShards(8);
+        shards.add(10_000);
+        AtomicInteger acquired = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            var futures = IntStream.range(0, 16).mapToObj(i -> executor.submit(() -> {
+                for (int j = 0; j < 2_000; j++) {
+                    if (shards.tryAcquire(1 + j % 3)) {
+                        acquired.addAndGet(1 + j % 3);
+                    }
+                }
+            })).toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(acquired.get() + shards.available()).isEqualTo(10_000);
+    }
+
+    @Test
+    void tryAcquire_shouldMoveStockFromOtherShards_whenHomeShardIsDry() {
+        StockShards shards = new StockShards(4);
+        shards.add(4);
+
+        assertThat(shards.tryAcquire(3)).isTrue();
+        assertThat(shards.tryAcquire(2)).isFalse();
+        assertThat(shards.available()).isEqualTo(1);
+        assertThat(shards.drain()).isEqualTo(1);
+        assertThat(shards.available()).isZero();
+    }
+
+    @Test
+    void tryAcquire_shouldRejectNonPositiveQuantity() {
+        StockShards shards = new StockShards(4);
+        shards.add(4);
+
+        assertThatThrownBy(() -> shards.tryAcquire(-2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> shards.tryAcquire(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(shards.available()).isEqualTo(4);
+    }
+
+}